@@ -0,0 +1,123 @@
+package com.revvo.controller;
+
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.revvo.support.SsoTestFixture;
+import com.revvo.support.XsuaaTestTokens;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /sap/detect-environment numa thread (requisições/s por core), sem o container HTTP:
+ * - before: SapSsoFilter (rodava nesta rota) + extractUsername + HashMap + Jackson
+ * - after: detecção leve (headers / claims de username) + template de bytes, sem o filtro
+ *
+ * Cenários: anonymous (sem headers SAP), header (approuter) e jwt (só o token XSUAA, 47 roles).
+ * A mesma requisição é reaproveitada: a cada operação os atributos (contexto SAP memorizado,
+ * marca do OncePerRequestFilter) e a resposta são limpos, sem o ruído de Level.Invocation.
+ * Log de com.revvo em INFO, como no application.yaml (sem configuração o logback fica em DEBUG
+ * no console e a medição vira custo de I/O).
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="DetectEnvironmentBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DetectEnvironmentBenchmark {
+
+    @Param({"anonymous", "header", "jwt"})
+    public String scenario;
+
+    private SsoTestFixture fixture;
+    private SapController controller;
+    private String token;
+    private List<String> roles;
+
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() {
+        ((Logger) LoggerFactory.getLogger("com.revvo")).setLevel(ch.qos.logback.classic.Level.INFO);
+
+        fixture = new SsoTestFixture();
+        controller = new SapController(fixture.sapContextExtractor, fixture.permissionService, fixture.objectMapper);
+        roles = XsuaaTestTokens.roles(47);
+        token = XsuaaTestTokens.token("adriana.amaral@partner.ideen.tech", roles);
+
+        switch (scenario) {
+            case "header":
+                request = SsoTestFixture.headerRequest("adriana.amaral@partner.ideen.tech", roles);
+                break;
+            case "jwt":
+                request = SsoTestFixture.jwtRequest(token);
+                break;
+            default:
+                request = new MockHttpServletRequest("GET", "/sap/detect-environment");
+                request.addHeader("Accept", "application/json");
+                request.addHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36");
+        }
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse before() throws ServletException, IOException {
+        reset();
+        fixture.sapSsoFilter.doFilter(request, response, new MockFilterChain());
+
+        // O que o MappingJackson2HttpMessageConverter escrevia
+        byte[] body = legacyDetect(request);
+        response.setContentType("application/json");
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse after() throws IOException {
+        reset();
+        controller.detectEnvironment(request, response);
+        return response;
+    }
+
+    private void reset() {
+        SecurityContextHolder.clearContext();
+        request.clearAttributes();
+        response.reset();
+    }
+
+    @TearDown
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * Cópia do detectEnvironment original (Map + serialização Jackson).
+     */
+    private byte[] legacyDetect(MockHttpServletRequest request) throws JsonProcessingException {
+        String username = fixture.sapContextExtractor.extractUsername(request);
+        boolean isFiori = username != null && !username.isBlank();
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("isFiori", isFiori);
+        body.put("authenticated", isFiori);
+        if (isFiori) {
+            body.put("username", username);
+        }
+        return fixture.objectMapper.writeValueAsBytes(body);
+    }
+}
@@ -0,0 +1,61 @@
+package com.revvo.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.revvo.domain.UserPermissions;
+import com.revvo.security.SapAuthenticatedUser;
+import com.revvo.security.SapProfileJson;
+import com.revvo.support.SsoTestFixture;
+import com.revvo.support.XsuaaTestTokens;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Corpo de GET /sap/profile para um usuário com 47 roles:
+ * - recompute: processUserPermissions + serialização Jackson a cada chamada (como era antes)
+ * - cachedJson: bytes já serializados guardados junto do usuário no SapSsoCache
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="SapProfileBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SapProfileBenchmark {
+
+    private SsoTestFixture fixture;
+    private SapAuthenticatedUser user;
+    private long roleFingerprint;
+    private List<String> roles;
+
+    @Setup
+    public void setUp() throws Exception {
+        fixture = new SsoTestFixture();
+        roles = XsuaaTestTokens.roles(47);
+        String token = XsuaaTestTokens.token("adriana.amaral@partner.ideen.tech", roles);
+
+        fixture.sapSsoFilter.doFilter(SsoTestFixture.jwtRequest(token), new MockHttpServletResponse(), new MockFilterChain());
+        user = (SapAuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        roleFingerprint = fixture.sapContextExtractor.resolve(SsoTestFixture.jwtRequest(token)).getRoleFingerprint();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public byte[] recompute() throws JsonProcessingException {
+        UserPermissions permissions = fixture.permissionService.processUserPermissions(
+                "adriana.amaral@partner.ideen.tech", "Adriana Amaral", "adriana.amaral@partner.ideen.tech", roles);
+        return fixture.objectMapper.writeValueAsBytes(permissions);
+    }
+
+    @Benchmark
+    public byte[] cachedJson() {
+        SapProfileJson profile = user.getProfileJson(roleFingerprint, fixture.objectMapper);
+        return profile.getJson();
+    }
+}
@@ -0,0 +1,132 @@
+package com.revvo.domain;
+
+import com.revvo.support.XsuaaTestTokens;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap retido por N usuários em cache, com os roles no formato antigo (cada usuário com as
+ * próprias List&lt;String&gt;, texto copiado do header) e no novo (RoleSet com ids do RoleDictionary).
+ *
+ * Cada usuário tem as 47 roles de produção mais um role próprio de departamento (conjuntos
+ * distintos, como no pior caso do memo por conjunto de roles). O resultado relevante é o
+ * contador retainedBytesPerUser; o tempo é só o custo de montar os usuários.
+ *
+ * Em produção os roles SAP quase nunca estão na configuração: entram no dicionário como
+ * observados, quando o RoleSetMapping do conjunto é criado, até o limite de observados.
+ * - roleDictionary: as 47 roles de produção e os 500 departamentos já observados (ids);
+ * - namesFallback: limite de observados esgotado, os roles ficam como nomes no RoleSet
+ *   (pior caso: texto do header por usuário, como chega ao builder).
+ * Em todos os layouts só USER e ADMIN vêm da configuração.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="UserPermissionsFootprintBenchmark"
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class UserPermissionsFootprintBenchmark {
+
+    @Param({"10000", "100000"})
+    public int users;
+
+    @Param({"legacyLists", "roleDictionary", "namesFallback"})
+    public String layout;
+
+    private List<Object> retained;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public long retainedBytesPerUser;
+    }
+
+    @Setup(Level.Trial)
+    public void registerRoles() {
+        RoleDictionary.global().register("USER");
+        RoleDictionary.global().register("ADMIN");
+        if ("roleDictionary".equals(layout)) {
+            for (String role : XsuaaTestTokens.PRODUCTION_ROLES) {
+                RoleDictionary.global().intern(role);
+            }
+            for (int i = 0; i < 500; i++) {
+                RoleDictionary.global().intern("Departamento_" + i);
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void clear() {
+        retained = null;
+    }
+
+    @Benchmark
+    public int buildUsers(Footprint footprint) {
+        long before = usedHeap();
+
+        List<Object> cache = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            String username = "user" + i + "@partner.ideen.tech";
+            List<String> sapRoles = rolesFromHeader(i);
+            List<String> revvoRoles = new ArrayList<>(List.of(new String("USER"), new String("ADMIN")));
+
+            if ("legacyLists".equals(layout)) {
+                cache.add(new LegacyUserPermissions(username, "Usuário " + i, username, "sap-sso", sapRoles, revvoRoles));
+            } else {
+                cache.add(UserPermissions.builder()
+                        .username(username).name("Usuário " + i).email(username).source("sap-sso")
+                        .sapRoles(sapRoles).revvoRoles(revvoRoles)
+                        .build());
+            }
+        }
+        retained = cache;
+
+        footprint.retainedBytesPerUser = (usedHeap() - before) / users;
+        return retained.size();
+    }
+
+    // Como o tokenizer entrega: Strings novas a cada requisição
+    private static List<String> rolesFromHeader(int user) {
+        List<String> roles = new ArrayList<>(XsuaaTestTokens.PRODUCTION_ROLES.size() + 1);
+        for (String role : XsuaaTestTokens.PRODUCTION_ROLES) {
+            roles.add(new String(role));
+        }
+        roles.add("Departamento_" + (user % 500));
+        return roles;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Layout anterior de UserPermissions: listas próprias por usuário.
+     */
+    static final class LegacyUserPermissions {
+        final String username;
+        final String name;
+        final String email;
+        final String source;
+        final List<String> sapRoles;
+        final List<String> revvoRoles;
+
+        LegacyUserPermissions(String username, String name, String email, String source,
+                              List<String> sapRoles, List<String> revvoRoles) {
+            this.username = username;
+            this.name = name;
+            this.email = email;
+            this.source = source;
+            this.sapRoles = sapRoles;
+            this.revvoRoles = revvoRoles;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.revvo.sap;
+
+import com.revvo.support.XsuaaTestTokens;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Tokenização de listas de roles: regex + stream + distinct (como era antes)
+ * vs. {@link RoleTokenizer} (uma passada, lista pré-dimensionada, dedup linear/HashSet).
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="RoleTokenizerBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RoleTokenizerBenchmark {
+
+    @Param({"5", "50", "500"})
+    public int roleCount;
+
+    private String csv;
+    private String whitespace;
+
+    @Setup
+    public void setUp() {
+        List<String> roles = XsuaaTestTokens.roles(roleCount).stream()
+                .map(r -> r.replace(' ', '_'))
+                .collect(Collectors.toList());
+        csv = String.join(", ", roles);
+        whitespace = String.join(" ", roles);
+    }
+
+    @Benchmark
+    public List<String> csvLegacy() {
+        return Arrays.stream(csv.split(","))
+                .map(String::trim)
+                .filter(v -> !v.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> csvTokenizer() {
+        return RoleTokenizer.splitCsv(csv);
+    }
+
+    @Benchmark
+    public List<String> whitespaceLegacy() {
+        return Arrays.stream(whitespace.split("\\s+"))
+                .map(String::trim)
+                .filter(v -> !v.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> whitespaceTokenizer() {
+        return RoleTokenizer.splitWhitespace(whitespace);
+    }
+}
@@ -0,0 +1,108 @@
+package com.revvo.sap;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolução dos headers de identidade: sondagem por atributo (como era antes, com
+ * arrays de candidatos e variantes maiúsculas/minúsculas) vs. plano estático com uma
+ * única passada por getHeaderNames().
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="SapContextExtractorBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SapContextExtractorBenchmark {
+
+    /**
+     * approuter: headers SAP completos; anonymous: só headers comuns de navegador/proxy.
+     */
+    @Param({"approuter", "anonymous"})
+    public String scenario;
+
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        request = new MockHttpServletRequest("GET", "/sap/profile");
+        request.addHeader("Host", "revvo.cfapps.br10.hana.ondemand.com");
+        request.addHeader("Accept", "application/json");
+        request.addHeader("Accept-Language", "pt-BR,pt;q=0.9,en;q=0.8");
+        request.addHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36");
+        request.addHeader("X-Forwarded-For", "10.0.0.1, 10.0.0.2");
+        request.addHeader("X-Forwarded-Proto", "https");
+        request.addHeader("X-Request-Id", "5f1c2a7e-0b3d-4e9a-9c61-7d2f0a1b3c4d");
+
+        if ("approuter".equals(scenario)) {
+            request.addHeader("x-authenticated-user", "adriana.amaral@partner.ideen.tech");
+            request.addHeader("x-user-name", "Adriana");
+            request.addHeader("x-user-email", "adriana.amaral@partner.ideen.tech");
+            request.addHeader("x-sap-roles", "RevvoUser,AdminFinanceApps,Launchpad_Admin,PI_Read_Only");
+        }
+    }
+
+    @Benchmark
+    public void singlePassPlan(Blackhole bh) {
+        bh.consume(IdentityHeaders.scan(request));
+    }
+
+    @Benchmark
+    public void legacyPerAttributeProbe(Blackhole bh) {
+        bh.consume(LegacyProbe.username(request));
+        bh.consume(LegacyProbe.name(request));
+        bh.consume(LegacyProbe.email(request));
+        bh.consume(LegacyProbe.roles(request));
+    }
+
+    /**
+     * Cópia da sondagem original do SapContextExtractor (apenas a parte de headers).
+     */
+    static final class LegacyProbe {
+
+        static String username(MockHttpServletRequest request) {
+            String[] headerCandidates = new String[] {
+                    "X-SAP-USER", "X-Authenticated-User", "X-User", "X-Forwarded-User",
+                    "x-sap-user", "x-authenticated-user", "x-user", "x-forwarded-user"
+            };
+            return first(request, headerCandidates);
+        }
+
+        static String name(MockHttpServletRequest request) {
+            String[] headerCandidates = new String[] {
+                    "X-User-Name", "X-SAP-USER-NAME", "x-user-name", "x-sap-user-name"
+            };
+            return first(request, headerCandidates);
+        }
+
+        static String email(MockHttpServletRequest request) {
+            String[] headerCandidates = new String[] {
+                    "X-User-Email", "X-SAP-USER-EMAIL", "x-user-email", "x-sap-user-email"
+            };
+            return first(request, headerCandidates);
+        }
+
+        static String roles(MockHttpServletRequest request) {
+            return first(request, new String[] {
+                    "X-SAP-ROLES", "x-sap-roles",
+                    "X-SAP-GROUPS", "x-sap-groups",
+                    "X-User-Roles", "x-user-roles",
+                    "X-Groups", "x-groups"
+            });
+        }
+
+        private static String first(MockHttpServletRequest request, String[] names) {
+            for (String h : names) {
+                String v = request.getHeader(h);
+                if (v != null && !v.isBlank()) return v.trim();
+            }
+            return null;
+        }
+    }
+}
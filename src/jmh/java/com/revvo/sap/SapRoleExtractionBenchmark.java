@@ -0,0 +1,49 @@
+package com.revvo.sap;
+
+import com.revvo.support.SsoTestFixture;
+import com.revvo.support.XsuaaTestTokens;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SapContextExtractor.extractSapRoles numa requisição nova (contexto ainda não resolvido):
+ * roles vindos do header X-SAP-ROLES ou do xs.rolecollections do JWT (claims em cache).
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="SapRoleExtractionBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SapRoleExtractionBenchmark {
+
+    @Param({"header", "jwt"})
+    public String source;
+
+    @Param({"5", "47", "500"})
+    public int roleCount;
+
+    private SapContextExtractor extractor;
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        extractor = new SsoTestFixture().sapContextExtractor;
+
+        List<String> roles = XsuaaTestTokens.roles(roleCount);
+        String username = "adriana.amaral@partner.ideen.tech";
+        request = "header".equals(source)
+                ? SsoTestFixture.headerRequest(username, roles)
+                : SsoTestFixture.jwtRequest(XsuaaTestTokens.token(username, roles));
+    }
+
+    @Benchmark
+    public List<String> extractSapRoles() {
+        return new SapIdentityContext(extractor, request).getSapRoles();
+    }
+}
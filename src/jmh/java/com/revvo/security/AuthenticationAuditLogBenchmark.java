@@ -0,0 +1,91 @@
+package com.revvo.security;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.FileAppender;
+import com.revvo.config.SapSsoProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo do registro de uma autenticação na thread da requisição, com 4 threads:
+ * - logInfo: a linha de log.info que o filtro fazia a cada requisição, com o padrão de log do
+ *   Spring Boot e um appender de arquivo síncrono (arquivo temporário)
+ * - auditRecord: evento na fila sem locks do AuthenticationAuditLog (gravação em background,
+ *   num arquivo temporário; descartes com a fila cheia aparecem em sap.sso.audit.events)
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="AuthenticationAuditLogBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class AuthenticationAuditLogBenchmark {
+
+    private AuthenticationAuditLog auditLog;
+    private Path file;
+
+    private Logger logger;
+    private FileAppender<ILoggingEvent> appender;
+    private Path logFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("sap-sso-audit", ".log");
+        SapSsoProperties properties = new SapSsoProperties();
+        properties.getAudit().setEnabled(true);
+        properties.getAudit().setPath(file.toString());
+        auditLog = new AuthenticationAuditLog(properties, new SimpleMeterRegistry());
+        auditLog.start();
+
+        logFile = Files.createTempFile("sap-sso-info", ".log");
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} %5p [%t] %-40.40logger{39} : %m%n");
+        encoder.start();
+        appender = new FileAppender<>();
+        appender.setContext(context);
+        appender.setFile(logFile.toString());
+        appender.setEncoder(encoder);
+        appender.start();
+
+        logger = context.getLogger(SapSsoFilter.class);
+        logger.detachAndStopAllAppenders();
+        logger.setAdditive(false);
+        logger.setLevel(Level.INFO);
+        logger.addAppender(appender);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        auditLog.close();
+        Files.deleteIfExists(file);
+        logger.detachAppender(appender);
+        appender.stop();
+        Files.deleteIfExists(logFile);
+    }
+
+    @Benchmark
+    public void logInfo() {
+        logger.info("Usuário {} autenticado via SAP SSO com {} roles SAP", "adriana.amaral@partner.ideen.tech", 47);
+    }
+
+    @Benchmark
+    public void auditRecord() {
+        auditLog.record("adriana.amaral@partner.ideen.tech", AuthenticationAuditLog.SOURCE_JWT,
+                0x5f1c2a7e0b3d4e9aL, SapSsoCache.Lookup.HIT, 12_000);
+    }
+}
@@ -0,0 +1,65 @@
+package com.revvo.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revvo.config.SapSsoProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokens que não são JWT válidos, repetidos a cada requisição:
+ * - notJwt: "Authorization: Bearer" com token opaco (descartado pela checagem de formato, sem cache)
+ * - malformedJson: payload Base64URL válido com JSON quebrado (o parser lança)
+ *
+ * - uncached: parse a cada chamada com try/catch (como era antes)
+ * - rejectedCache: JwtClaimsExtractor com o cache negativo (digest + lookup)
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="InvalidTokenBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InvalidTokenBenchmark {
+
+    @Param({"notJwt", "malformedJson"})
+    public String scenario;
+
+    private JwtClaimsExtractor extractor;
+    private JwtPayloadParser parser;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        extractor = new JwtClaimsExtractor(objectMapper, new SapSsoProperties(), new SimpleMeterRegistry());
+        parser = new JwtPayloadParser(objectMapper.getFactory());
+
+        String payload = "{\"user_name\":\"adriana.amaral@partner.ideen.tech\",\"scope\":[\"openid\",}";
+        token = "notJwt".equals(scenario)
+                ? "2YotnFZFEjr1zCsicMWpAA-opaque-access-token"
+                : "eyJhbGciOiJSUzI1NiJ9."
+                    + Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes(StandardCharsets.UTF_8))
+                    + ".c2ln";
+    }
+
+    @Benchmark
+    public SapTokenClaims uncached() {
+        try {
+            SapTokenClaims claims = parser.parse(token);
+            return claims != null ? claims : SapTokenClaims.EMPTY;
+        } catch (Exception e) {
+            return SapTokenClaims.EMPTY;
+        }
+    }
+
+    @Benchmark
+    public SapTokenClaims rejectedCache() {
+        return extractor.extractSapClaims(token);
+    }
+}
@@ -0,0 +1,58 @@
+package com.revvo.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revvo.config.SapSsoProperties;
+import com.revvo.support.XsuaaTestTokens;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodificação do payload de tokens XSUAA:
+ * - fullMapParse: Base64 → String → Map (modo genérico, como era antes)
+ * - streamingParse: Base64 → buffer reutilizável → JsonParser só com as claims usadas
+ * - cachedLookup: token repetido, servido pelo cache de claims (digest + lookup)
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="JwtClaimsExtractorBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JwtClaimsExtractorBenchmark {
+
+    @Param({"5", "47", "500"})
+    public int roleCount;
+
+    private JwtClaimsExtractor extractor;
+    private JwtPayloadParser parser;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        extractor = new JwtClaimsExtractor(objectMapper, new SapSsoProperties(), new SimpleMeterRegistry());
+        parser = new JwtPayloadParser(objectMapper.getFactory());
+        token = XsuaaTestTokens.token("adriana.amaral@partner.ideen.tech", XsuaaTestTokens.roles(roleCount));
+    }
+
+    @Benchmark
+    public Map<String, Object> fullMapParse() {
+        return extractor.extractClaims(token);
+    }
+
+    @Benchmark
+    public SapTokenClaims streamingParse() throws IOException {
+        return parser.parse(token);
+    }
+
+    @Benchmark
+    public SapTokenClaims cachedLookup() {
+        return extractor.extractSapClaims(token);
+    }
+}
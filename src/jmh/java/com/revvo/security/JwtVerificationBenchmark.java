@@ -0,0 +1,86 @@
+package com.revvo.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revvo.config.SapSsoProperties;
+import com.revvo.support.XsuaaTestTokens;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.interfaces.RSAPublicKey;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo da validação de assinatura de tokens XSUAA (RS256, chave de 2048 bits, 47 roles):
+ * - unverifiedHit: validação desligada, token repetido (cache de claims)
+ * - verifiedHit: validação ligada, token repetido (cache de tokens já validados, sem RSA)
+ * - verifyEveryRequest: parse + verificação RSA a cada chamada (validação sem cache)
+ *
+ * O JWKS vem de um arquivo temporário (file:), como nos testes.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="JwtVerificationBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JwtVerificationBenchmark {
+
+    private JwtClaimsExtractor unverified;
+    private JwtClaimsExtractor verified;
+    private JwtSignatureVerifier verifier;
+    private JwtPayloadParser parser;
+    private String token;
+    private Path jwksFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        KeyPair keys = XsuaaTestTokens.rsaKeyPair();
+        token = XsuaaTestTokens.signedToken("adriana.amaral@partner.ideen.tech", XsuaaTestTokens.roles(47),
+                System.currentTimeMillis() / 1000 + 3600, "key-1", keys.getPrivate());
+
+        jwksFile = Files.createTempFile("token_keys", ".json");
+        Files.writeString(jwksFile, XsuaaTestTokens.jwks("key-1", (RSAPublicKey) keys.getPublic()));
+
+        SapSsoProperties properties = new SapSsoProperties();
+        properties.getJwt().getVerification().setEnabled(true);
+        properties.getJwt().getVerification().setJwksUri(jwksFile.toUri().toString());
+        properties.getJwt().getVerification().setAudiences(List.of("sb-revvo!t8564"));
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        JwksKeyStore keyStore = new JwksKeyStore(properties, new DefaultResourceLoader(), objectMapper);
+        keyStore.init();
+        verifier = new JwtSignatureVerifier(properties, keyStore, objectMapper, new SimpleMeterRegistry());
+
+        unverified = new JwtClaimsExtractor(objectMapper, new SapSsoProperties(), new SimpleMeterRegistry());
+        verified = new JwtClaimsExtractor(objectMapper, properties, new SimpleMeterRegistry(), verifier);
+        parser = new JwtPayloadParser(objectMapper.getFactory());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(jwksFile);
+    }
+
+    @Benchmark
+    public SapTokenClaims unverifiedHit() {
+        return unverified.extractSapClaims(token);
+    }
+
+    @Benchmark
+    public SapTokenClaims verifiedHit() {
+        return verified.extractSapClaims(token);
+    }
+
+    @Benchmark
+    public boolean verifyEveryRequest() throws IOException {
+        return verifier.verify(token, parser.parse(token));
+    }
+}
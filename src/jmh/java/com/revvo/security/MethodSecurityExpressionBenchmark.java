@@ -0,0 +1,67 @@
+package com.revvo.security;
+
+import com.revvo.support.SsoTestFixture;
+import com.revvo.support.XsuaaTestTokens;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.access.expression.ExpressionUtils;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionHandler;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Avaliação de uma expressão de @PreAuthorize como o MethodSecurityInterceptor faz a cada
+ * chamada (cria o contexto de avaliação + avalia a expressão já parseada), para um usuário
+ * SAP com 47 roles:
+ * - default: DefaultMethodSecurityExpressionHandler (Set de authorities por chamada, SpEL interpretado)
+ * - sap: SapMethodSecurityExpressionHandler (bitset do principal, SpEL compilado)
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="MethodSecurityExpressionBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MethodSecurityExpressionBenchmark {
+
+    @Param({"default", "sap"})
+    public String handler;
+
+    @Param({"hasRole('ADMIN')", "hasAnyRole('ADMIN', 'USER')", "hasAuthority('SAP_RevvoUser')"})
+    public String expression;
+
+    private MethodSecurityExpressionHandler expressionHandler;
+    private Expression parsed;
+    private Authentication authentication;
+    private SimpleMethodInvocation invocation;
+
+    @Setup
+    public void setUp() throws Exception {
+        SsoTestFixture fixture = new SsoTestFixture();
+        String token = XsuaaTestTokens.token("adriana.amaral@partner.ideen.tech", XsuaaTestTokens.roles(47));
+        fixture.sapSsoFilter.doFilter(SsoTestFixture.jwtRequest(token), new MockHttpServletResponse(), new MockFilterChain());
+        authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+
+        expressionHandler = "sap".equals(handler)
+                ? new SapMethodSecurityExpressionHandler()
+                : new DefaultMethodSecurityExpressionHandler();
+        parsed = expressionHandler.getExpressionParser().parseExpression(expression);
+        invocation = new SimpleMethodInvocation(new Object(), Object.class.getMethod("toString"));
+    }
+
+    @Benchmark
+    public boolean evaluate() {
+        EvaluationContext context = expressionHandler.createEvaluationContext(authentication, invocation);
+        return ExpressionUtils.evaluateAsBoolean(parsed, context);
+    }
+}
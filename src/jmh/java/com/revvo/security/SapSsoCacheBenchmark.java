@@ -0,0 +1,74 @@
+package com.revvo.security;
+
+import com.revvo.domain.UserPermissions;
+import com.revvo.service.RoleSetMapping;
+import com.revvo.support.SsoTestFixture;
+import com.revvo.support.XsuaaTestTokens;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SapSsoCache sob concorrência: só leituras (4 threads) e leituras + escritas
+ * (3 threads lendo, 1 escrevendo) sobre uma população de usuários já em cache.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="SapSsoCacheBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SapSsoCacheBenchmark {
+
+    @Param({"10000"})
+    public int users;
+
+    private SapSsoCache cache;
+    private String[] usernames;
+    private SapAuthenticatedUser[] values;
+    private long roleFingerprint;
+
+    @Setup
+    public void setUp() {
+        SsoTestFixture fixture = new SsoTestFixture();
+        cache = fixture.sapSsoCache;
+        RoleSetMapping roleSet = fixture.permissionService.mapRoles(XsuaaTestTokens.PRODUCTION_ROLES);
+
+        roleFingerprint = RoleFingerprint.ofHeader(String.join(",", XsuaaTestTokens.PRODUCTION_ROLES));
+
+        usernames = new String[users];
+        values = new SapAuthenticatedUser[users];
+        for (int i = 0; i < users; i++) {
+            usernames[i] = "user" + i + "@revvo";
+            UserPermissions permissions =
+                    fixture.permissionService.processUserPermissions(
+                            usernames[i], "User " + i, usernames[i], XsuaaTestTokens.PRODUCTION_ROLES, roleSet);
+            values[i] = new SapAuthenticatedUser(permissions, roleSet.getAuthorities());
+            cache.put(usernames[i], roleFingerprint, values[i]);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public SapAuthenticatedUser getOnly() {
+        return cache.get(usernames[ThreadLocalRandom.current().nextInt(users)], roleFingerprint);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public SapAuthenticatedUser readWriteGet() {
+        return cache.get(usernames[ThreadLocalRandom.current().nextInt(users)], roleFingerprint);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void readWritePut() {
+        int i = ThreadLocalRandom.current().nextInt(users);
+        cache.put(usernames[i], roleFingerprint, values[i]);
+    }
+}
@@ -0,0 +1,77 @@
+package com.revvo.security;
+
+import com.revvo.config.SapSsoProperties;
+import com.revvo.domain.UserPermissions;
+import com.revvo.service.RoleSetMapping;
+import com.revvo.support.SsoTestFixture;
+import com.revvo.support.XsuaaTestTokens;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tempo para recarregar o snapshot do SapSsoCache no startup (arquivo já gravado,
+ * entradas com as 47 roles de produção, cache vazio a cada operação).
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="SapSsoCacheSnapshotBenchmark"
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SapSsoCacheSnapshotBenchmark {
+
+    @Param({"100000"})
+    public int entries;
+
+    private SapSsoProperties properties;
+    private Path file;
+    private SapSsoCache cache;
+
+    @Setup(Level.Trial)
+    public void writeSnapshot() throws IOException {
+        SsoTestFixture fixture = new SsoTestFixture();
+        RoleSetMapping roleSet = fixture.permissionService.mapRoles(XsuaaTestTokens.PRODUCTION_ROLES);
+        long roleFingerprint = RoleFingerprint.ofHeader(String.join(",", XsuaaTestTokens.PRODUCTION_ROLES));
+        long expiresAt = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+
+        List<SapSsoCacheSnapshot.Entry> snapshot = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            String username = "user" + i + "@partner.ideen.tech";
+            UserPermissions permissions =
+                    fixture.permissionService.processUserPermissions(
+                            username, "Usuário " + i, username, XsuaaTestTokens.PRODUCTION_ROLES, roleSet);
+            snapshot.add(new SapSsoCacheSnapshot.Entry(
+                    roleFingerprint, expiresAt, new SapAuthenticatedUser(permissions, roleSet.getAuthorities())));
+        }
+
+        file = Files.createTempFile("sap-sso-cache", ".snapshot");
+        SapSsoCacheSnapshot.write(file, snapshot);
+
+        properties = new SapSsoProperties();
+        properties.setCacheMaxSize(entries * 2);
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyCache() {
+        cache = new SapSsoCache(properties, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public int loadSnapshot() throws IOException {
+        return cache.loadSnapshot(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSnapshot() throws IOException {
+        Files.deleteIfExists(file);
+    }
+}
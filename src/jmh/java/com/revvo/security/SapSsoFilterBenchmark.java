@@ -0,0 +1,93 @@
+package com.revvo.security;
+
+import ch.qos.logback.classic.Logger;
+import com.revvo.config.SapSsoProperties;
+import com.revvo.support.SsoTestFixture;
+import com.revvo.support.XsuaaTestTokens;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SapSsoFilter.doFilterInternal de ponta a ponta, com requisições mock:
+ * - headerHit / jwtHit: usuário já no SapSsoCache (caso comum)
+ * - headerMiss / jwtMiss: cache vazio a cada operação (extração + mapeamento + montagem)
+ * - metrics: com e sem os timers por etapa ({@link SapSsoMetrics}), para medir o custo da instrumentação
+ *
+ * A requisição é recriada fora da medição (Level.Invocation) para que cada operação
+ * resolva o contexto SAP do zero, como numa requisição real. Log de com.revvo em INFO,
+ * como no application.yaml.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="SapSsoFilterBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SapSsoFilterBenchmark {
+
+    @Param({"headerHit", "jwtHit", "headerMiss", "jwtMiss"})
+    public String scenario;
+
+    @Param({"47"})
+    public int roleCount;
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private SsoTestFixture fixture;
+    private String token;
+    private List<String> roles;
+    private boolean miss;
+
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private MockFilterChain chain;
+
+    @Setup
+    public void setUp() {
+        ((Logger) LoggerFactory.getLogger("com.revvo")).setLevel(ch.qos.logback.classic.Level.INFO);
+
+        SapSsoProperties properties = new SapSsoProperties();
+        properties.getMetrics().setEnabled(metrics);
+        fixture = new SsoTestFixture(properties);
+        roles = XsuaaTestTokens.roles(roleCount);
+        token = XsuaaTestTokens.token("adriana.amaral@partner.ideen.tech", roles);
+        miss = scenario.endsWith("Miss");
+    }
+
+    @Setup(Level.Invocation)
+    public void newRequest() {
+        SecurityContextHolder.clearContext();
+        if (miss) {
+            fixture.sapSsoCache.invalidateAll();
+        }
+
+        request = scenario.startsWith("header")
+                ? SsoTestFixture.headerRequest("adriana.amaral@partner.ideen.tech", roles)
+                : SsoTestFixture.jwtRequest(token);
+        response = new MockHttpServletResponse();
+        chain = new MockFilterChain();
+    }
+
+    @Benchmark
+    public Object doFilter() throws ServletException, IOException {
+        fixture.sapSsoFilter.doFilter(request, response, chain);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @TearDown
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+}
@@ -0,0 +1,51 @@
+package com.revvo.service;
+
+import com.revvo.domain.UserPermissions;
+import com.revvo.support.SsoTestFixture;
+import com.revvo.support.XsuaaTestTokens;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PermissionService.processUserPermissions com o mapeamento memorizado por conjunto de roles,
+ * comparado à avaliação direta das regras (o que acontece no primeiro usuário de cada conjunto).
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="PermissionServiceBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PermissionServiceBenchmark {
+
+    @Param({"5", "47", "500"})
+    public int roleCount;
+
+    private PermissionService permissionService;
+    private RoleMappingEngine roleMappingEngine;
+    private List<String> roles;
+
+    @Setup
+    public void setUp() {
+        SsoTestFixture fixture = new SsoTestFixture();
+        permissionService = fixture.permissionService;
+        roleMappingEngine = fixture.roleMappingEngine;
+        roles = XsuaaTestTokens.roles(roleCount);
+    }
+
+    @Benchmark
+    public UserPermissions processUserPermissions() {
+        return permissionService.processUserPermissions(
+                "adriana.amaral@partner.ideen.tech", "Adriana", "adriana.amaral@partner.ideen.tech", roles);
+    }
+
+    @Benchmark
+    public Set<String> roleMappingRules() {
+        return roleMappingEngine.map(roles);
+    }
+}
@@ -0,0 +1,73 @@
+package com.revvo.loadtest;
+
+import com.revvo.support.XsuaaTestTokens;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Usuários sintéticos e as requisições que o approuter enviaria por eles.
+ *
+ * - jwt: Authorization: Bearer com um token no formato do XSUAA (xs.system.attributes.xs.rolecollections),
+ *   como o approuter faz com forwardAuthToken
+ * - headers: x-authenticated-user, x-user-name, x-user-email e x-sap-roles (Web Dispatcher / proxy)
+ *
+ * Cada usuário recebe uma das {@code roleSets} combinações de roles: como no BTP, milhares de
+ * usuários compartilham poucos conjuntos. As requisições são montadas antes da medição (tokens
+ * assinados custam ~1 ms de RSA cada) e reaproveitadas, já que {@link HttpRequest} é imutável.
+ */
+final class Identities {
+
+    private final LoadTestConfig config;
+    private final XsuaaStub stub;
+    private final URI uri;
+    private final List<List<String>> roleSets;
+
+    Identities(LoadTestConfig config, XsuaaStub stub) {
+        this.config = config;
+        this.stub = stub;
+        this.uri = config.getBaseUrl().resolve(config.getPath());
+
+        List<String> base = XsuaaTestTokens.roles(Math.max(0, config.getRoles() - 1));
+        this.roleSets = new ArrayList<>(config.getRoleSets());
+        for (int i = 0; i < config.getRoleSets(); i++) {
+            List<String> roles = new ArrayList<>(base);
+            roles.add("LoadTest_Group_" + i);
+            roleSets.add(List.copyOf(roles));
+        }
+    }
+
+    /**
+     * Requisições de {@code count} usuários distintos, com o prefixo informado no username
+     * (um prefixo novo por execução garante usuários que o backend nunca viu).
+     */
+    HttpRequest[] requests(String prefix, int count) {
+        return IntStream.range(0, count).parallel()
+                .mapToObj(i -> request(prefix + "-" + i + "@loadtest.ideen.tech", roleSets.get(i % roleSets.size())))
+                .toArray(HttpRequest[]::new);
+    }
+
+    private HttpRequest request(String username, List<String> roles) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .GET()
+                .timeout(config.getTimeout())
+                .header("Accept", "application/json")
+                .header("x-forwarded-host", "revvo.cfapps.br10.hana.ondemand.com")
+                .header("x-forwarded-proto", "https")
+                .header("x-forwarded-for", "10.0.0.1");
+
+        if (config.getMode().equals("headers")) {
+            builder.header("x-authenticated-user", username)
+                    .header("x-user-name", "Usuário " + username)
+                    .header("x-user-email", username)
+                    .header("x-sap-roles", String.join(",", roles));
+        } else {
+            String token = stub != null ? stub.signedToken(username, roles) : XsuaaTestTokens.token(username, roles);
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,51 @@
+package com.revvo.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Latências de uma thread do gerador de carga (sem sincronização). Ao final, as gravações de
+ * todas as threads são juntadas e ordenadas: percentis exatos, sem histograma aproximado
+ * (100k requisições = 800 KB).
+ */
+final class LatencyRecorder {
+
+    private long[] nanos;
+    private int count;
+
+    LatencyRecorder(int expected) {
+        this.nanos = new long[Math.max(16, expected)];
+    }
+
+    void record(long latencyNanos) {
+        if (count == nanos.length) {
+            nanos = Arrays.copyOf(nanos, count * 2);
+        }
+        nanos[count++] = latencyNanos;
+    }
+
+    static long[] merge(Iterable<LatencyRecorder> recorders) {
+        int total = 0;
+        for (LatencyRecorder recorder : recorders) {
+            total += recorder.count;
+        }
+        long[] merged = new long[total];
+        int offset = 0;
+        for (LatencyRecorder recorder : recorders) {
+            System.arraycopy(recorder.nanos, 0, merged, offset, recorder.count);
+            offset += recorder.count;
+        }
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    /**
+     * Percentil (0-100) de latências já ordenadas, pelo método nearest-rank.
+     */
+    static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.min(sorted.length, Math.max(1, rank)) - 1];
+    }
+}
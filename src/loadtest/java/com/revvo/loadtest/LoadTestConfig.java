@@ -0,0 +1,96 @@
+package com.revvo.loadtest;
+
+import lombok.Value;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parâmetros do teste de carga, como pares chave=valor (-Dloadtest.args="users=5000 concurrency=64").
+ * Chaves desconhecidas interrompem a execução, para que um erro de digitação não passe despercebido.
+ */
+@Value
+class LoadTestConfig {
+
+    private static final List<String> KEYS = List.of(
+            "baseUrl", "path", "scenarios", "mode", "users", "roles", "roleSets", "coldUsers",
+            "requests", "missRatio", "concurrency", "timeout", "verify", "stubPort");
+
+    // Backend já rodando (mvn spring-boot:run)
+    URI baseUrl;
+    String path;
+
+    // cold, warm, mixed (na ordem informada)
+    List<String> scenarios;
+
+    // jwt: Authorization: Bearer (approuter com forwardAuthToken); headers: x-authenticated-user + x-sap-roles
+    String mode;
+
+    // População de usuários do cenário warm (e parte "quente" do mixed)
+    int users;
+    // Role collections por usuário e quantidade de combinações distintas entre os usuários
+    int roles;
+    int roleSets;
+
+    // Usuários novos (nunca vistos pelo backend) do cenário cold: uma requisição cada
+    int coldUsers;
+    // Requisições medidas nos cenários warm e mixed
+    int requests;
+    // Fração de usuários novos no mixed
+    double missRatio;
+
+    int concurrency;
+    Duration timeout;
+
+    // Tokens assinados (RS256) com o JWKS servido pelo stub do XSUAA, para rodar com a validação ligada
+    boolean verify;
+    int stubPort;
+
+    static LoadTestConfig parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            for (String pair : arg.trim().split("\\s+")) {
+                if (pair.isEmpty()) continue;
+                int eq = pair.indexOf('=');
+                if (eq <= 0) {
+                    throw new IllegalArgumentException("Argumento inválido (esperado chave=valor): " + pair);
+                }
+                String key = pair.substring(0, eq);
+                if (!KEYS.contains(key)) {
+                    throw new IllegalArgumentException("Parâmetro desconhecido: " + key + " (válidos: " + KEYS + ")");
+                }
+                values.put(key, pair.substring(eq + 1));
+            }
+        }
+
+        String mode = values.getOrDefault("mode", "jwt");
+        if (!mode.equals("jwt") && !mode.equals("headers")) {
+            throw new IllegalArgumentException("mode deve ser jwt ou headers: " + mode);
+        }
+        List<String> scenarios = List.of(values.getOrDefault("scenarios", "cold,warm,mixed").split(","));
+        for (String scenario : scenarios) {
+            if (!List.of("cold", "warm", "mixed").contains(scenario)) {
+                throw new IllegalArgumentException("Cenário desconhecido: " + scenario);
+            }
+        }
+
+        return new LoadTestConfig(
+                URI.create(values.getOrDefault("baseUrl", "http://localhost:8081")),
+                values.getOrDefault("path", "/sap/profile"),
+                scenarios,
+                mode,
+                Integer.parseInt(values.getOrDefault("users", "2000")),
+                Integer.parseInt(values.getOrDefault("roles", "47")),
+                Integer.parseInt(values.getOrDefault("roleSets", "20")),
+                Integer.parseInt(values.getOrDefault("coldUsers", "5000")),
+                Integer.parseInt(values.getOrDefault("requests", "100000")),
+                Double.parseDouble(values.getOrDefault("missRatio", "0.2")),
+                Integer.parseInt(values.getOrDefault("concurrency", "32")),
+                Duration.parse(values.getOrDefault("timeout", "PT10S")),
+                Boolean.parseBoolean(values.getOrDefault("verify", "false")),
+                Integer.parseInt(values.getOrDefault("stubPort", "8089")));
+    }
+}
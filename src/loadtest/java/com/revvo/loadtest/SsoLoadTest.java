@@ -0,0 +1,226 @@
+package com.revvo.loadtest;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Teste de carga do SSO contra o backend rodando localmente, sem approuter nem BTP.
+ *
+ * O gerador faz o papel do approuter: gera tokens no formato do XSUAA (ou os headers de
+ * identidade) para uma população de usuários e dispara requisições com concorrência fixa
+ * (closed loop: cada thread espera a resposta antes da próxima). Cenários:
+ *
+ * - cold: cada requisição é de um usuário que o backend nunca viu (miss no cache SSO)
+ * - warm: usuários já autenticados, escolhidos ao acaso (hit)
+ * - mixed: warm com uma fração (missRatio) de usuários novos
+ *
+ * Para cada cenário: throughput e latência p50/p99/p99.9/máx.
+ *
+ * <pre>
+ * mvn spring-boot:run                                                  # terminal 1
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="concurrency=64 users=5000"   # terminal 2
+ *
+ * # Com validação de assinatura: verify=true sobe o stub do XSUAA (JWKS) em stubPort (8089)
+ * mvn spring-boot:run -Dspring-boot.run.arguments="--spring.security.sap.sso.jwt.verification.enabled=true \
+ *     --spring.security.sap.sso.jwt.verification.jwks-uri=http://localhost:8089/token_keys"
+ * </pre>
+ *
+ * Com verify=true, o gerador espera o backend aceitar um token assinado pelo stub antes de medir
+ * (o backend recarrega o JWKS ao ver o kid desconhecido, no máximo a cada keys-min-refetch-interval).
+ */
+public final class SsoLoadTest {
+
+    private final LoadTestConfig config;
+    private final XsuaaStub stub;
+    private final HttpClient client;
+    private final Identities identities;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    private SsoLoadTest(LoadTestConfig config, XsuaaStub stub) {
+        this.config = config;
+        this.stub = stub;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(config.getTimeout())
+                .build();
+        this.identities = new Identities(config, stub);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+
+        XsuaaStub stub = null;
+        if (config.isVerify()) {
+            stub = new XsuaaStub(config.getStubPort());
+            System.out.println("Stub do XSUAA: " + stub.jwksUri());
+        }
+        try {
+            new SsoLoadTest(config, stub).run();
+        } finally {
+            if (stub != null) {
+                stub.close();
+            }
+        }
+    }
+
+    private void run() throws Exception {
+        System.out.printf("Alvo: %s%s | modo %s | %d usuários, %d roles, %d conjuntos de roles | concorrência %d%n",
+                config.getBaseUrl(), config.getPath(), config.getMode(), config.getUsers(), config.getRoles(),
+                config.getRoleSets(), config.getConcurrency());
+        checkBackend();
+        if (stub != null) {
+            awaitSignedTokens();
+        }
+
+        // População quente: autenticada uma vez (também aquece o JIT do backend), fora da medição
+        HttpRequest[] warm = identities.requests(runId + "-warm", config.getUsers());
+        execute(warm.length, i -> warm[i]);
+        execute(Math.max(1, config.getRequests() / 10), i -> random(warm));
+
+        List<String> lines = new ArrayList<>();
+        for (String scenario : config.getScenarios()) {
+            Result result;
+            switch (scenario) {
+                case "cold": {
+                    HttpRequest[] cold = identities.requests(runId + "-cold", config.getColdUsers());
+                    result = execute(cold.length, i -> cold[i]);
+                    break;
+                }
+                case "warm":
+                    result = execute(config.getRequests(), i -> random(warm));
+                    break;
+                default: {
+                    HttpRequest[] fresh = identities.requests(runId + "-mixed",
+                            (int) Math.ceil(config.getRequests() * config.getMissRatio()));
+                    AtomicInteger nextFresh = new AtomicInteger();
+                    result = execute(config.getRequests(), i -> {
+                        if (ThreadLocalRandom.current().nextDouble() < config.getMissRatio()) {
+                            int f = nextFresh.getAndIncrement();
+                            if (f < fresh.length) return fresh[f];
+                        }
+                        return random(warm);
+                    });
+                }
+            }
+            lines.add(result.format(scenario));
+        }
+
+        System.out.println();
+        System.out.printf("%-8s %12s %8s %10s %9s %9s %9s %9s%n",
+                "cenário", "requisições", "erros", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "máx ms");
+        lines.forEach(System.out::println);
+    }
+
+    private void checkBackend() throws InterruptedException {
+        HttpRequest health = HttpRequest.newBuilder(config.getBaseUrl().resolve("/actuator/health"))
+                .timeout(config.getTimeout()).build();
+        try {
+            client.send(health, HttpResponse.BodyHandlers.discarding());
+        } catch (ConnectException e) {
+            throw new IllegalStateException("Backend não responde em " + config.getBaseUrl()
+                    + " (suba com mvn spring-boot:run)", e);
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao consultar " + health.uri(), e);
+        }
+    }
+
+    /**
+     * Espera o backend aceitar um token assinado pelo stub (JWKS carregado). Cada tentativa usa um
+     * usuário novo: um token recusado por "kid" desconhecido fica até keys-min-refetch-interval no
+     * cache negativo do backend.
+     */
+    private void awaitSignedTokens() throws IOException, InterruptedException {
+        for (int attempt = 0; attempt < 60; attempt++) {
+            HttpRequest probe = identities.requests(runId + "-probe" + attempt, 1)[0];
+            if (client.send(probe, HttpResponse.BodyHandlers.discarding()).statusCode() / 100 == 2) {
+                return;
+            }
+            Thread.sleep(1000);
+        }
+        throw new IllegalStateException("Backend não aceitou tokens do stub em 60 s: confira jwks-uri=" + stub.jwksUri());
+    }
+
+    /**
+     * Dispara {@code total} requisições com {@code concurrency} threads; a requisição i vem de {@code next}.
+     */
+    private Result execute(int total, IntFunction<HttpRequest> next) throws InterruptedException {
+        AtomicInteger index = new AtomicInteger();
+        LongAdder errors = new LongAdder();
+        List<LatencyRecorder> recorders = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < config.getConcurrency(); t++) {
+            LatencyRecorder recorder = new LatencyRecorder(total / config.getConcurrency() + 1);
+            recorders.add(recorder);
+            threads.add(new Thread(() -> {
+                int i;
+                while ((i = index.getAndIncrement()) < total) {
+                    HttpRequest request = next.apply(i);
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        recorder.record(System.nanoTime() - start);
+                        if (response.statusCode() / 100 != 2) {
+                            errors.increment();
+                        }
+                    } catch (IOException e) {
+                        errors.increment();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }, "loadtest-" + t));
+        }
+
+        long start = System.nanoTime();
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        return new Result(total, errors.sum(), elapsed, LatencyRecorder.merge(recorders));
+    }
+
+    private static HttpRequest random(HttpRequest[] requests) {
+        return requests[ThreadLocalRandom.current().nextInt(requests.length)];
+    }
+
+    private static final class Result {
+        final int requests;
+        final long errors;
+        final long elapsedNanos;
+        final long[] latencies;
+
+        Result(int requests, long errors, long elapsedNanos, long[] latencies) {
+            this.requests = requests;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = latencies;
+        }
+
+        String format(String scenario) {
+            double throughput = requests / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+            return String.format("%-8s %12d %8d %10.0f %9.2f %9.2f %9.2f %9.2f", scenario, requests, errors, throughput,
+                    millis(LatencyRecorder.percentile(latencies, 50)),
+                    millis(LatencyRecorder.percentile(latencies, 99)),
+                    millis(LatencyRecorder.percentile(latencies, 99.9)),
+                    millis(latencies.length > 0 ? latencies[latencies.length - 1] : 0));
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+}
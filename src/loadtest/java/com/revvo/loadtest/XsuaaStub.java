@@ -0,0 +1,61 @@
+package com.revvo.loadtest;
+
+import com.revvo.support.XsuaaTestTokens;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.interfaces.RSAPublicKey;
+import java.util.List;
+
+/**
+ * XSUAA local, só com o que o backend consulta: GET /token_keys (JWKS com a chave que assina
+ * os tokens do teste de carga). Com ele o backend roda com a validação de assinatura ligada,
+ * sem BTP:
+ *
+ * <pre>
+ * --spring.security.sap.sso.jwt.verification.enabled=true
+ * --spring.security.sap.sso.jwt.verification.jwks-uri=http://localhost:8089/token_keys
+ * </pre>
+ */
+final class XsuaaStub implements AutoCloseable {
+
+    static final String KID = "loadtest-key";
+
+    private final KeyPair keyPair = XsuaaTestTokens.rsaKeyPair();
+    private final HttpServer server;
+
+    XsuaaStub(int port) throws IOException {
+        byte[] jwks = XsuaaTestTokens.jwks(KID, (RSAPublicKey) keyPair.getPublic()).getBytes(StandardCharsets.UTF_8);
+
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/token_keys", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, jwks.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(jwks);
+            }
+        });
+        server.start();
+    }
+
+    String jwksUri() {
+        return "http://localhost:" + server.getAddress().getPort() + "/token_keys";
+    }
+
+    /**
+     * Token RS256 no formato do XSUAA, válido por uma hora.
+     */
+    String signedToken(String username, List<String> roleCollections) {
+        long exp = System.currentTimeMillis() / 1000 + 3600;
+        return XsuaaTestTokens.signedToken(username, roleCollections, exp, KID, keyPair.getPrivate());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,252 @@
+package com.revvo.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Cache em memória limitado por tamanho, com expiração por entrada.
+ *
+ * - Expiração baseada em {@link System#nanoTime()} (monotônico, sem alocação por leitura)
+ * - Ao ultrapassar o tamanho máximo, remove primeiro as entradas expiradas e depois
+ *   as menos acessadas recentemente (LRU aproximado), em lote, para amortizar o custo
+ * - Leituras não bloqueiam: apenas uma thread por vez executa a evicção
+ *
+ * Contadores de hit/miss/put/evicção ficam disponíveis para publicação via
+ * {@link ExpiringCacheMetrics}.
+ */
+public class ExpiringCache<K, V> {
+
+    private final ConcurrentHashMap<K, Entry<V>> map = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final int maxSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ExpiringCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize deve ser positivo: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Retorna o valor associado à chave, ou null se não existir ou já tiver expirado.
+     */
+    public V get(K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        long now = System.nanoTime();
+        if (entry.isExpired(now)) {
+            if (map.remove(key, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+
+        entry.lastAccessNanos = now;
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * Como {@link #get(Object)}, mas sem contar hit/miss nem atualizar o último acesso.
+     */
+    public V peek(K key) {
+        Entry<V> entry = map.get(key);
+        return entry != null && !entry.isExpired(System.nanoTime()) ? entry.value : null;
+    }
+
+    /**
+     * Tempo restante (em nanossegundos) até a entrada expirar, ou -1 se não existir ou já tiver expirado.
+     */
+    public long remainingNanos(K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null) {
+            return -1;
+        }
+        long remaining = entry.expiresAtNanos - System.nanoTime();
+        return remaining > 0 ? remaining : -1;
+    }
+
+    /**
+     * Armazena o valor sem expiração (sai apenas por evicção de tamanho).
+     */
+    public void put(K key, V value) {
+        // expiresAt = now + MAX_VALUE dá a volta, mas isExpired compara por diferença,
+        // que só ficaria >= 0 depois de ~292 anos
+        put(key, value, Long.MAX_VALUE);
+    }
+
+    /**
+     * Armazena o valor com o tempo de vida informado (em nanossegundos).
+     */
+    public void put(K key, V value, long ttlNanos) {
+        long now = System.nanoTime();
+        map.put(key, new Entry<>(value, now, now + ttlNanos));
+        puts.increment();
+
+        if (map.size() > maxSize) {
+            evict();
+        }
+    }
+
+    public V remove(K key) {
+        Entry<V> entry = map.remove(key);
+        return entry != null ? entry.value : null;
+    }
+
+    /**
+     * Remove as entradas cujas chaves satisfazem o predicado. Retorna quantas foram removidas.
+     */
+    public int removeIf(Predicate<? super K> predicate) {
+        int removed = 0;
+        for (K key : map.keySet()) {
+            if (predicate.test(key) && map.remove(key) != null) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public void clear() {
+        map.clear();
+    }
+
+    /**
+     * Remove todas as entradas expiradas. Retorna quantas foram removidas.
+     */
+    public int cleanUp() {
+        long now = System.nanoTime();
+        int removed = 0;
+        for (Map.Entry<K, Entry<V>> e : map.entrySet()) {
+            if (e.getValue().isExpired(now) && map.remove(e.getKey(), e.getValue())) {
+                removed++;
+            }
+        }
+        evictions.add(removed);
+        return removed;
+    }
+
+    /**
+     * Percorre as entradas ainda válidas, com o tempo restante de cada uma (em nanossegundos).
+     * Visão fracamente consistente: entradas alteradas durante a iteração podem ou não aparecer.
+     */
+    public void forEach(Visitor<? super K, ? super V> visitor) {
+        long now = System.nanoTime();
+        for (Map.Entry<K, Entry<V>> e : map.entrySet()) {
+            long remaining = e.getValue().expiresAtNanos - now;
+            if (remaining > 0) {
+                visitor.visit(e.getKey(), e.getValue().value, remaining);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Visitor<K, V> {
+        void visit(K key, V value, long remainingNanos);
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long putCount() {
+        return puts.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private void evict() {
+        // Só uma thread faz a evicção; as demais seguem sem esperar
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            if (map.size() <= maxSize) {
+                return;
+            }
+
+            cleanUp();
+
+            // Remove em lote ~10% abaixo do limite para não reordenar a cada put
+            int target = maxSize - Math.max(1, maxSize / 10);
+            int excess = map.size() - target;
+            if (excess <= 0) {
+                return;
+            }
+
+            // Fotografa o último acesso: o valor muda durante a ordenação em leituras concorrentes
+            List<Candidate<K, V>> candidates = new ArrayList<>(map.size());
+            for (Map.Entry<K, Entry<V>> e : map.entrySet()) {
+                candidates.add(new Candidate<>(e.getKey(), e.getValue()));
+            }
+            candidates.sort(Comparator.comparingLong(c -> c.lastAccessNanos));
+
+            for (int i = 0; i < candidates.size() && excess > 0; i++) {
+                Candidate<K, V> candidate = candidates.get(i);
+                if (map.remove(candidate.key, candidate.entry)) {
+                    evictions.increment();
+                    excess--;
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static final class Candidate<K, V> {
+        private final K key;
+        private final Entry<V> entry;
+        private final long lastAccessNanos;
+
+        Candidate(K key, Entry<V> entry) {
+            this.key = key;
+            this.entry = entry;
+            this.lastAccessNanos = entry.lastAccessNanos;
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAtNanos;
+        private volatile long lastAccessNanos;
+
+        Entry(V value, long now, long expiresAtNanos) {
+            this.value = value;
+            this.lastAccessNanos = now;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
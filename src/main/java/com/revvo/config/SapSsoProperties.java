@@ -0,0 +1,178 @@
+package com.revvo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configurações do SSO SAP (prefixo spring.security.sap.sso no application.yaml).
+ */
+@Data
+@ConfigurationProperties(prefix = "spring.security.sap.sso")
+public class SapSsoProperties {
+
+    private boolean enabled = true;
+
+    // Pode ser longo: a chave do cache inclui a impressão dos roles, então mudanças de roles não esperam o TTL
+    private long cacheTtlMinutes = 60;
+
+    // Quantidade máxima de usuários no SapSsoCache (evicção LRU acima disso)
+    private int cacheMaxSize = 50_000;
+
+    // Intervalo da varredura em background que remove entradas expiradas
+    private Duration cacheSweepInterval = Duration.ofMinutes(1);
+
+    private final CacheRefreshAhead cacheRefreshAhead = new CacheRefreshAhead();
+
+    private final CacheSnapshot cacheSnapshot = new CacheSnapshot();
+
+    private final Audit audit = new Audit();
+
+    private final Metrics metrics = new Metrics();
+
+    private final Jwt jwt = new Jwt();
+
+    /**
+     * Regras de mapeamento SAP → Revvo, avaliadas todas contra cada role SAP.
+     * Sem configuração, vale o mapeamento padrão (RevvoAdmin, RevvoUser, Admin*).
+     */
+    private List<RoleMapping> roleMappings = defaultRoleMappings();
+
+    // Role Revvo atribuído quando nenhuma regra casa
+    private String defaultRole = "USER";
+
+    // Quantidade máxima de conjuntos distintos de roles SAP com mapeamento memorizado
+    private int roleSetCacheMaxSize = 1_000;
+
+    @Data
+    public static class CacheRefreshAhead {
+
+        private boolean enabled = true;
+
+        // Uma leitura a menos disso da expiração dispara o recálculo em background
+        private Duration window = Duration.ofMinutes(2);
+
+        // Threads do executor de recálculo
+        private int threads = 2;
+
+        // Recálculos aguardando thread; acima disso são descartados (a entrada expira normalmente)
+        private int queueCapacity = 1_000;
+    }
+
+    @Data
+    public static class CacheSnapshot {
+
+        // Grava o SapSsoCache no shutdown e recarrega no startup (aquece o cache após um redeploy)
+        private boolean enabled = false;
+
+        // Arquivo local do snapshot
+        private String path = "sap-sso-cache.snapshot";
+    }
+
+    @Data
+    public static class Audit {
+
+        // Eventos de autenticação (usuário, origem, roles, hit/miss, latência) gravados em background
+        private boolean enabled = false;
+
+        // Arquivo local, só com append
+        private String path = "sap-sso-audit.log";
+
+        // Capacidade da fila entre as requisições e o gravador; cheia = evento descartado (e contado)
+        private int bufferSize = 8192;
+
+        // Máximo de eventos por escrita no arquivo
+        private int batchSize = 512;
+
+        // Intervalo entre drenagens quando a fila está vazia
+        private Duration flushInterval = Duration.ofMillis(200);
+    }
+
+    @Data
+    public static class Metrics {
+
+        // Timers por etapa da autenticação, origem do usuário e quantidade de roles (actuator / Prometheus)
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class Jwt {
+
+        // Quantidade máxima de tokens com claims decodificadas em cache
+        private int claimsCacheMaxSize = 10_000;
+
+        // Tempo máximo em cache, mesmo que o "exp" do token seja maior (ou ausente)
+        private Duration claimsCacheMaxTtl = Duration.ofHours(1);
+
+        // Tokens que não são JWT válidos, lembrados por digest para não serem decodificados de novo
+        private int rejectedCacheMaxSize = 10_000;
+
+        private Duration rejectedCacheTtl = Duration.ofMinutes(5);
+
+        private final Verification verification = new Verification();
+    }
+
+    @Data
+    public static class Verification {
+
+        // Valida assinatura (RS256), "exp" e "aud" dos tokens. Desligado: o payload é aceito como veio
+        private boolean enabled = false;
+
+        // Endpoint JWKS do XSUAA (https://<subdomínio>.authentication.<região>.hana.ondemand.com/token_keys),
+        // ou file:/classpath: com o mesmo JSON (testes, ambientes sem acesso ao XSUAA)
+        private String jwksUri;
+
+        // Pelo menos um destes valores precisa estar no "aud" do token (vazio = não valida "aud")
+        private List<String> audiences = new ArrayList<>();
+
+        // Tolerância de relógio na validação do "exp"
+        private Duration clockSkew = Duration.ofSeconds(60);
+
+        // Intervalo de recarga das chaves em background
+        private Duration keysRefreshInterval = Duration.ofHours(1);
+
+        // Intervalo mínimo entre recargas disparadas por um "kid" desconhecido (rotação de chaves)
+        private Duration keysMinRefetchInterval = Duration.ofSeconds(30);
+
+        // Timeout de conexão e de leitura ao buscar o JWKS por http(s)
+        private Duration keysFetchTimeout = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class RoleMapping {
+
+        private MatchType match = MatchType.EXACT;
+
+        // Nome exato, prefixo, wildcard (* e ?) ou regex, conforme "match"
+        private String pattern;
+
+        private boolean ignoreCase;
+
+        // Role Revvo atribuído quando a regra casa
+        private String role;
+
+        public static RoleMapping of(MatchType match, String pattern, boolean ignoreCase, String role) {
+            RoleMapping mapping = new RoleMapping();
+            mapping.setMatch(match);
+            mapping.setPattern(pattern);
+            mapping.setIgnoreCase(ignoreCase);
+            mapping.setRole(role);
+            return mapping;
+        }
+    }
+
+    public enum MatchType {
+        EXACT, PREFIX, WILDCARD, REGEX
+    }
+
+    private static List<RoleMapping> defaultRoleMappings() {
+        List<RoleMapping> mappings = new ArrayList<>();
+        mappings.add(RoleMapping.of(MatchType.EXACT, "RevvoAdmin", true, "ADMIN"));
+        mappings.add(RoleMapping.of(MatchType.EXACT, "RevvoUser", true, "USER"));
+        mappings.add(RoleMapping.of(MatchType.PREFIX, "Admin", false, "ADMIN"));
+        return mappings;
+    }
+}
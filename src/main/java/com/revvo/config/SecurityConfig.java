@@ -1,9 +1,12 @@
 package com.revvo.config;
 
+import com.revvo.security.SapMethodSecurityExpressionHandler;
 import com.revvo.security.SapSsoFilter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionHandler;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -21,11 +24,21 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 @Configuration
 @EnableWebSecurity
 @EnableGlobalMethodSecurity(prePostEnabled = true)
+@EnableConfigurationProperties(SapSsoProperties.class)
 @RequiredArgsConstructor
 public class SecurityConfig {
 
     private final SapSsoFilter sapSsoFilter;
 
+    /**
+     * Expressões de @PreAuthorize com hasRole/hasAuthority por bitset para usuários SAP.
+     * Estático para não inicializar esta configuração (e o filtro) junto com a de métodos.
+     */
+    @Bean
+    public static MethodSecurityExpressionHandler methodSecurityExpressionHandler() {
+        return new SapMethodSecurityExpressionHandler();
+    }
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
@@ -38,6 +51,9 @@ public class SecurityConfig {
             .authorizeRequests()
                 // Rotas públicas
                 .antMatchers("/", "/actuator/health", "/error").permitAll()
+                // Demais endpoints do actuator (prometheus, metrics, sapssocache...): só ADMIN.
+                // O scrape do Prometheus usa um usuário técnico com role collection mapeada para ADMIN
+                .antMatchers("/actuator/**").hasRole("ADMIN")
                 .antMatchers("/public/**").permitAll()
                 .antMatchers("/sap/detect-environment").permitAll() // Público para detecção de ambiente
                 .antMatchers("/sap/profile").permitAll() // Público para testes (remover em produção)
@@ -0,0 +1,122 @@
+package com.revvo.controller;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Respostas de GET /sap/detect-environment a partir de templates de bytes pré-montados.
+ *
+ * Mesmos bytes que o HashMap serializado pelo Jackson produzia ("authenticated", "isFiori" e,
+ * se detectado, "username", nessa ordem e com os mesmos escapes), sem Map nem serialização por chamada:
+ * a resposta anônima é um array constante, e a com usuário é prefixo + username escapado +
+ * sufixo, escrito num buffer reutilizável da thread.
+ */
+final class DetectEnvironmentResponse {
+
+    private static final byte[] NOT_DETECTED =
+            "{\"authenticated\":false,\"isFiori\":false}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DETECTED_PREFIX =
+            "{\"authenticated\":true,\"isFiori\":true,\"username\":\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DETECTED_SUFFIX = "\"}".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    // Escapes curtos do Jackson para controles (\b \t \n \f \r); 0 = \\u00XX
+    private static final byte[] SHORT_ESCAPES = new byte[0x20];
+
+    static {
+        SHORT_ESCAPES['\b'] = 'b';
+        SHORT_ESCAPES['\t'] = 't';
+        SHORT_ESCAPES['\n'] = 'n';
+        SHORT_ESCAPES['\f'] = 'f';
+        SHORT_ESCAPES['\r'] = 'r';
+    }
+
+    private static final String CONTENT_TYPE = "application/json";
+
+    // Buffers maiores que isso não ficam retidos na thread
+    private static final int MAX_RETAINED_BUFFER = 4 * 1024;
+
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[512]);
+
+    private DetectEnvironmentResponse() {
+    }
+
+    static void write(HttpServletResponse response, String username) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(CONTENT_TYPE);
+
+        if (username == null) {
+            response.setContentLength(NOT_DETECTED.length);
+            response.getOutputStream().write(NOT_DETECTED);
+            return;
+        }
+
+        byte[] buffer = buffer(DETECTED_PREFIX.length + username.length() * 6 + DETECTED_SUFFIX.length);
+        int n = copy(DETECTED_PREFIX, buffer, 0);
+        n = escape(username, buffer, n);
+        n = copy(DETECTED_SUFFIX, buffer, n);
+
+        response.setContentLength(n);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(buffer, 0, n);
+    }
+
+    private static int copy(byte[] src, byte[] dst, int offset) {
+        System.arraycopy(src, 0, dst, offset, src.length);
+        return offset + src.length;
+    }
+
+    /**
+     * Texto como string JSON (sem as aspas), em UTF-8, com os escapes do Jackson: \\" e \\\\,
+     * \\b \\t \\n \\f \\r, os demais controles como \\u00XX e surrogates (pares ou
+     * isolados) como \\uXXXX. Até 6 bytes por char.
+     */
+    static int escape(String s, byte[] out, int n) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                out[n++] = '\\';
+                out[n++] = (byte) c;
+            } else if (c < 0x20 && SHORT_ESCAPES[c] != 0) {
+                out[n++] = '\\';
+                out[n++] = SHORT_ESCAPES[c];
+            } else if (c < 0x20 || Character.isSurrogate(c)) {
+                n = unicodeEscape(c, out, n);
+            } else if (c < 0x80) {
+                out[n++] = (byte) c;
+            } else if (c < 0x800) {
+                out[n++] = (byte) (0xC0 | (c >> 6));
+                out[n++] = (byte) (0x80 | (c & 0x3F));
+            } else {
+                out[n++] = (byte) (0xE0 | (c >> 12));
+                out[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[n++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return n;
+    }
+
+    private static int unicodeEscape(char c, byte[] out, int n) {
+        out[n++] = '\\';
+        out[n++] = 'u';
+        out[n++] = HEX[c >> 12];
+        out[n++] = HEX[(c >> 8) & 0xF];
+        out[n++] = HEX[(c >> 4) & 0xF];
+        out[n++] = HEX[c & 0xF];
+        return n;
+    }
+
+    private static byte[] buffer(int size) {
+        byte[] buffer = BUFFER.get();
+        if (buffer.length >= size) return buffer;
+
+        buffer = new byte[Math.max(size, buffer.length * 2)];
+        if (buffer.length <= MAX_RETAINED_BUFFER) {
+            BUFFER.set(buffer);
+        }
+        return buffer;
+    }
+}
@@ -1,15 +1,23 @@
 package com.revvo.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.revvo.domain.UserPermissions;
 import com.revvo.sap.SapContextExtractor;
+import com.revvo.sap.SapIdentityContext;
+import com.revvo.security.SapAuthenticationToken;
+import com.revvo.security.SapProfileJson;
 import com.revvo.service.PermissionService;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.util.*;
 
 @Slf4j
@@ -20,6 +28,7 @@ public class SapController {
 
     private final SapContextExtractor sapContextExtractor;
     private final PermissionService permissionService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Endpoint para detectar se a aplicação está rodando dentro do ambiente FIORI.
@@ -28,35 +37,51 @@ public class SapController {
      * Retorna:
      * - isFiori: true se detectar headers SAP
      * - username: nome do usuário se detectado
+     *
+     * Caminho leve (chamado antes de tudo pelo launchpad): o SapSsoFilter não roda nesta rota,
+     * a detecção só lê os headers de identidade e, no JWT, as claims de username, e a resposta
+     * sai de templates de bytes ({@link DetectEnvironmentResponse}).
      */
     @GetMapping("/detect-environment")
-    public ResponseEntity<Map<String, Object>> detectEnvironment(HttpServletRequest request) {
-        String username = sapContextExtractor.extractUsername(request);
-        boolean isFiori = username != null && !username.isBlank();
-
-        Map<String, Object> response = new HashMap<>();
-        response.put("isFiori", isFiori);
-        response.put("authenticated", isFiori);
+    public void detectEnvironment(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String username = sapContextExtractor.detectUsername(request);
 
-        if (isFiori) {
-            response.put("username", username);
+        if (log.isDebugEnabled()) {
+            log.debug("Detecção de ambiente FIORI: {}", username != null);
         }
-
-        log.debug("Detecção de ambiente FIORI: {}", isFiori);
-        return ResponseEntity.ok(response);
+        DetectEnvironmentResponse.write(response, username);
     }
 
     /**
      * Endpoint que retorna o perfil completo do usuário autenticado via SAP SSO.
      * Inclui: username, nome, email, roles SAP, roles Revvo, origem da autenticação.
+     *
+     * Usuário autenticado pelo SapSsoFilter: o perfil vem do SapSsoCache, com o JSON já
+     * serializado e um ETag forte; If-None-Match com o mesmo ETag retorna 304 sem corpo.
      */
     @GetMapping("/profile")
-    public ResponseEntity<?> getProfile(HttpServletRequest request, Authentication authentication) {
-        // Extrair informações completas do contexto SAP (dos headers)
-        String username = sapContextExtractor.extractUsername(request);
-        String name = sapContextExtractor.extractUserName(request);
-        String email = sapContextExtractor.extractUserEmail(request);
-        List<String> sapRoles = sapContextExtractor.extractSapRoles(request);
+    public ResponseEntity<?> getProfile(HttpServletRequest request, WebRequest webRequest,
+                                        Authentication authentication) {
+        SapIdentityContext identity = sapContextExtractor.resolve(request);
+
+        if (authentication instanceof SapAuthenticationToken) {
+            SapProfileJson profile = ((SapAuthenticationToken) authentication).getPrincipal()
+                    .getProfileJson(identity.getRoleFingerprint(), objectMapper);
+
+            if (webRequest.checkNotModified(profile.getEtag())) {
+                return null; // 304, com ETag e sem corpo
+            }
+            return ResponseEntity.ok()
+                    .eTag(profile.getEtag())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(profile.getJson());
+        }
+
+        // Sem autenticação SSO nesta requisição: extrai do contexto SAP (dos headers)
+        String username = identity.getUsername();
+        String name = identity.getName();
+        String email = identity.getEmail();
+        List<String> sapRoles = identity.getSapRoles();
 
         // Se não encontrou nenhum dado do SAP, retorna erro
         if (username == null || username.isBlank()) {
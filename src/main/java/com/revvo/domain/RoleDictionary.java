@@ -0,0 +1,129 @@
+package com.revvo.domain;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dicionário global de nomes de roles: cada nome recebe um id inteiro e o texto fica guardado
+ * uma única vez, não importa quantos usuários tenham o role.
+ *
+ * Nomes da configuração são registrados na inicialização ({@link #register(String)}): roles
+ * Revvo das regras de mapeamento e o role padrão, roles SAP das regras exact e as authorities
+ * correspondentes (ROLE_*, SAP_*). Só esses são vistos por {@link #findRegistered(String)}.
+ *
+ * Roles SAP vindos da requisição (headers, JWT) raramente estão na configuração; eles entram
+ * como observados ({@link #intern(String)}), uma vez por conjunto de roles distinto, até um
+ * limite próprio. Acima do limite, quem chamou guarda o texto diretamente (ver {@link RoleSet}).
+ * Nomes observados nunca viram authorities conhecidas: o bitset de
+ * {@link com.revvo.security.AuthorityBits} não cresce com valores do cliente.
+ *
+ * Os ids são estáveis durante a vida da JVM (nunca são reaproveitados). O tamanho máximo é
+ * só uma proteção: acima dele, {@link #register(String)} devolve -1.
+ *
+ * Thread-safe; leituras não bloqueiam.
+ */
+public final class RoleDictionary {
+
+    private static final int DEFAULT_MAX_SIZE = 4_096;
+    private static final int DEFAULT_MAX_OBSERVED = 1_024;
+
+    private static final RoleDictionary GLOBAL = new RoleDictionary(DEFAULT_MAX_SIZE, DEFAULT_MAX_OBSERVED);
+
+    // Nomes da configuração e nomes observados nas requisições, com ids no mesmo espaço
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> observed = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final int maxObserved;
+
+    // names[id]; o array só cresce (cópia) e é publicado via volatile
+    private volatile String[] names = new String[64];
+    private int size;
+
+    RoleDictionary(int maxSize) {
+        this(maxSize, 0);
+    }
+
+    RoleDictionary(int maxSize, int maxObserved) {
+        this.maxSize = maxSize;
+        this.maxObserved = maxObserved;
+    }
+
+    public static RoleDictionary global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Id do role, registrando-o se for novo. -1 se o dicionário estiver cheio.
+     * Só para nomes da configuração, nunca para valores da requisição.
+     */
+    public int register(String role) {
+        Integer id = ids.get(role);
+        return id != null ? id : add(role, false);
+    }
+
+    /**
+     * Id do role, guardando-o como observado se for novo. -1 se o limite de roles observados
+     * (ou o dicionário) estiver cheio. Para roles SAP da requisição.
+     */
+    public int intern(String role) {
+        int id = find(role);
+        return id >= 0 ? id : add(role, true);
+    }
+
+    /**
+     * Id do role, registrado ou observado, sem guardar. -1 se o role nunca foi visto.
+     */
+    public int find(String role) {
+        Integer id = ids.get(role);
+        if (id == null) {
+            id = observed.get(role);
+        }
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Id do role só se ele veio da configuração. -1 para nomes apenas observados.
+     */
+    public int findRegistered(String role) {
+        Integer id = ids.get(role);
+        return id != null ? id : -1;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    public int size() {
+        return ids.size() + observed.size();
+    }
+
+    private synchronized int add(String role, boolean fromRequest) {
+        Integer existing = ids.get(role);
+        if (existing != null) {
+            return existing;
+        }
+        existing = observed.get(role);
+        if (existing != null) {
+            if (!fromRequest) {
+                // Observado antes de registrado: passa a ser da configuração com o mesmo id
+                ids.put(role, existing);
+                observed.remove(role);
+            }
+            return existing;
+        }
+        if (size == maxSize || (fromRequest && observed.size() == maxObserved)) {
+            return -1;
+        }
+
+        String[] current = names;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, Math.min(maxSize, current.length * 2));
+        }
+        current[size] = role;
+        names = current;
+
+        // Publicado depois do nome: quem obtém o id pelo mapa já enxerga names[id]
+        (fromRequest ? observed : ids).put(role, size);
+        return size++;
+    }
+}
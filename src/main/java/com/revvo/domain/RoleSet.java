@@ -0,0 +1,136 @@
+package com.revvo.domain;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Lista imutável de roles guardada como ids do {@link RoleDictionary} ({@code int[]}),
+ * na ordem em que foi criada.
+ *
+ * {@link #names()} é uma visão sobre o dicionário, sem cópia do texto: um usuário em cache
+ * custa 4 bytes por role, e usuários com o mesmo conjunto de roles compartilham a mesma
+ * instância (ver {@link com.revvo.service.RoleSetMapping}).
+ *
+ * Se algum role não estiver no dicionário ou for null, a lista guarda os nomes diretamente (os
+ * conhecidos ainda com o texto do dicionário). {@link #of} nunca guarda nomes novos no dicionário;
+ * {@link #intern} guarda os roles SAP observados, até o limite do dicionário.
+ */
+public final class RoleSet {
+
+    public static final RoleSet EMPTY = new RoleSet(new int[0], null);
+
+    // ids no dicionário global, ou null quando os nomes estão em fallback
+    private final int[] ids;
+    private final String[] fallback;
+
+    private RoleSet(int[] ids, String[] fallback) {
+        this.ids = ids;
+        this.fallback = fallback;
+    }
+
+    public static RoleSet of(Collection<String> roles) {
+        return of(roles, false);
+    }
+
+    /**
+     * Como {@link #of}, mas guarda no dicionário os roles ainda desconhecidos
+     * ({@link RoleDictionary#intern(String)}). Para os roles SAP de um conjunto novo.
+     */
+    public static RoleSet intern(Collection<String> roles) {
+        return of(roles, true);
+    }
+
+    private static RoleSet of(Collection<String> roles, boolean intern) {
+        if (roles.isEmpty()) {
+            return EMPTY;
+        }
+
+        RoleDictionary dictionary = RoleDictionary.global();
+        int[] ids = new int[roles.size()];
+        int i = 0;
+        for (String role : roles) {
+            int id = role == null ? -1 : intern ? dictionary.intern(role) : dictionary.find(role);
+            if (id < 0) {
+                return new RoleSet(null, names(roles, dictionary));
+            }
+            ids[i++] = id;
+        }
+        return new RoleSet(ids, null);
+    }
+
+    // Fallback: os roles conhecidos usam o texto do dicionário, só os desconhecidos ficam como vieram
+    private static String[] names(Collection<String> roles, RoleDictionary dictionary) {
+        String[] names = new String[roles.size()];
+        int i = 0;
+        for (String role : roles) {
+            int id = role != null ? dictionary.find(role) : -1;
+            names[i++] = id >= 0 ? dictionary.name(id) : role;
+        }
+        return names;
+    }
+
+    public int size() {
+        return ids != null ? ids.length : fallback.length;
+    }
+
+    public String get(int index) {
+        return ids != null ? RoleDictionary.global().name(ids[index]) : fallback[index];
+    }
+
+    public boolean contains(String role) {
+        if (ids == null) {
+            return Arrays.asList(fallback).contains(role);
+        }
+        int id = role != null ? RoleDictionary.global().find(role) : -1;
+        if (id < 0) {
+            return false;
+        }
+        for (int candidate : ids) {
+            if (candidate == id) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Visão imutável dos nomes (sem cópia; cada chamada cria só o objeto da visão).
+     */
+    public List<String> names() {
+        return new Names();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RoleSet)) return false;
+        RoleSet other = (RoleSet) o;
+        if (ids != null && other.ids != null) {
+            return Arrays.equals(ids, other.ids);
+        }
+        return names().equals(other.names());
+    }
+
+    @Override
+    public int hashCode() {
+        return names().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return names().toString();
+    }
+
+    private final class Names extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            return RoleSet.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return RoleSet.this.size();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.revvo.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import lombok.Builder;
 import lombok.Data;
 
@@ -7,13 +9,46 @@ import java.util.List;
 
 @Data
 @Builder
+@JsonPropertyOrder({"username", "name", "email", "source", "sapRoles", "revvoRoles"})
 public class UserPermissions {
 
     private String username;
     private String name;
     private String email;
     private String source; // "sap-sso" ou "local"
-    private List<String> sapRoles; // roles originais do SAP
-    private List<String> revvoRoles; // roles mapeados para o sistema Revvo
 
+    // Roles como ids do RoleDictionary (compartilhados entre usuários); as listas são visões
+    @JsonIgnore
+    private RoleSet sapRoleSet; // roles originais do SAP
+    @JsonIgnore
+    private RoleSet revvoRoleSet; // roles mapeados para o sistema Revvo
+
+    public List<String> getSapRoles() {
+        return sapRoleSet != null ? sapRoleSet.names() : null;
+    }
+
+    public void setSapRoles(List<String> sapRoles) {
+        this.sapRoleSet = sapRoles != null ? RoleSet.of(sapRoles) : null;
+    }
+
+    public List<String> getRevvoRoles() {
+        return revvoRoleSet != null ? revvoRoleSet.names() : null;
+    }
+
+    public void setRevvoRoles(List<String> revvoRoles) {
+        this.revvoRoleSet = revvoRoles != null ? RoleSet.of(revvoRoles) : null;
+    }
+
+    public static class UserPermissionsBuilder {
+
+        public UserPermissionsBuilder sapRoles(List<String> sapRoles) {
+            this.sapRoleSet = sapRoles != null ? RoleSet.of(sapRoles) : null;
+            return this;
+        }
+
+        public UserPermissionsBuilder revvoRoles(List<String> revvoRoles) {
+            this.revvoRoleSet = revvoRoles != null ? RoleSet.of(revvoRoles) : null;
+            return this;
+        }
+    }
 }
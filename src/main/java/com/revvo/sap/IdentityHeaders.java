@@ -0,0 +1,183 @@
+package com.revvo.sap;
+
+import javax.servlet.http.HttpServletRequest;
+
+import java.util.Enumeration;
+
+/**
+ * Plano estático de resolução dos headers de identidade SAP.
+ *
+ * Todos os headers conhecidos (usuário, nome, email, roles e token) ficam numa tabela
+ * pré-montada, indexada por hash sem distinção de maiúsculas. Uma única passada por
+ * {@link HttpServletRequest#getHeaderNames()} preenche todos os atributos de uma vez,
+ * respeitando a prioridade de cada header dentro do seu atributo, e {@code getHeader}
+ * só é chamado para os headers que realmente vieram na requisição.
+ *
+ * Como a busca de headers do servlet já é case-insensitive, não há variantes
+ * maiúsculas/minúsculas duplicadas na tabela.
+ */
+final class IdentityHeaders {
+
+    static final int USERNAME = 0;
+    static final int NAME = 1;
+    static final int EMAIL = 2;
+    static final int ROLES = 3;
+    static final int TOKEN = 4;
+
+    static final int ATTRIBUTE_COUNT = 5;
+
+    private static final String BEARER = "bearer ";
+
+    /**
+     * Resultado compartilhado de {@link #scan(HttpServletRequest)} quando a requisição não traz
+     * nenhum header de identidade (tráfego anônimo). Somente leitura.
+     */
+    static final String[] NONE = new String[ATTRIBUTE_COUNT];
+
+    // Ordem dentro de cada atributo = prioridade (menor vence)
+    private static final Header[] HEADERS = {
+            new Header("X-SAP-USER", USERNAME, 0),
+            new Header("X-Authenticated-User", USERNAME, 1),
+            new Header("X-User", USERNAME, 2),
+            new Header("X-Forwarded-User", USERNAME, 3),
+
+            new Header("X-User-Name", NAME, 0),
+            new Header("X-SAP-USER-NAME", NAME, 1),
+
+            new Header("X-User-Email", EMAIL, 0),
+            new Header("X-SAP-USER-EMAIL", EMAIL, 1),
+
+            new Header("X-SAP-ROLES", ROLES, 0),
+            new Header("X-SAP-GROUPS", ROLES, 1),
+            new Header("X-User-Roles", ROLES, 2),
+            new Header("X-Groups", ROLES, 3),
+
+            // Authorization só vale com "Bearer <jwt>"
+            new Header("Authorization", TOKEN, 0),
+            new Header("X-Forwarded-Access-Token", TOKEN, 1),
+            new Header("X-JWT-Assertion", TOKEN, 2)
+    };
+
+    // Tabela de endereçamento aberto (potência de 2, bem maior que HEADERS)
+    private static final Header[] TABLE = new Header[64];
+
+    // Bit n ligado = existe header conhecido com n caracteres (descarta a maioria dos headers sem hash)
+    private static final long NAME_LENGTHS;
+
+    static {
+        long lengths = 0;
+        for (Header h : HEADERS) {
+            lengths |= 1L << h.name.length();
+        }
+        NAME_LENGTHS = lengths;
+
+        for (Header h : HEADERS) {
+            int i = hash(h.name) & (TABLE.length - 1);
+            while (TABLE[i] != null) {
+                i = (i + 1) & (TABLE.length - 1);
+            }
+            TABLE[i] = h;
+        }
+    }
+
+    private IdentityHeaders() {
+    }
+
+    /**
+     * Lê todos os headers de identidade da requisição numa única passada.
+     * Retorna um array indexado pelo atributo (USERNAME, NAME, ...), com o valor
+     * já sem espaços nas pontas, ou null quando o atributo não veio.
+     * Sem nenhum header de identidade, retorna {@link #NONE} (sem alocar).
+     */
+    static String[] scan(HttpServletRequest request) {
+        String[] values = null;
+
+        Enumeration<String> names = request.getHeaderNames();
+        if (names == null) {
+            // Container não permite listar headers: consulta cada header do plano
+            for (Header h : HEADERS) {
+                String value = request.getHeader(h.name);
+                if (value != null) {
+                    if (values == null) values = new String[ATTRIBUTE_COUNT];
+                    offer(values, h, value);
+                }
+            }
+            return values != null ? values : NONE;
+        }
+
+        // Prioridade do valor atual de cada atributo, 3 bits por atributo (7 = vazio)
+        int priorities = 0x7FFF;
+
+        while (names.hasMoreElements()) {
+            Header h = find(names.nextElement());
+            if (h == null || h.priority >= priorityOf(priorities, h.attribute)) {
+                continue;
+            }
+
+            if (values == null) values = new String[ATTRIBUTE_COUNT];
+            if (offer(values, h, request.getHeader(h.name))) {
+                priorities = (priorities & ~(7 << (h.attribute * 3))) | (h.priority << (h.attribute * 3));
+            }
+        }
+
+        return values != null ? values : NONE;
+    }
+
+    static Header find(String name) {
+        if (name == null || name.length() > 63 || (NAME_LENGTHS & (1L << name.length())) == 0) return null;
+
+        int i = hash(name) & (TABLE.length - 1);
+        Header h;
+        while ((h = TABLE[i]) != null) {
+            if (h.name.length() == name.length() && h.name.regionMatches(true, 0, name, 0, name.length())) {
+                return h;
+            }
+            i = (i + 1) & (TABLE.length - 1);
+        }
+        return null;
+    }
+
+    private static boolean offer(String[] values, Header h, String value) {
+        if (value == null || value.isBlank()) {
+            return false;
+        }
+
+        if (h.attribute == TOKEN && h.priority == 0) {
+            if (!value.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+                return false;
+            }
+            values[TOKEN] = value.substring(BEARER.length()).trim();
+            return true;
+        }
+
+        values[h.attribute] = value.trim();
+        return true;
+    }
+
+    private static int priorityOf(int priorities, int attribute) {
+        return (priorities >>> (attribute * 3)) & 7;
+    }
+
+    // Hash sem distinção de maiúsculas (headers são ASCII), sem alocar
+    private static int hash(String s) {
+        int h = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+            h = 31 * h + c;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    static final class Header {
+        final String name;
+        final int attribute;
+        final int priority;
+
+        Header(String name, int attribute, int priority) {
+            this.name = name;
+            this.attribute = attribute;
+            this.priority = priority;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.revvo.sap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tokenização de listas de roles sem regex e sem streams.
+ *
+ * Produz exatamente o mesmo resultado que as versões anteriores baseadas em
+ * {@code split(",")} / {@code split("\\s+")} + {@code trim} + {@code distinct}:
+ * tokens sem espaços nas pontas, sem vazios, sem duplicatas e na ordem da primeira ocorrência.
+ *
+ * Cada chamada faz uma única passada pela entrada e escreve numa lista pré-dimensionada.
+ * A deduplicação é uma busca linear enquanto a lista é pequena, e só passa a usar um
+ * {@link HashSet} quando cresce.
+ */
+final class RoleTokenizer {
+
+    // Até esse tamanho, busca linear é mais barata que manter um HashSet
+    private static final int LINEAR_DEDUP_LIMIT = 16;
+
+    private RoleTokenizer() {
+    }
+
+    /**
+     * "A, B,,C" → [A, B, C]
+     */
+    static List<String> splitCsv(String csv) {
+        Collector out = new Collector(count(csv, ',') + 1);
+
+        int start = 0;
+        int len = csv.length();
+        for (int i = 0; i <= len; i++) {
+            if (i == len || csv.charAt(i) == ',') {
+                out.add(csv, start, i);
+                start = i + 1;
+            }
+        }
+
+        return out.values;
+    }
+
+    /**
+     * "A  B\tC" → [A, B, C] (separadores: os mesmos de \s na regex)
+     */
+    static List<String> splitWhitespace(String s) {
+        Collector out = new Collector(Math.min(s.length() / 2 + 1, 64));
+
+        int start = 0;
+        int len = s.length();
+        for (int i = 0; i <= len; i++) {
+            if (i == len || isRegexWhitespace(s.charAt(i))) {
+                out.add(s, start, i);
+                start = i + 1;
+            }
+        }
+
+        return out.values;
+    }
+
+    /**
+     * Cada elemento não nulo vira texto (String.valueOf), com trim, sem vazios e sem duplicatas.
+     */
+    static List<String> fromCollection(Collection<?> values) {
+        Collector out = new Collector(values.size());
+        for (Object v : values) {
+            if (v != null) {
+                String s = String.valueOf(v);
+                out.add(s, 0, s.length());
+            }
+        }
+        return out.values;
+    }
+
+    // -------- Helpers --------
+
+    private static int count(String s, char c) {
+        int n = 0;
+        for (int i = s.indexOf(c); i >= 0; i = s.indexOf(c, i + 1)) {
+            n++;
+        }
+        return n;
+    }
+
+    // Mesmo conjunto de \s em java.util.regex: [ \t\n\x0B\f\r]
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    private static final class Collector {
+        private final List<String> values;
+        private Set<String> seen;
+
+        Collector(int expected) {
+            this.values = new ArrayList<>(expected);
+        }
+
+        /**
+         * Adiciona s[start, end) com trim (mesma regra de String.trim), se não vazio e inédito.
+         */
+        void add(String s, int start, int end) {
+            while (start < end && s.charAt(start) <= ' ') start++;
+            while (end > start && s.charAt(end - 1) <= ' ') end--;
+            if (start == end) return;
+
+            String token = (start == 0 && end == s.length()) ? s : s.substring(start, end);
+
+            if (seen == null) {
+                if (values.contains(token)) return;
+                values.add(token);
+                if (values.size() > LINEAR_DEDUP_LIMIT) {
+                    seen = new HashSet<>(values);
+                }
+            } else if (seen.add(token)) {
+                values.add(token);
+            }
+        }
+    }
+}
@@ -1,19 +1,49 @@
 package com.revvo.sap;
 
 import com.revvo.security.JwtClaimsExtractor;
+import com.revvo.security.RoleFingerprint;
+import com.revvo.security.SapSsoMetrics;
+import com.revvo.security.SapTokenClaims;
 import javax.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 @Component
 public class SapContextExtractor {
 
     private final JwtClaimsExtractor jwtClaimsExtractor;
+    private final SapSsoMetrics metrics;
 
     public SapContextExtractor(JwtClaimsExtractor jwtClaimsExtractor) {
+        this(jwtClaimsExtractor, SapSsoMetrics.DISABLED);
+    }
+
+    @Autowired
+    public SapContextExtractor(JwtClaimsExtractor jwtClaimsExtractor, SapSsoMetrics metrics) {
         this.jwtClaimsExtractor = jwtClaimsExtractor;
+        this.metrics = metrics;
+    }
+
+    // -------- Contexto da requisição --------
+
+    /**
+     * Retorna o contexto de identidade SAP da requisição, criando-o na primeira chamada.
+     * Chamadas seguintes (filtro, controllers, etc.) reaproveitam a mesma instância,
+     * então headers e claims do JWT são resolvidos uma única vez por requisição.
+     */
+    public SapIdentityContext resolve(HttpServletRequest request) {
+        Object existing = request.getAttribute(SapIdentityContext.REQUEST_ATTRIBUTE);
+        if (existing instanceof SapIdentityContext) {
+            return (SapIdentityContext) existing;
+        }
+
+        SapIdentityContext context = new SapIdentityContext(this, request);
+        request.setAttribute(SapIdentityContext.REQUEST_ATTRIBUTE, context);
+        return context;
     }
 
     // -------- Username --------
@@ -21,102 +51,74 @@ public class SapContextExtractor {
     /**
      * Estratégia (ordem):
      * 1) Headers típicos de proxy/approuter/SAP
+     *    (X-SAP-USER, X-Authenticated-User, X-User, X-Forwarded-User)
      * 2) Claims do JWT (preferred_username, user_name, email, sub)
      */
     public String extractUsername(HttpServletRequest request) {
-        // Headers (varia por ambiente — aqui é onde você "descobre" via debug)
-        String[] headerCandidates = new String[] {
-                "X-SAP-USER",
-                "X-Authenticated-User",
-                "X-User",
-                "X-Forwarded-User",
-                "x-sap-user",
-                "x-authenticated-user",
-                "x-user",
-                "x-forwarded-user"
-        };
-
-        for (String h : headerCandidates) {
-            String v = request.getHeader(h);
-            if (v != null && !v.isBlank()) return v.trim();
-        }
+        return resolve(request).getUsername();
+    }
 
-        // JWT fallback
-        Map<String, Object> claims = jwtClaimsExtractor.extractClaims(request);
-        String[] claimCandidates = new String[] {
-                "preferred_username",
-                "user_name",
-                "email",
-                "sub"
-        };
-
-        for (String c : claimCandidates) {
-            Object v = claims.get(c);
-            if (v != null && !String.valueOf(v).isBlank()) return String.valueOf(v).trim();
+    /**
+     * Detecção leve de usuário, para GET /sap/detect-environment: mesma prioridade de
+     * {@link #extractUsername(HttpServletRequest)}, mas sem criar o contexto da requisição e,
+     * no JWT, lendo só as claims de username. Sem headers de identidade não aloca nada.
+     */
+    public String detectUsername(HttpServletRequest request) {
+        String[] headers = IdentityHeaders.scan(request);
+        if (headers[IdentityHeaders.USERNAME] != null) {
+            return headers[IdentityHeaders.USERNAME];
         }
+        String token = headers[IdentityHeaders.TOKEN];
+        return token != null ? jwtClaimsExtractor.extractUsername(token) : null;
+    }
 
-        return null;
+    String resolveUsername(SapIdentityContext context) {
+        // Headers (varia por ambiente — aqui é onde você "descobre" via debug)
+        String fromHeader = context.header(IdentityHeaders.USERNAME);
+        if (fromHeader != null) return fromHeader;
+
+        // JWT fallback
+        SapTokenClaims claims = context.claims();
+        return firstNonBlank(claims.getPreferredUsername(), claims.getUserName(), claims.getEmail(), claims.getSub());
     }
 
     // -------- Nome do usuário --------
 
     /**
-     * Extrai o nome completo do usuário dos headers SAP ou JWT claims
+     * Extrai o nome completo do usuário dos headers SAP (X-User-Name, X-SAP-USER-NAME)
+     * ou JWT claims
      */
     public String extractUserName(HttpServletRequest request) {
-        // Headers
-        String[] headerCandidates = new String[] {
-                "X-User-Name",
-                "X-SAP-USER-NAME",
-                "x-user-name",
-                "x-sap-user-name"
-        };
-
-        for (String h : headerCandidates) {
-            String v = request.getHeader(h);
-            if (v != null && !v.isBlank()) return v.trim();
-        }
+        return resolve(request).getName();
+    }
 
-        // JWT fallback
-        Map<String, Object> claims = jwtClaimsExtractor.extractClaims(request);
-        String[] claimCandidates = new String[] {
-                "name",
-                "given_name",
-                "family_name"
-        };
-
-        for (String c : claimCandidates) {
-            Object v = claims.get(c);
-            if (v != null && !String.valueOf(v).isBlank()) return String.valueOf(v).trim();
-        }
+    String resolveUserName(SapIdentityContext context) {
+        String fromHeader = context.header(IdentityHeaders.NAME);
+        if (fromHeader != null) return fromHeader;
 
-        return null;
+        // JWT fallback
+        SapTokenClaims claims = context.claims();
+        return firstNonBlank(claims.getName(), claims.getGivenName(), claims.getFamilyName());
     }
 
     // -------- Email do usuário --------
 
     /**
-     * Extrai o email do usuário dos headers SAP ou JWT claims
+     * Extrai o email do usuário dos headers SAP (X-User-Email, X-SAP-USER-EMAIL)
+     * ou JWT claims
      */
     public String extractUserEmail(HttpServletRequest request) {
-        // Headers
-        String[] headerCandidates = new String[] {
-                "X-User-Email",
-                "X-SAP-USER-EMAIL",
-                "x-user-email",
-                "x-sap-user-email"
-        };
-
-        for (String h : headerCandidates) {
-            String v = request.getHeader(h);
-            if (v != null && !v.isBlank()) return v.trim();
-        }
+        return resolve(request).getEmail();
+    }
+
+    String resolveUserEmail(SapIdentityContext context) {
+        String fromHeader = context.header(IdentityHeaders.EMAIL);
+        if (fromHeader != null) return fromHeader;
 
         // JWT fallback
-        Map<String, Object> claims = jwtClaimsExtractor.extractClaims(request);
-        Object email = claims.get("email");
-        if (email != null && !String.valueOf(email).isBlank()) {
-            return String.valueOf(email).trim();
+        String email = context.claims().getEmail();
+        if (email != null && !email.isBlank()) {
+            return email.trim();
         }
 
         return null;
@@ -127,57 +129,63 @@ public class SapContextExtractor {
     /**
      * Estratégia (ordem):
      * 1) Header "direto" com roles (ex.: X-SAP-ROLES: A,B,C)
-     * 2) Header "groups/roles" (se existir no proxy)
+     * 2) Header "groups/roles" (X-SAP-GROUPS, X-User-Roles, X-Groups, se existir no proxy)
      * 3) JWT claims comuns: groups, roles, authorities, scope
      */
     public List<String> extractSapRoles(HttpServletRequest request) {
+        return resolve(request).getSapRoles();
+    }
+
+    /**
+     * Mesma origem de {@link #resolveSapRoles(SapIdentityContext)}: o header de roles, se houver;
+     * senão as claims de roles do JWT (impressão memorizada junto com as claims do token).
+     */
+    long resolveRoleFingerprint(SapIdentityContext context) {
+        String roles = context.header(IdentityHeaders.ROLES);
+        if (roles != null) {
+            return RoleFingerprint.ofHeader(roles);
+        }
+        return context.claims().getRoleFingerprint();
+    }
+
+    List<String> resolveSapRoles(SapIdentityContext context) {
+        long start = metrics.start();
+        List<String> roles = sapRoles(context);
+        metrics.stop(SapSsoMetrics.Stage.ROLE_EXTRACTION, start);
+        return roles;
+    }
+
+    private List<String> sapRoles(SapIdentityContext context) {
         // 1) Header direto
-        String roles = firstNonBlankHeader(request,
-                "X-SAP-ROLES", "x-sap-roles",
-                "X-SAP-GROUPS", "x-sap-groups",
-                "X-User-Roles", "x-user-roles",
-                "X-Groups", "x-groups"
-        );
+        String roles = context.header(IdentityHeaders.ROLES);
 
         if (roles != null) {
             return splitCsv(roles);
         }
 
         // 2) JWT fallback
-        Map<String, Object> claims = jwtClaimsExtractor.extractClaims(request);
+        SapTokenClaims claims = context.claims();
 
         // 2.0) XSUAA role collections (BTP) - vem dentro de xs.system.attributes.xs.rolecollections
-        Object xsSystemAttrsObj = claims.get("xs.system.attributes");
-        if (xsSystemAttrsObj instanceof Map) {
-            Map<?, ?> xsSystemAttrs = (Map<?, ?>) xsSystemAttrsObj;
-            Object roleCollectionsObj = xsSystemAttrs.get("xs.rolecollections");
-            List<String> roleCollections = asStringList(roleCollectionsObj);
-            if (!roleCollections.isEmpty()) {
-                return normalize(roleCollections);
-            }
+        List<String> roleCollections = asStringList(claims.getRoleCollections());
+        if (!roleCollections.isEmpty()) {
+            return roleCollections;
         }
 
         // groups / roles / authorities podem ser List ou String
-        List<String> fromGroups = asStringList(claims.get("groups"));
-        if (!fromGroups.isEmpty()) return normalize(fromGroups);
+        List<String> fromGroups = asStringList(claims.getGroups());
+        if (!fromGroups.isEmpty()) return fromGroups;
 
-        List<String> fromRoles = asStringList(claims.get("roles"));
-        if (!fromRoles.isEmpty()) return normalize(fromRoles);
+        List<String> fromRoles = asStringList(claims.getRoles());
+        if (!fromRoles.isEmpty()) return fromRoles;
 
-        List<String> fromAuth = asStringList(claims.get("authorities"));
-        if (!fromAuth.isEmpty()) return normalize(fromAuth);
+        List<String> fromAuth = asStringList(claims.getAuthorities());
+        if (!fromAuth.isEmpty()) return fromAuth;
 
         // scope geralmente é "a b c"
-        Object scope = claims.get("scope");
-        if (scope != null) {
-            String s = String.valueOf(scope);
-            if (!s.isBlank()) {
-                return Arrays.stream(s.split("\\s+"))
-                        .map(String::trim)
-                        .filter(v -> !v.isEmpty())
-                        .distinct()
-                        .collect(Collectors.toList());
-            }
+        String scope = claims.getScope();
+        if (scope != null && !scope.isBlank()) {
+            return RoleTokenizer.splitWhitespace(scope);
         }
 
         return Collections.emptyList();
@@ -185,60 +193,51 @@ public class SapContextExtractor {
 
     // -------- Helpers --------
 
-    private String firstNonBlankHeader(HttpServletRequest request, String... names) {
-        for (String n : names) {
-            String v = request.getHeader(n);
+    String[] scanHeaders(HttpServletRequest request) {
+        long start = metrics.start();
+        String[] headers = IdentityHeaders.scan(request);
+        metrics.stop(SapSsoMetrics.Stage.HEADER_PROBE, start);
+        return headers;
+    }
+
+    SapTokenClaims decodeClaims(String token) {
+        long start = metrics.start();
+        SapTokenClaims claims = jwtClaimsExtractor.extractSapClaims(token);
+        metrics.stop(SapSsoMetrics.Stage.JWT_DECODE, start);
+        return claims;
+    }
+
+    private String firstNonBlank(String... values) {
+        for (String v : values) {
             if (v != null && !v.isBlank()) return v.trim();
         }
         return null;
     }
 
     private List<String> splitCsv(String csv) {
-        return Arrays.stream(csv.split(","))
-                .map(String::trim)
-                .filter(v -> !v.isEmpty())
-                .distinct()
-                .collect(Collectors.toList());
+        return RoleTokenizer.splitCsv(csv);
     }
 
+    /**
+     * Claim de roles (lista ou string) → lista já com trim, sem vazios e sem duplicatas.
+     */
     private List<String> asStringList(Object value) {
         if (value == null) return Collections.emptyList();
 
         if (value instanceof Collection<?>) {
-            Collection<?> col = (Collection<?>) value;
-            return col.stream()
-                    .filter(Objects::nonNull)
-                    .map(String::valueOf)
-                    .map(String::trim)
-                    .filter(s -> !s.isEmpty())
-                    .distinct()
-                    .collect(Collectors.toList());
+            return RoleTokenizer.fromCollection((Collection<?>) value);
         }
 
         String s = String.valueOf(value).trim();
         if (s.isEmpty()) return Collections.emptyList();
 
         // se vier "A,B,C"
-        if (s.contains(",")) return splitCsv(s);
+        if (s.indexOf(',') >= 0) return splitCsv(s);
 
         // se vier "A B C"
-        if (s.contains(" ")) {
-            return Arrays.stream(s.split("\\s+"))
-                    .map(String::trim)
-                    .filter(v -> !v.isEmpty())
-                    .distinct()
-                    .collect(Collectors.toList());
-        }
+        if (s.indexOf(' ') >= 0) return RoleTokenizer.splitWhitespace(s);
 
         return Collections.singletonList(s);
     }
 
-    private List<String> normalize(List<String> values) {
-        return values.stream()
-                .map(String::trim)
-                .filter(v -> !v.isEmpty())
-                .distinct()
-                .collect(Collectors.toList());
-    }
-
 }
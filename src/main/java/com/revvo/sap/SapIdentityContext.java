@@ -0,0 +1,139 @@
+package com.revvo.sap;
+
+import com.revvo.security.RoleFingerprint;
+import com.revvo.security.SapTokenClaims;
+import javax.servlet.http.HttpServletRequest;
+
+import java.util.List;
+
+/**
+ * Contexto de identidade SAP de uma única requisição.
+ *
+ * Resolve headers e claims do JWT no máximo uma vez por requisição: cada atributo
+ * (username, nome, email, roles) é calculado sob demanda e memorizado, e as claims
+ * do JWT são decodificadas uma única vez e compartilhadas entre os atributos.
+ *
+ * A instância fica guardada como atributo da requisição (ver
+ * {@link SapContextExtractor#resolve(HttpServletRequest)}), então o filtro, os
+ * controllers e o código downstream reaproveitam o mesmo resultado.
+ *
+ * Não é thread-safe: vive apenas durante a requisição que o criou.
+ */
+public final class SapIdentityContext {
+
+    static final String REQUEST_ATTRIBUTE = SapIdentityContext.class.getName();
+
+    private final SapContextExtractor extractor;
+    private final HttpServletRequest request;
+
+    private String[] headers;
+    private SapTokenClaims claims;
+
+    private boolean usernameResolved;
+    private String username;
+
+    private boolean nameResolved;
+    private String name;
+
+    private boolean emailResolved;
+    private String email;
+
+    private List<String> sapRoles;
+
+    private boolean roleFingerprintResolved;
+    private long roleFingerprint;
+
+    SapIdentityContext(SapContextExtractor extractor, HttpServletRequest request) {
+        this.extractor = extractor;
+        this.request = request;
+    }
+
+    public String getUsername() {
+        if (!usernameResolved) {
+            username = extractor.resolveUsername(this);
+            usernameResolved = true;
+        }
+        return username;
+    }
+
+    public String getName() {
+        if (!nameResolved) {
+            name = extractor.resolveUserName(this);
+            nameResolved = true;
+        }
+        return name;
+    }
+
+    public String getEmail() {
+        if (!emailResolved) {
+            email = extractor.resolveUserEmail(this);
+            emailResolved = true;
+        }
+        return email;
+    }
+
+    public List<String> getSapRoles() {
+        if (sapRoles == null) {
+            sapRoles = extractor.resolveSapRoles(this);
+        }
+        return sapRoles;
+    }
+
+    /**
+     * Impressão digital da origem dos roles (ver {@link RoleFingerprint}), calculada sem
+     * tokenizar os roles: muda sempre que os roles recebidos mudam.
+     */
+    public long getRoleFingerprint() {
+        if (!roleFingerprintResolved) {
+            roleFingerprint = extractor.resolveRoleFingerprint(this);
+            roleFingerprintResolved = true;
+        }
+        return roleFingerprint;
+    }
+
+    /**
+     * false quando a requisição não traz nenhum header de identidade nem token (tráfego anônimo):
+     * nesse caso todos os atributos são nulos/vazios sem consultar o extrator.
+     */
+    public boolean hasIdentity() {
+        return headers() != IdentityHeaders.NONE;
+    }
+
+    /**
+     * true quando o username veio de um header do approuter; false quando veio do JWT.
+     */
+    public boolean isUsernameFromHeader() {
+        return header(IdentityHeaders.USERNAME) != null;
+    }
+
+    public boolean isAuthenticated() {
+        String u = getUsername();
+        return u != null && !u.isBlank();
+    }
+
+    /**
+     * Valor do header de identidade para o atributo (ver {@link IdentityHeaders}).
+     * Todos os headers são lidos numa única passada, na primeira chamada.
+     */
+    String header(int attribute) {
+        return headers()[attribute];
+    }
+
+    private String[] headers() {
+        if (headers == null) {
+            headers = extractor.scanHeaders(request);
+        }
+        return headers;
+    }
+
+    /**
+     * Claims do JWT da requisição, decodificadas na primeira chamada.
+     */
+    SapTokenClaims claims() {
+        if (claims == null) {
+            String token = header(IdentityHeaders.TOKEN);
+            claims = token != null ? extractor.decodeClaims(token) : SapTokenClaims.EMPTY;
+        }
+        return claims;
+    }
+}
@@ -0,0 +1,69 @@
+package com.revvo.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Fila circular limitada, sem locks, com vários produtores e um único consumidor.
+ *
+ * - {@link #offer(Object)}: reserva uma posição com CAS na sequência de escrita e publica
+ *   o elemento; com a fila cheia, retorna false na hora (o chamador descarta o evento)
+ * - {@link #drain(Consumer, int)}: chamado só pela thread consumidora; para no primeiro slot
+ *   reservado mas ainda não publicado, que fica para a próxima drenagem
+ */
+final class AuditRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+
+    // Próxima posição a reservar (produtores)
+    private final AtomicLong tail = new AtomicLong();
+    // Próxima posição a consumir (só o consumidor escreve)
+    private final AtomicLong head = new AtomicLong();
+
+    AuditRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    boolean offer(E element) {
+        long t;
+        do {
+            t = tail.get();
+            if (t - head.get() >= slots.length()) {
+                return false;
+            }
+        } while (!tail.compareAndSet(t, t + 1));
+
+        slots.lazySet((int) t & mask, element);
+        return true;
+    }
+
+    int drain(Consumer<? super E> consumer, int limit) {
+        long h = head.get();
+        int drained = 0;
+        while (drained < limit) {
+            int index = (int) h & mask;
+            E element = slots.get(index);
+            if (element == null) {
+                break;
+            }
+            slots.lazySet(index, null);
+            h++;
+            head.lazySet(h);
+            consumer.accept(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    int capacity() {
+        return slots.length();
+    }
+}
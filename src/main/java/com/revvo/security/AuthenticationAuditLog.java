@@ -0,0 +1,240 @@
+package com.revvo.security;
+
+import com.revvo.config.SapSsoProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Auditoria das autenticações SSO, fora da thread da requisição.
+ *
+ * A requisição só monta um evento pequeno e o coloca numa fila circular sem locks
+ * ({@link AuditRingBuffer}); uma thread dedicada drena a fila em lotes e grava no arquivo
+ * (spring.security.sap.sso.audit.path), só com append. Se a fila estiver cheia o evento é
+ * descartado na hora, sem bloquear a requisição, e contado em sap.sso.audit.events{result=dropped}.
+ *
+ * Formato (uma linha por evento, separado por tab):
+ * instante, usuário, origem (header/jwt), impressão dos roles, resultado do cache
+ * (hit/l2/miss/coalesced, ver {@link SapSsoCache.Lookup}), latência em µs
+ *
+ * O usuário vem do header ou do JWT (controlado por quem chama): barra invertida, tab, CR e LF
+ * são escapados como \\, \t, \r e \n, e os demais caracteres de controle (incluindo os
+ * separadores de linha Unicode) como barra + u + 4 dígitos hex. Um evento é sempre uma linha
+ * com seis campos.
+ */
+@Slf4j
+@Component
+public class AuthenticationAuditLog {
+
+    public static final String SOURCE_HEADER = "header";
+    public static final String SOURCE_JWT = "jwt";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final boolean enabled;
+    private final Path path;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final AuditRingBuffer<Event> buffer;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    // Só usados pela thread gravadora
+    private final StringBuilder batch = new StringBuilder(16 * 1024);
+    private FileChannel channel;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public AuthenticationAuditLog(SapSsoProperties properties, MeterRegistry meterRegistry) {
+        SapSsoProperties.Audit audit = properties.getAudit();
+        this.enabled = audit.isEnabled();
+        this.path = Path.of(audit.getPath());
+        this.batchSize = audit.getBatchSize();
+        this.flushIntervalNanos = audit.getFlushInterval().toNanos();
+        this.buffer = new AuditRingBuffer<>(enabled ? audit.getBufferSize() : 2);
+
+        if (enabled) {
+            bindMetrics(meterRegistry);
+        }
+    }
+
+    /**
+     * Registra uma autenticação. Nunca bloqueia: com a fila cheia (ou a auditoria desligada),
+     * o evento é descartado.
+     */
+    public void record(String username, String source, long roleFingerprint, SapSsoCache.Lookup lookup,
+                       long latencyNanos) {
+        if (!enabled) {
+            return;
+        }
+        Event event = new Event(System.currentTimeMillis(), username, source, roleFingerprint, lookup, latencyNanos);
+        if (!buffer.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public synchronized void start() throws IOException {
+        if (!enabled || running) {
+            return;
+        }
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        running = true;
+        writer = new Thread(this::run, "sap-sso-audit");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Auditoria de autenticação SSO gravando em {}", path.toAbsolutePath());
+    }
+
+    /**
+     * Para a thread gravadora depois de gravar o que ainda estiver na fila.
+     */
+    @PreDestroy
+    public synchronized void close() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Falha ao fechar o arquivo de auditoria {}", path, e);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            if (writeBatch() == 0) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        }
+        // Shutdown: grava o que sobrou
+        while (writeBatch() > 0) {
+            // continua até esvaziar
+        }
+    }
+
+    private int writeBatch() {
+        batch.setLength(0);
+        int count = buffer.drain(this::append, batchSize);
+        if (count == 0) {
+            return 0;
+        }
+
+        try {
+            ByteBuffer bytes = ByteBuffer.wrap(batch.toString().getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            written.add(count);
+        } catch (IOException e) {
+            failed.add(count);
+            log.warn("Falha ao gravar {} eventos de auditoria em {}: {}", count, path, e.toString());
+        }
+        return count;
+    }
+
+    private void append(Event event) {
+        batch.append(Instant.ofEpochMilli(event.timestampMillis)).append('\t');
+        appendEscaped(event.username);
+        batch.append('\t')
+                .append(event.source).append('\t');
+        String fingerprint = Long.toHexString(event.roleFingerprint);
+        for (int i = fingerprint.length(); i < 16; i++) {
+            batch.append('0');
+        }
+        batch.append(fingerprint).append('\t')
+                .append(event.lookup.label()).append('\t')
+                .append(TimeUnit.NANOSECONDS.toMicros(event.latencyNanos)).append('\n');
+    }
+
+    private void appendEscaped(String value) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\': batch.append("\\\\"); break;
+                case '\t': batch.append("\\t"); break;
+                case '\r': batch.append("\\r"); break;
+                case '\n': batch.append("\\n"); break;
+                default:
+                    if (c < 0x20 || c == 0x7f || c == 0x85 || c == 0x2028 || c == 0x2029) {
+                        batch.append("\\u").append(HEX[(c >> 12) & 0xf]).append(HEX[(c >> 8) & 0xf])
+                                .append(HEX[(c >> 4) & 0xf]).append(HEX[c & 0xf]);
+                    } else {
+                        batch.append(c);
+                    }
+            }
+        }
+    }
+
+    private void bindMetrics(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("sap.sso.audit.events", written, LongAdder::sum)
+                .tag("result", "written")
+                .description("Eventos de autenticação gravados no arquivo de auditoria")
+                .register(meterRegistry);
+        FunctionCounter.builder("sap.sso.audit.events", dropped, LongAdder::sum)
+                .tag("result", "dropped")
+                .description("Eventos descartados com a fila de auditoria cheia")
+                .register(meterRegistry);
+        FunctionCounter.builder("sap.sso.audit.events", failed, LongAdder::sum)
+                .tag("result", "failed")
+                .description("Eventos perdidos por erro de escrita no arquivo")
+                .register(meterRegistry);
+        Gauge.builder("sap.sso.audit.queue", buffer, AuditRingBuffer::size)
+                .description("Eventos aguardando gravação")
+                .register(meterRegistry);
+    }
+
+    private static final class Event {
+        final long timestampMillis;
+        final String username;
+        final String source;
+        final long roleFingerprint;
+        final SapSsoCache.Lookup lookup;
+        final long latencyNanos;
+
+        Event(long timestampMillis, String username, String source, long roleFingerprint,
+              SapSsoCache.Lookup lookup, long latencyNanos) {
+            this.timestampMillis = timestampMillis;
+            this.username = username;
+            this.source = source;
+            this.roleFingerprint = roleFingerprint;
+            this.lookup = lookup;
+            this.latencyNanos = latencyNanos;
+        }
+    }
+}
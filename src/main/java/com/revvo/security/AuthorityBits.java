@@ -0,0 +1,85 @@
+package com.revvo.security;
+
+import com.revvo.domain.RoleDictionary;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+
+/**
+ * Authorities de um usuário como bitset sobre os ids do {@link RoleDictionary}: verificar
+ * uma authority é uma busca no dicionário e um teste de bit, em vez de percorrer a lista
+ * de ~50 authorities (ROLE_* e SAP_*).
+ *
+ * Só as authorities registradas no dicionário a partir da configuração (como ROLE_ADMIN) viram
+ * bits, então o bitset tem poucas palavras. As demais (SAP_* de roles sem regra exact) são
+ * procuradas na própria lista de authorities, compartilhada e sem cópia; nomes apenas observados
+ * nas requisições também ficam de fora ({@link RoleDictionary#findRegistered(String)}).
+ *
+ * Imutável.
+ */
+public final class AuthorityBits {
+
+    private final long[] words;
+    // Lista original, consultada só para authorities fora do dicionário (null se não houver)
+    private final Collection<? extends GrantedAuthority> unknown;
+
+    private AuthorityBits(long[] words, Collection<? extends GrantedAuthority> unknown) {
+        this.words = words;
+        this.unknown = unknown;
+    }
+
+    public static AuthorityBits of(Collection<? extends GrantedAuthority> authorities) {
+        RoleDictionary dictionary = RoleDictionary.global();
+        int[] ids = new int[authorities.size()];
+        int max = -1;
+        boolean hasUnknown = false;
+
+        int n = 0;
+        for (GrantedAuthority authority : authorities) {
+            String name = authority.getAuthority();
+            int id = name != null ? dictionary.findRegistered(name) : -1;
+            if (id >= 0) {
+                ids[n++] = id;
+                max = Math.max(max, id);
+            } else if (name != null) {
+                hasUnknown = true;
+            }
+        }
+
+        long[] words = new long[(max >> 6) + 1];
+        for (int i = 0; i < n; i++) {
+            words[ids[i] >> 6] |= 1L << ids[i];
+        }
+        return new AuthorityBits(words, hasUnknown ? authorities : null);
+    }
+
+    public boolean has(int id) {
+        int word = id >> 6;
+        return id >= 0 && word < words.length && (words[word] & (1L << id)) != 0;
+    }
+
+    // Tamanho do bitset, para a estimativa de memória do cache
+    int wordCount() {
+        return words.length;
+    }
+
+    public boolean has(String authority) {
+        if (authority == null) {
+            return false;
+        }
+        int id = RoleDictionary.global().findRegistered(authority);
+        if (id >= 0) {
+            // Authority registrada: o bit responde, sem percorrer a lista
+            return has(id);
+        }
+        if (unknown == null) {
+            return false;
+        }
+        for (GrantedAuthority granted : unknown) {
+            if (authority.equals(granted.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,160 @@
+package com.revvo.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revvo.config.SapSsoProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.UrlResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Chaves públicas do XSUAA (JWKS), indexadas pelo "kid".
+ *
+ * - Carregadas de spring.security.sap.sso.jwt.verification.jwks-uri via {@link ResourceLoader}:
+ *   https:// em produção, file:/classpath: em testes ou ambientes sem acesso ao XSUAA
+ * - Recarregadas em background (keys-refresh-interval); a busca por kid é um lookup num
+ *   mapa imutável, sem lock
+ * - Um "kid" desconhecido (rotação de chaves) dispara uma recarga síncrona, no máximo uma
+ *   a cada keys-min-refetch-interval. Só as requisições com "kid" desconhecido esperam por ela;
+ *   depois do lock, o mapa é consultado de novo, então quem esperou não repete a busca
+ * - Busca por http(s) com timeout de conexão e de leitura (keys-fetch-timeout)
+ *
+ * Se a carga falhar, as chaves anteriores continuam valendo.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "spring.security.sap.sso.jwt.verification", name = "enabled", havingValue = "true")
+public class JwksKeyStore {
+
+    private final Resource jwks;
+    private final ObjectMapper objectMapper;
+    private final long minRefetchNanos;
+    private final int fetchTimeoutMillis;
+
+    private volatile Map<String, PublicKey> keys = Collections.emptyMap();
+    private volatile long lastLoadNanos;
+
+    public JwksKeyStore(SapSsoProperties properties, ResourceLoader resourceLoader, ObjectMapper objectMapper) {
+        SapSsoProperties.Verification verification = properties.getJwt().getVerification();
+        if (verification.getJwksUri() == null || verification.getJwksUri().isBlank()) {
+            throw new IllegalStateException("spring.security.sap.sso.jwt.verification.jwks-uri não configurado");
+        }
+        this.jwks = resourceLoader.getResource(verification.getJwksUri());
+        this.objectMapper = objectMapper;
+        this.minRefetchNanos = verification.getKeysMinRefetchInterval().toNanos();
+        this.fetchTimeoutMillis = (int) Math.min(Integer.MAX_VALUE, verification.getKeysFetchTimeout().toMillis());
+        this.lastLoadNanos = System.nanoTime() - minRefetchNanos;
+    }
+
+    @PostConstruct
+    public void init() {
+        refresh();
+    }
+
+    /**
+     * Chave do "kid", ou null se não existir nem depois de uma recarga.
+     * Token sem "kid" usa a única chave do JWKS, se houver só uma.
+     */
+    public PublicKey key(String kid) {
+        PublicKey key = find(keys, kid);
+        if (key != null) {
+            return key;
+        }
+        return refetchIfAllowed(kid);
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    @Scheduled(
+            fixedDelayString = "${spring.security.sap.sso.jwt.verification.keys-refresh-interval:PT1H}",
+            initialDelayString = "${spring.security.sap.sso.jwt.verification.keys-refresh-interval:PT1H}")
+    public void refreshKeys() {
+        refresh();
+    }
+
+    /**
+     * Recarrega o JWKS. Retorna false (mantendo as chaves atuais) se a carga falhar.
+     */
+    public synchronized boolean refresh() {
+        lastLoadNanos = System.nanoTime();
+        try (InputStream in = open()) {
+            Map<String, PublicKey> loaded = parse(objectMapper.readTree(in));
+            keys = Collections.unmodifiableMap(loaded);
+            log.info("JWKS carregado de {}: {} chaves", jwks.getDescription(), loaded.size());
+            return true;
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            log.warn("Falha ao carregar JWKS de {} (mantendo {} chaves): {}",
+                    jwks.getDescription(), keys.size(), e.toString());
+            return false;
+        }
+    }
+
+    private synchronized PublicKey refetchIfAllowed(String kid) {
+        // Outra requisição pode ter recarregado enquanto esta esperava o lock
+        PublicKey key = find(keys, kid);
+        if (key != null || System.nanoTime() - lastLoadNanos < minRefetchNanos) {
+            return key;
+        }
+        return refresh() ? find(keys, kid) : null;
+    }
+
+    private InputStream open() throws IOException {
+        if (jwks instanceof UrlResource) {
+            URL url = jwks.getURL();
+            if ("http".equals(url.getProtocol()) || "https".equals(url.getProtocol())) {
+                URLConnection connection = url.openConnection();
+                connection.setConnectTimeout(fetchTimeoutMillis);
+                connection.setReadTimeout(fetchTimeoutMillis);
+                return connection.getInputStream();
+            }
+        }
+        return jwks.getInputStream();
+    }
+
+    private static PublicKey find(Map<String, PublicKey> keys, String kid) {
+        if (kid != null) {
+            return keys.get(kid);
+        }
+        return keys.size() == 1 ? keys.values().iterator().next() : null;
+    }
+
+    /**
+     * {"keys": [{"kty": "RSA", "kid": "...", "n": "...", "e": "..."}, ...]}; chaves não RSA são ignoradas.
+     */
+    static Map<String, PublicKey> parse(JsonNode root) throws GeneralSecurityException {
+        Map<String, PublicKey> keys = new HashMap<>();
+        KeyFactory rsa = KeyFactory.getInstance("RSA");
+
+        for (JsonNode key : root.path("keys")) {
+            if (!"RSA".equals(key.path("kty").asText()) || !key.hasNonNull("n") || !key.hasNonNull("e")) {
+                continue;
+            }
+            BigInteger modulus = new BigInteger(1, Base64.getUrlDecoder().decode(key.get("n").asText()));
+            BigInteger exponent = new BigInteger(1, Base64.getUrlDecoder().decode(key.get("e").asText()));
+            String kid = key.path("kid").asText(null);
+            keys.put(kid, rsa.generatePublic(new RSAPublicKeySpec(modulus, exponent)));
+        }
+        return keys;
+    }
+}
@@ -2,50 +2,212 @@ package com.revvo.security;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revvo.cache.ExpiringCache;
+import com.revvo.cache.ExpiringCacheMetrics;
+import com.revvo.config.SapSsoProperties;
+import io.micrometer.core.instrument.MeterRegistry;
 import javax.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
-import java.nio.charset.StandardCharsets;
 
-import java.util.Base64;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @Component
 public class JwtClaimsExtractor {
 
     private final ObjectMapper objectMapper;
+    private final JwtPayloadParser payloadParser;
 
-    public JwtClaimsExtractor(ObjectMapper objectMapper) {
+    /**
+     * Claims SAP já extraídas, indexadas pelo digest do token.
+     * Tokens XSUAA são reutilizados em várias requisições até expirar,
+     * então um token repetido custa só um lookup em vez de Base64 + parse do JSON.
+     * Cada entrada expira no "exp" do próprio token (limitado por claimsCacheMaxTtl).
+     * Com a validação ligada, só entram tokens já validados: um hit não repete a verificação RSA.
+     */
+    private final ExpiringCache<TokenDigest, SapTokenClaims> claimsCache;
+    private final long maxTtlNanos;
+
+    /**
+     * Cache negativo: digests de tokens que não são um JWT decodificável (header Authorization
+     * com outro esquema, token truncado, JSON malformado, assinatura inválida...). Um token
+     * rejeitado é validado uma única vez; as requisições seguintes com o mesmo token custam só o
+     * digest e um lookup.
+     *
+     * Só entram recusas que não mudam com o tempo. A exceção é o "kid" desconhecido: o token pode
+     * passar a valer na próxima recarga do JWKS (rotação de chaves), então fica no máximo
+     * keys-min-refetch-interval no cache (zero = não cacheado).
+     */
+    private final ExpiringCache<TokenDigest, Boolean> rejectedTokens;
+    private final long rejectedTtlNanos;
+    private final long unknownKeyTtlNanos;
+
+    // Validação de assinatura/exp/aud (null quando spring.security.sap.sso.jwt.verification.enabled=false)
+    private final JwtSignatureVerifier verifier;
+
+    public JwtClaimsExtractor(ObjectMapper objectMapper, SapSsoProperties properties, MeterRegistry meterRegistry) {
+        this(objectMapper, properties, meterRegistry, null);
+    }
+
+    @Autowired
+    public JwtClaimsExtractor(ObjectMapper objectMapper, SapSsoProperties properties, MeterRegistry meterRegistry,
+                              @Nullable JwtSignatureVerifier verifier) {
         this.objectMapper = objectMapper;
+        this.verifier = verifier;
+        this.payloadParser = new JwtPayloadParser(objectMapper.getFactory());
+        this.claimsCache = new ExpiringCache<>(properties.getJwt().getClaimsCacheMaxSize());
+        this.maxTtlNanos = properties.getJwt().getClaimsCacheMaxTtl().toNanos();
+        this.rejectedTokens = new ExpiringCache<>(properties.getJwt().getRejectedCacheMaxSize());
+        this.rejectedTtlNanos = properties.getJwt().getRejectedCacheTtl().toNanos();
+        this.unknownKeyTtlNanos = Math.min(rejectedTtlNanos,
+                properties.getJwt().getVerification().getKeysMinRefetchInterval().toNanos());
+        ExpiringCacheMetrics.monitor(meterRegistry, claimsCache, "jwt-claims");
+        ExpiringCacheMetrics.monitor(meterRegistry, rejectedTokens, "jwt-rejected");
+    }
+
+    /**
+     * Extrai apenas as claims usadas pelo Revvo (ver {@link SapTokenClaims}) de um token
+     * já resolvido dos headers (sem o prefixo "Bearer "). É o caminho usado a cada requisição.
+     *
+     * Retorna {@link SapTokenClaims#EMPTY} se não tiver token, não conseguir parsear ou
+     * (com a validação ligada) o token não passar na verificação de assinatura, exp e aud.
+     */
+    public SapTokenClaims extractSapClaims(String token) {
+        if (token == null || !JwtPayloadParser.hasJwtShape(token)) {
+            return SapTokenClaims.EMPTY;
+        }
+
+        TokenDigest digest = TokenDigest.of(token);
+        SapTokenClaims cached = claimsCache.get(digest);
+        if (cached != null) {
+            return cached;
+        }
+
+        if (rejectedTokens.get(digest) != null) {
+            return SapTokenClaims.EMPTY;
+        }
+
+        SapTokenClaims claims = parse(token);
+        if (claims == null) {
+            reject(digest);
+            return SapTokenClaims.EMPTY;
+        }
+        if (verifier != null) {
+            JwtSignatureVerifier.Result result = verifier.validate(token, claims);
+            if (result != JwtSignatureVerifier.Result.VALID) {
+                reject(digest, result == JwtSignatureVerifier.Result.UNKNOWN_KEY ? unknownKeyTtlNanos : rejectedTtlNanos);
+                return SapTokenClaims.EMPTY;
+            }
+        }
+
+        long ttlNanos = ttlNanos(claims.getExp());
+        if (ttlNanos > 0) {
+            claimsCache.put(digest, claims, ttlNanos);
+        }
+        return claims;
+    }
+
+    /**
+     * Só o username do token, para a detecção de ambiente: mesma regra de
+     * {@link com.revvo.sap.SapContextExtractor#extractUsername} (preferred_username, user_name,
+     * email, sub), sem decodificar as demais claims nem calcular o digest do token.
+     *
+     * Com a validação de assinatura ligada, usa {@link #extractSapClaims(String)} (token validado
+     * e em cache), para não reportar usuário de um token não verificado.
+     */
+    public String extractUsername(String token) {
+        if (token == null || !JwtPayloadParser.hasJwtShape(token)) {
+            return null;
+        }
+
+        if (verifier != null) {
+            SapTokenClaims claims = extractSapClaims(token);
+            return firstNonBlank(claims.getPreferredUsername(), claims.getUserName(), claims.getEmail(), claims.getSub());
+        }
+
+        try {
+            return payloadParser.parseUsername(token);
+        } catch (IOException e) {
+            return null;
+        }
     }
 
     /**
-     * Tenta extrair claims de um JWT presente em:
+     * Tenta extrair todas as claims de um JWT presente em:
      * - Authorization: Bearer <jwt>
      * - X-Forwarded-Access-Token: <jwt>
      * - X-JWT-Assertion: <jwt>
      *
+     * Modo genérico (payload inteiro num Map, sem cache e sem validação), útil para depuração.
+     * O fluxo de autenticação usa {@link #extractSapClaims(String)}.
+     *
      * Retorna mapa vazio se não tiver token ou não conseguir parsear.
      */
     public Map<String, Object> extractClaims(HttpServletRequest request) {
-        String token = resolveJwt(request);
-        if (token == null || token.isBlank()) {
+        return extractClaims(resolveJwt(request));
+    }
+
+    public Map<String, Object> extractClaims(String token) {
+        if (token == null || !JwtPayloadParser.hasJwtShape(token)) {
             return Collections.emptyMap();
         }
 
-        try {
-            // JWT = header.payload.signature
-            String[] parts = token.split("\\.");
-            if (parts.length < 2) return Collections.emptyMap();
+        TokenDigest digest = TokenDigest.of(token);
+        if (rejectedTokens.get(digest) != null) {
+            return Collections.emptyMap();
+        }
 
-            String payloadJson = new String(base64UrlDecode(parts[1]), StandardCharsets.UTF_8);
+        byte[] payload = new byte[JwtPayloadParser.maxPayloadLength(token)];
+        int length = JwtPayloadParser.decodePayload(token, payload);
+        if (length < 0) {
+            reject(digest);
+            return Collections.emptyMap();
+        }
 
-            return objectMapper.readValue(payloadJson, new TypeReference<Map<String, Object>>() {});
-        } catch (Exception e) {
+        try {
+            return objectMapper.readValue(payload, 0, length, new TypeReference<Map<String, Object>>() {});
+        } catch (IOException e) {
+            reject(digest);
             return Collections.emptyMap();
         }
     }
 
+    /**
+     * Claims do token ou null se não for um JWT válido. O formato é validado antes
+     * (sem exceções); só um JSON malformado por dentro chega a lançar no parser.
+     */
+    private SapTokenClaims parse(String token) {
+        try {
+            return payloadParser.parse(token);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void reject(TokenDigest digest) {
+        reject(digest, rejectedTtlNanos);
+    }
+
+    private void reject(TokenDigest digest, long ttlNanos) {
+        log.debug("Token ignorado (JWT inválido ou não validado), digest {}", digest);
+        if (ttlNanos > 0) {
+            rejectedTokens.put(digest, Boolean.TRUE, ttlNanos);
+        }
+    }
+
+    private static String firstNonBlank(String... values) {
+        for (String v : values) {
+            if (v != null && !v.isBlank()) return v.trim();
+        }
+        return null;
+    }
+
     private String resolveJwt(HttpServletRequest request) {
         String auth = request.getHeader("Authorization");
         if (auth != null && auth.toLowerCase().startsWith("bearer ")) {
@@ -61,7 +223,18 @@ public class JwtClaimsExtractor {
         return null;
     }
 
-    private byte[] base64UrlDecode(String base64Url) {
-        return Base64.getUrlDecoder().decode(base64Url);
+    /**
+     * Tempo restante até o "exp" do token, limitado por claimsCacheMaxTtl.
+     * Tokens já expirados retornam 0 (não são cacheados).
+     */
+    private long ttlNanos(Long exp) {
+        if (exp == null) {
+            return maxTtlNanos;
+        }
+        long remainingMillis = exp * 1000L - System.currentTimeMillis();
+        if (remainingMillis <= 0) {
+            return 0;
+        }
+        return Math.min(TimeUnit.MILLISECONDS.toNanos(remainingMillis), maxTtlNanos);
     }
 }
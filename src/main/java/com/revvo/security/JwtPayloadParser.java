@@ -0,0 +1,308 @@
+package com.revvo.security;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parser em streaming do payload de um JWT, extraindo apenas as claims de {@link SapTokenClaims}.
+ *
+ * - O Base64URL é decodificado direto para um buffer reutilizável por thread (sem String intermediária)
+ * - O JSON é percorrido com {@link JsonParser}; objetos grandes que não interessam
+ *   (xs.user.attributes, etc.) são pulados sem materializar nada
+ */
+final class JwtPayloadParser {
+
+    // Buffers maiores que isso não ficam retidos na thread
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[8 * 1024]);
+
+    private static final int[] BASE64URL = new int[128];
+
+    static {
+        Arrays.fill(BASE64URL, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64URL[alphabet.charAt(i)] = i;
+        }
+    }
+
+    private final JsonFactory jsonFactory;
+
+    JwtPayloadParser(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * Extrai as claims do payload (segunda parte) do token.
+     * Retorna null se o token não tiver o formato de um JWT, o Base64URL for inválido
+     * ou o payload não for um objeto JSON (ver {@link #decodePayload(String, byte[])}).
+     *
+     * @throws IOException se o JSON estiver malformado
+     */
+    SapTokenClaims parse(String token) throws IOException {
+        int capacity = maxPayloadLength(token);
+        if (capacity <= 0) return null;
+
+        byte[] buffer = buffer(capacity);
+        int length = decodePayload(token, buffer);
+        if (length < 0) return null;
+
+        try (JsonParser p = jsonFactory.createParser(buffer, 0, length)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) return null;
+            return readClaims(p);
+        }
+    }
+
+    /**
+     * Só o username do token (preferred_username, user_name, email ou sub, nessa ordem), sem
+     * montar as demais claims: usado na detecção de ambiente. Mesma semântica do payload lido
+     * inteiro num Map: claim repetida vale a última ocorrência e valores que não são string
+     * viram texto com String.valueOf. O restante do payload é pulado sem materializar nada.
+     * Retorna null se o token não for um JWT válido ou não tiver nenhuma dessas claims.
+     *
+     * @throws IOException se o JSON estiver malformado
+     */
+    String parseUsername(String token) throws IOException {
+        int capacity = maxPayloadLength(token);
+        if (capacity <= 0) return null;
+
+        byte[] buffer = buffer(capacity);
+        int length = decodePayload(token, buffer);
+        if (length < 0) return null;
+
+        // Candidatos na ordem de prioridade (o JSON pode trazer em qualquer ordem)
+        String preferred = null;
+        String userName = null;
+        String email = null;
+        String sub = null;
+        try (JsonParser p = jsonFactory.createParser(buffer, 0, length)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) return null;
+
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                JsonToken t = p.nextToken();
+                switch (field) {
+                    case "preferred_username": preferred = claimText(p, t); break;
+                    case "user_name":          userName = claimText(p, t); break;
+                    case "email":              email = claimText(p, t); break;
+                    case "sub":                sub = claimText(p, t); break;
+                    default:                   p.skipChildren();
+                }
+            }
+        }
+
+        String value = nonBlank(preferred);
+        if (value == null) value = nonBlank(userName);
+        if (value == null) value = nonBlank(email);
+        return value != null ? value : nonBlank(sub);
+    }
+
+    /**
+     * Valor da claim como no Map do payload completo: string como está, null como null e o
+     * resto (número, booleano, objeto, array) pelo String.valueOf do valor que o ObjectMapper
+     * montaria.
+     */
+    private static String claimText(JsonParser p, JsonToken t) throws IOException {
+        if (t == JsonToken.VALUE_NULL) return null;
+        if (t == JsonToken.VALUE_STRING) return p.getText();
+        return String.valueOf(p.readValueAs(Object.class));
+    }
+
+    private static String nonBlank(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    /**
+     * Checagem O(1) de formato: "header.payload..." com header e payload não vazios.
+     * Tokens opacos (sem ponto) são descartados sem digest nem decodificação.
+     */
+    static boolean hasJwtShape(String token) {
+        int dot = token.indexOf('.');
+        return dot > 0 && dot + 1 < token.length() && token.charAt(dot + 1) != '.';
+    }
+
+    /**
+     * Tamanho máximo do payload decodificado, ou 0 se o token não tiver payload.
+     */
+    static int maxPayloadLength(String token) {
+        int start = token.indexOf('.') + 1;
+        if (start <= 0) return 0;
+        return (payloadEnd(token, start) - start) * 3 / 4 + 3;
+    }
+
+    /**
+     * Validação + decodificação do payload sem exceções: o header precisa ser Base64URL não vazio,
+     * o payload Base64URL válido e o JSON decodificado precisa começar com '{' e terminar com '}'.
+     * Retorna a quantidade de bytes escritos em out (pelo menos {@link #maxPayloadLength(String)}),
+     * ou -1 se o token não passar na validação. Só JSON malformado por dentro chega ao parser.
+     */
+    static int decodePayload(String token, byte[] out) {
+        // JWT = header.payload.signature
+        int dot = token.indexOf('.');
+        if (dot <= 0 || !isBase64Url(token, 0, dot)) return -1;
+
+        int start = dot + 1;
+        int length = decodeBase64Url(token, start, payloadEnd(token, start), out);
+        if (length <= 0) return -1;
+
+        int first = 0;
+        while (first < length && isJsonWhitespace(out[first])) first++;
+        int last = length - 1;
+        while (last > first && isJsonWhitespace(out[last])) last--;
+        if (first >= last || out[first] != '{' || out[last] != '}') return -1;
+
+        return length;
+    }
+
+    private SapTokenClaims readClaims(JsonParser p) throws IOException {
+        SapTokenClaims.SapTokenClaimsBuilder claims = SapTokenClaims.builder();
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken t = p.nextToken();
+
+            switch (field) {
+                case "preferred_username": claims.preferredUsername(scalar(p, t)); break;
+                case "user_name":          claims.userName(scalar(p, t)); break;
+                case "email":              claims.email(scalar(p, t)); break;
+                case "sub":                claims.sub(scalar(p, t)); break;
+                case "name":               claims.name(scalar(p, t)); break;
+                case "given_name":         claims.givenName(scalar(p, t)); break;
+                case "family_name":        claims.familyName(scalar(p, t)); break;
+                case "groups":             claims.groups(stringOrList(p, t)); break;
+                case "roles":              claims.roles(stringOrList(p, t)); break;
+                case "authorities":        claims.authorities(stringOrList(p, t)); break;
+                case "scope":              claims.scope(scope(p, t)); break;
+                case "exp":                claims.exp(t.isNumeric() ? p.getLongValue() : null); break;
+                case "aud":                claims.audience(stringOrList(p, t)); break;
+                case "xs.system.attributes":
+                    if (t == JsonToken.START_OBJECT) {
+                        claims.roleCollections(readRoleCollections(p));
+                    } else {
+                        p.skipChildren();
+                    }
+                    break;
+                default:
+                    // Qualquer outra claim (inclusive objetos/arrays aninhados) é pulada
+                    p.skipChildren();
+            }
+        }
+
+        return claims.build();
+    }
+
+    private Object readRoleCollections(JsonParser p) throws IOException {
+        Object roleCollections = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken t = p.nextToken();
+            if ("xs.rolecollections".equals(field)) {
+                roleCollections = stringOrList(p, t);
+            } else {
+                p.skipChildren();
+            }
+        }
+        return roleCollections;
+    }
+
+    /**
+     * Valor escalar como texto; null para JSON null ou objetos/arrays (que são pulados).
+     */
+    private static String scalar(JsonParser p, JsonToken t) throws IOException {
+        if (t == JsonToken.VALUE_NULL) return null;
+        if (t.isStructStart()) {
+            p.skipChildren();
+            return null;
+        }
+        return p.getText();
+    }
+
+    /**
+     * Array → lista com o texto de cada elemento escalar; escalar → texto; null → null.
+     */
+    private static Object stringOrList(JsonParser p, JsonToken t) throws IOException {
+        if (t != JsonToken.START_ARRAY) {
+            return scalar(p, t);
+        }
+
+        List<String> values = new ArrayList<>();
+        JsonToken e;
+        while ((e = p.nextToken()) != JsonToken.END_ARRAY) {
+            String v = scalar(p, e);
+            if (v != null) values.add(v);
+        }
+        return values;
+    }
+
+    /**
+     * "scope" normalmente é "a b c", mas no XSUAA vem como array: mantém a mesma
+     * representação textual que String.valueOf(List) produzia antes.
+     */
+    private static String scope(JsonParser p, JsonToken t) throws IOException {
+        Object value = stringOrList(p, t);
+        return value != null ? String.valueOf(value) : null;
+    }
+
+    private static byte[] buffer(int size) {
+        byte[] buffer = BUFFER.get();
+        if (buffer.length >= size) return buffer;
+
+        buffer = new byte[Math.max(size, buffer.length * 2)];
+        if (buffer.length <= MAX_RETAINED_BUFFER) {
+            BUFFER.set(buffer);
+        }
+        return buffer;
+    }
+
+    private static int payloadEnd(String token, int start) {
+        int end = token.indexOf('.', start);
+        return end < 0 ? token.length() : end;
+    }
+
+    private static boolean isBase64Url(String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= 128 || (BASE64URL[c] < 0 && c != '=')) return false;
+        }
+        return true;
+    }
+
+    private static boolean isJsonWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    /**
+     * Decodifica Base64URL (padding opcional) de s[start, end) para out.
+     * Retorna a quantidade de bytes escritos, ou -1 se a entrada for inválida.
+     */
+    static int decodeBase64Url(String s, int start, int end, byte[] out) {
+        for (int pad = 0; pad < 2 && end > start && s.charAt(end - 1) == '='; pad++) end--;
+
+        int n = end - start;
+        if (n % 4 == 1) return -1;
+
+        int o = 0;
+        int bits = 0;
+        int acc = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            int v = c < 128 ? BASE64URL[c] : -1;
+            if (v < 0) return -1;
+
+            acc = ((acc << 6) | v) & 0xFFFFFF;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                out[o++] = (byte) (acc >> bits);
+            }
+        }
+        return o;
+    }
+}
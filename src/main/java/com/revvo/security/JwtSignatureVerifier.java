@@ -0,0 +1,182 @@
+package com.revvo.security;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revvo.config.SapSsoProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Validação de tokens XSUAA: assinatura RS256 com as chaves do {@link JwksKeyStore},
+ * "exp" (com tolerância de relógio) e "aud".
+ *
+ * Só roda num miss do cache de claims do {@link JwtClaimsExtractor}: com a validação ligada,
+ * o cache guarda apenas tokens já validados (até o "exp"), então requisições repetidas com o
+ * mesmo token não fazem nenhuma operação criptográfica. As checagens baratas (exp, aud)
+ * vêm antes da verificação RSA.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "spring.security.sap.sso.jwt.verification", name = "enabled", havingValue = "true")
+public class JwtSignatureVerifier {
+
+    enum Result {
+        VALID, MALFORMED, UNSUPPORTED_ALGORITHM, EXPIRED, AUDIENCE, UNKNOWN_KEY, INVALID_SIGNATURE
+    }
+
+    private static final ThreadLocal<Signature> SHA256_WITH_RSA = ThreadLocal.withInitial(() -> {
+        try {
+            return Signature.getInstance("SHA256withRSA");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA256withRSA não disponível", e);
+        }
+    });
+
+    private final JwksKeyStore keyStore;
+    private final JsonFactory jsonFactory;
+    private final List<String> audiences;
+    private final long clockSkewMillis;
+    private final Counter[] counters = new Counter[Result.values().length];
+
+    public JwtSignatureVerifier(SapSsoProperties properties, JwksKeyStore keyStore,
+                                ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        SapSsoProperties.Verification verification = properties.getJwt().getVerification();
+        this.keyStore = keyStore;
+        this.jsonFactory = objectMapper.getFactory();
+        this.audiences = List.copyOf(verification.getAudiences());
+        this.clockSkewMillis = verification.getClockSkew().toMillis();
+
+        for (Result result : Result.values()) {
+            counters[result.ordinal()] = Counter.builder("sap.jwt.verifications")
+                    .tag("result", result.name().toLowerCase(Locale.ROOT))
+                    .description("Tokens JWT validados (assinatura, exp e aud), por resultado")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * true se o token for assinado por uma chave do JWKS, não estiver expirado e tiver
+     * uma audiência aceita. As claims já foram extraídas do payload do próprio token.
+     */
+    public boolean verify(String token, SapTokenClaims claims) {
+        return validate(token, claims) == Result.VALID;
+    }
+
+    /**
+     * Como {@link #verify}, mas com o motivo da recusa (contado em sap.jwt.verifications).
+     */
+    Result validate(String token, SapTokenClaims claims) {
+        Result result = check(token, claims);
+        counters[result.ordinal()].increment();
+        if (result != Result.VALID) {
+            log.debug("Token JWT rejeitado na validação: {}", result);
+        }
+        return result;
+    }
+
+    Result check(String token, SapTokenClaims claims) {
+        // header.payload.signature
+        int first = token.indexOf('.');
+        int second = first < 0 ? -1 : token.indexOf('.', first + 1);
+        if (first <= 0 || second < 0 || second == token.length() - 1) {
+            return Result.MALFORMED;
+        }
+
+        Long exp = claims.getExp();
+        if (exp == null || exp * 1000L + clockSkewMillis <= System.currentTimeMillis()) {
+            return Result.EXPIRED;
+        }
+        if (!audiences.isEmpty() && !hasAcceptedAudience(claims.getAudience())) {
+            return Result.AUDIENCE;
+        }
+
+        String[] header = readHeader(token, first);
+        if (header == null) {
+            return Result.MALFORMED;
+        }
+        if (!"RS256".equals(header[0])) {
+            return Result.UNSUPPORTED_ALGORITHM;
+        }
+
+        PublicKey key = keyStore.key(header[1]);
+        if (key == null) {
+            return Result.UNKNOWN_KEY;
+        }
+
+        byte[] signature = new byte[(token.length() - second) * 3 / 4 + 3];
+        int signatureLength = JwtPayloadParser.decodeBase64Url(token, second + 1, token.length(), signature);
+        if (signatureLength <= 0) {
+            return Result.MALFORMED;
+        }
+
+        try {
+            Signature verifier = SHA256_WITH_RSA.get();
+            verifier.initVerify(key);
+            verifier.update(ascii(token, second));
+            return verifier.verify(signature, 0, signatureLength) ? Result.VALID : Result.INVALID_SIGNATURE;
+        } catch (GeneralSecurityException e) {
+            return Result.INVALID_SIGNATURE;
+        }
+    }
+
+    private boolean hasAcceptedAudience(Object aud) {
+        if (aud instanceof Collection<?>) {
+            for (Object value : (Collection<?>) aud) {
+                if (audiences.contains(String.valueOf(value))) return true;
+            }
+            return false;
+        }
+        return aud != null && audiences.contains(String.valueOf(aud));
+    }
+
+    /**
+     * [alg, kid] do header do token, ou null se o header não for um objeto JSON válido.
+     */
+    private String[] readHeader(String token, int end) {
+        byte[] buffer = new byte[end * 3 / 4 + 3];
+        int length = JwtPayloadParser.decodeBase64Url(token, 0, end, buffer);
+        if (length <= 0) return null;
+
+        String[] header = new String[2];
+        try (JsonParser p = jsonFactory.createParser(buffer, 0, length)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) return null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                JsonToken t = p.nextToken();
+                if (t == JsonToken.VALUE_STRING && "alg".equals(field)) {
+                    header[0] = p.getText();
+                } else if (t == JsonToken.VALUE_STRING && "kid".equals(field)) {
+                    header[1] = p.getText();
+                } else {
+                    p.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return header;
+    }
+
+    // Conteúdo assinado = "header.payload" (Base64URL, sempre ASCII)
+    private static byte[] ascii(String token, int end) {
+        byte[] bytes = new byte[end];
+        for (int i = 0; i < end; i++) {
+            bytes[i] = (byte) token.charAt(i);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,80 @@
+package com.revvo.security;
+
+import java.util.Collection;
+
+/**
+ * Impressão digital (64 bits) da origem dos roles de uma requisição, usada junto com o
+ * username na chave do {@link SapSsoCache}: se os roles do usuário mudarem no BTP, a
+ * impressão muda e a próxima requisição recalcula as permissões na hora, sem esperar o TTL.
+ *
+ * É calculada sobre o valor bruto (header X-SAP-ROLES ou claims de roles do JWT), sem
+ * tokenizar nem mapear nada. Diferenças que não alteram os roles (espaços, ordem) geram
+ * outra impressão e apenas causam um recálculo a mais.
+ *
+ * Não é criptográfica: quem controla os headers já controla os próprios roles.
+ */
+public final class RoleFingerprint {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // Separadores para que ("AB", null) e ("A", "B") não colidam
+    private static final char NULL = 0;
+    private static final char VALUE = 1;
+    private static final char ELEMENT = 2;
+
+    private RoleFingerprint() {
+    }
+
+    /**
+     * Impressão do header de roles (X-SAP-ROLES e equivalentes).
+     */
+    public static long ofHeader(String roles) {
+        return finish(append(FNV_OFFSET, roles));
+    }
+
+    /**
+     * Impressão de todas as claims de onde os roles podem vir, na ordem de prioridade.
+     */
+    public static long ofClaims(SapTokenClaims claims) {
+        long h = FNV_OFFSET;
+        h = append(h, claims.getRoleCollections());
+        h = append(h, claims.getGroups());
+        h = append(h, claims.getRoles());
+        h = append(h, claims.getAuthorities());
+        h = append(h, claims.getScope());
+        return finish(h);
+    }
+
+    private static long append(long h, Object value) {
+        if (value == null) {
+            return mix(h, NULL);
+        }
+        if (value instanceof Collection<?>) {
+            for (Object element : (Collection<?>) value) {
+                h = append(mix(h, ELEMENT), element);
+            }
+            return mix(h, VALUE);
+        }
+
+        String s = value.toString();
+        for (int i = 0; i < s.length(); i++) {
+            h = mix(h, s.charAt(i));
+        }
+        return mix(h, VALUE);
+    }
+
+    private static long mix(long h, char c) {
+        return (h ^ c) * FNV_PRIME;
+    }
+
+    // Finalizador do MurmurHash3: espalha os bits do FNV-1a
+    private static long finish(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
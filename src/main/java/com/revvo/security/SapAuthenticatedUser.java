@@ -0,0 +1,138 @@
+package com.revvo.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revvo.domain.UserPermissions;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+
+/**
+ * Usuário SSO já "montado" para o Spring Security: é o próprio principal da autenticação.
+ *
+ * É o valor guardado no {@link SapSsoCache}. Tudo é calculado uma única vez por usuário
+ * (no cache miss), então cada requisição só precisa embrulhá-lo num token de autenticação.
+ * As authorities vêm do {@link com.revvo.service.RoleSetMapping} e são compartilhadas por
+ * todos os usuários com o mesmo conjunto de roles SAP.
+ */
+public final class SapAuthenticatedUser implements UserDetails {
+
+    private static final long serialVersionUID = 1L;
+
+    private final UserPermissions permissions;
+    private final List<GrantedAuthority> authorities;
+
+    // Calculado no primeiro uso (corrida benigna: o resultado é sempre o mesmo)
+    private volatile AuthorityBits authorityBits;
+
+    // Perfil serializado para GET /sap/profile, também no primeiro uso
+    private volatile SapProfileJson profileJson;
+
+    public SapAuthenticatedUser(UserPermissions permissions, List<GrantedAuthority> authorities) {
+        this.permissions = permissions;
+        this.authorities = authorities;
+    }
+
+    public UserPermissions getPermissions() {
+        return permissions;
+    }
+
+    /**
+     * Authorities imutáveis (ROLE_* e SAP_*), ordenadas pelo nome.
+     */
+    @Override
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    /**
+     * Authorities em bitset, para verificações de role sem percorrer a lista (ver {@link SapAuthorization}).
+     */
+    public AuthorityBits getAuthorityBits() {
+        AuthorityBits bits = authorityBits;
+        if (bits == null) {
+            bits = AuthorityBits.of(authorities);
+            authorityBits = bits;
+        }
+        return bits;
+    }
+
+    /**
+     * Perfil já serializado em JSON, com ETag (ver {@link SapProfileJson}). Como o usuário fica no
+     * {@link SapSsoCache} com a chave username + impressão dos roles, a impressão é sempre a mesma
+     * para esta instância.
+     */
+    public SapProfileJson getProfileJson(long roleFingerprint, ObjectMapper objectMapper) {
+        SapProfileJson profile = profileJson;
+        if (profile == null) {
+            profile = SapProfileJson.of(permissions, roleFingerprint, objectMapper);
+            profileJson = profile;
+        }
+        return profile;
+    }
+
+    /**
+     * Bytes estimados do que foi calculado sob demanda (bitset de authorities, JSON do perfil),
+     * para as estatísticas do cache ({@link SapSsoCacheStats}).
+     */
+    long lazyBytes() {
+        long bytes = 0;
+        if (authorityBits != null) {
+            bytes += 24 + SapSsoCacheStats.Collector.align(16 + 8L * authorityBits.wordCount());
+        }
+        SapProfileJson profile = profileJson;
+        if (profile != null) {
+            bytes += 16 + SapSsoCacheStats.Collector.align(16 + profile.getJson().length)
+                    + SapSsoCacheStats.Collector.stringBytes(profile.getEtag());
+        }
+        return bytes;
+    }
+
+    @Override
+    public String getUsername() {
+        return permissions.getUsername();
+    }
+
+    @Override
+    public String getPassword() {
+        return "N/A"; // não usado em SSO
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    // Igualdade por username, como no User do Spring Security
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SapAuthenticatedUser)) return false;
+        return getUsername().equals(((SapAuthenticatedUser) o).getUsername());
+    }
+
+    @Override
+    public int hashCode() {
+        return getUsername().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return getUsername();
+    }
+}
@@ -0,0 +1,166 @@
+package com.revvo.security;
+
+import com.revvo.domain.UserPermissions;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Formato binário compacto de um {@link SapAuthenticatedUser} para o {@link SapSsoL2Cache}
+ * (sem serialização Java: não depende da estrutura das classes e não desserializa tipos arbitrários).
+ *
+ * Layout (big-endian, strings em UTF-8 modificado com tamanho de 2 bytes, como em DataOutput):
+ * <pre>
+ * byte    versão (1)
+ * long    impressão digital dos roles
+ * long    expiração (epoch millis)
+ * str?    username, name, email, source   (str? = byte presente + str)
+ * list    sapRoles, revvoRoles, authorities (list = varint tamanho + str...)
+ * </pre>
+ */
+final class SapAuthenticatedUserCodec {
+
+    private static final byte VERSION = 1;
+
+    private SapAuthenticatedUserCodec() {
+    }
+
+    /**
+     * Valor decodificado: o usuário e os metadados da entrada.
+     */
+    static final class Entry {
+        final long roleFingerprint;
+        final long expiresAtMillis;
+        final SapAuthenticatedUser user;
+
+        Entry(long roleFingerprint, long expiresAtMillis, SapAuthenticatedUser user) {
+            this.roleFingerprint = roleFingerprint;
+            this.expiresAtMillis = expiresAtMillis;
+            this.user = user;
+        }
+    }
+
+    static byte[] encode(SapAuthenticatedUser user, long roleFingerprint, long expiresAtMillis) {
+        UserPermissions p = user.getPermissions();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeLong(roleFingerprint);
+            out.writeLong(expiresAtMillis);
+            writeNullable(out, p.getUsername());
+            writeNullable(out, p.getName());
+            writeNullable(out, p.getEmail());
+            writeNullable(out, p.getSource());
+            writeList(out, p.getSapRoles());
+            writeList(out, p.getRevvoRoles());
+
+            List<GrantedAuthority> authorities = user.getAuthorities();
+            writeVarInt(out, authorities.size());
+            for (GrantedAuthority authority : authorities) {
+                out.writeUTF(authority.getAuthority());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException se a versão for desconhecida ou os bytes estiverem truncados
+     */
+    static Entry decode(byte[] value) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(value))) {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Versão de SapAuthenticatedUser desconhecida: " + version);
+            }
+            long roleFingerprint = in.readLong();
+            long expiresAtMillis = in.readLong();
+
+            UserPermissions permissions = UserPermissions.builder()
+                    .username(readNullable(in))
+                    .name(readNullable(in))
+                    .email(readNullable(in))
+                    .source(readNullable(in))
+                    .sapRoles(readList(in))
+                    .revvoRoles(readList(in))
+                    .build();
+
+            int count = readVarInt(in);
+            List<GrantedAuthority> authorities = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                authorities.add(new SimpleGrantedAuthority(in.readUTF()));
+            }
+
+            SapAuthenticatedUser user =
+                    new SapAuthenticatedUser(permissions, Collections.unmodifiableList(authorities));
+            return new Entry(roleFingerprint, expiresAtMillis, user);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("SapAuthenticatedUser codificado inválido", e);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            out.writeUTF(s);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    // Lista null é gravada como vazia
+    private static void writeList(DataOutputStream out, List<String> values) throws IOException {
+        if (values == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        writeVarInt(out, values.size());
+        for (String v : values) {
+            out.writeUTF(v);
+        }
+    }
+
+    private static List<String> readList(DataInputStream in) throws IOException {
+        int count = readVarInt(in);
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(in.readUTF());
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("varint malformado");
+    }
+}
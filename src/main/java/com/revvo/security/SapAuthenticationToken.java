@@ -0,0 +1,35 @@
+package com.revvo.security;
+
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+
+/**
+ * Autenticação criada pelo {@link SapSsoFilter}. As authorities são sempre as do próprio
+ * {@link SapAuthenticatedUser}, então as verificações de role podem usar o bitset
+ * pré-calculado do principal ({@link SapAuthenticatedUser#getAuthorityBits()}).
+ */
+public final class SapAuthenticationToken extends AbstractAuthenticationToken {
+
+    private static final long serialVersionUID = 1L;
+
+    private final SapAuthenticatedUser principal;
+
+    public SapAuthenticationToken(SapAuthenticatedUser principal) {
+        super(principal.getAuthorities());
+        this.principal = principal;
+        setAuthenticated(true);
+    }
+
+    @Override
+    public SapAuthenticatedUser getPrincipal() {
+        return principal;
+    }
+
+    @Override
+    public Object getCredentials() {
+        return null; // SSO: não há credencial no backend
+    }
+
+    public AuthorityBits getAuthorityBits() {
+        return principal.getAuthorityBits();
+    }
+}
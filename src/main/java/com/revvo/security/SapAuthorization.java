@@ -0,0 +1,116 @@
+package com.revvo.security;
+
+import com.revvo.domain.RoleDictionary;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Verificação rápida de roles/authorities do usuário autenticado.
+ *
+ * Para usuários SAP ({@link SapAuthenticationToken}) a verificação é um teste de bit em
+ * {@link AuthorityBits}; para qualquer outra autenticação, percorre as authorities como o
+ * Spring Security faz. Mesma semântica de hasRole/hasAuthority do Spring Security
+ * (prefixo "ROLE_" adicionado quando ausente), sem hierarquia de roles.
+ *
+ * Uso programático ({@code sapAuthorization.hasRole("ADMIN")}) ou em SpEL
+ * ({@code @PreAuthorize("@sapAuthorization.hasRole('ADMIN')")}); as expressões padrão
+ * (hasRole, hasAuthority...) já passam por aqui via {@link SapMethodSecurityExpressionHandler}.
+ */
+@Component("sapAuthorization")
+public class SapAuthorization {
+
+    public static final String DEFAULT_ROLE_PREFIX = "ROLE_";
+
+    // "ADMIN" → "ROLE_ADMIN", sem concatenar a cada verificação (argumentos de expressões são poucos)
+    private static final int MAX_CACHED_ROLE_NAMES = 1_024;
+    private static final ConcurrentHashMap<String, String> PREFIXED_ROLES = new ConcurrentHashMap<>();
+
+    public boolean hasRole(String role) {
+        return hasRole(currentAuthentication(), DEFAULT_ROLE_PREFIX, role);
+    }
+
+    public boolean hasAnyRole(String... roles) {
+        return hasAnyRole(currentAuthentication(), DEFAULT_ROLE_PREFIX, roles);
+    }
+
+    public boolean hasAuthority(String authority) {
+        return hasAuthority(currentAuthentication(), authority);
+    }
+
+    public boolean hasAnyAuthority(String... authorities) {
+        return hasAnyAuthority(currentAuthentication(), authorities);
+    }
+
+    // -------- API estática (usada também pelo root das expressões) --------
+
+    public static boolean hasAuthority(Authentication authentication, String authority) {
+        if (authentication == null || authority == null) {
+            return false;
+        }
+        if (authentication instanceof SapAuthenticationToken) {
+            return ((SapAuthenticationToken) authentication).getAuthorityBits().has(authority);
+        }
+        for (GrantedAuthority granted : authentication.getAuthorities()) {
+            if (authority.equals(granted.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static boolean hasAnyAuthority(Authentication authentication, String... authorities) {
+        for (String authority : authorities) {
+            if (hasAuthority(authentication, authority)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static boolean hasRole(Authentication authentication, String rolePrefix, String role) {
+        return hasAuthority(authentication, withPrefix(rolePrefix, role));
+    }
+
+    public static boolean hasAnyRole(Authentication authentication, String rolePrefix, String... roles) {
+        for (String role : roles) {
+            if (hasRole(authentication, rolePrefix, role)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mesma regra do Spring Security: adiciona o prefixo se o role ainda não o tiver.
+     */
+    static String withPrefix(String rolePrefix, String role) {
+        if (role == null || rolePrefix == null || rolePrefix.isEmpty() || role.startsWith(rolePrefix)) {
+            return role;
+        }
+        if (!DEFAULT_ROLE_PREFIX.equals(rolePrefix)) {
+            return rolePrefix + role;
+        }
+
+        String prefixed = PREFIXED_ROLES.get(role);
+        if (prefixed == null) {
+            // Mantém o texto do dicionário quando já existe (mesma instância para todos)
+            prefixed = rolePrefix + role;
+            int id = RoleDictionary.global().find(prefixed);
+            if (id >= 0) {
+                prefixed = RoleDictionary.global().name(id);
+            }
+            if (PREFIXED_ROLES.size() < MAX_CACHED_ROLE_NAMES) {
+                PREFIXED_ROLES.putIfAbsent(role, prefixed);
+            }
+        }
+        return prefixed;
+    }
+
+    private static Authentication currentAuthentication() {
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
@@ -0,0 +1,33 @@
+package com.revvo.security;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionOperations;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Handler das expressões de segurança de métodos ({@code @PreAuthorize} etc.):
+ *
+ * - Root {@link SapMethodSecurityExpressionRoot}: hasRole/hasAuthority por bitset para usuários SAP
+ * - SpEL em modo compilado (MIXED): as expressões já são parseadas uma vez por método pelo
+ *   Spring Security; com o compilador, as avaliações frequentes viram bytecode em vez de
+ *   interpretação da árvore a cada chamada
+ */
+public class SapMethodSecurityExpressionHandler extends DefaultMethodSecurityExpressionHandler {
+
+    public SapMethodSecurityExpressionHandler() {
+        setExpressionParser(new SpelExpressionParser(
+                new SpelParserConfiguration(SpelCompilerMode.MIXED, getClass().getClassLoader())));
+    }
+
+    @Override
+    protected MethodSecurityExpressionOperations createSecurityExpressionRoot(Authentication authentication,
+                                                                              MethodInvocation invocation) {
+        MethodSecurityExpressionOperations root = super.createSecurityExpressionRoot(authentication, invocation);
+        return new SapMethodSecurityExpressionRoot(
+                root, authentication, getDefaultRolePrefix(), getRoleHierarchy() != null);
+    }
+}
@@ -0,0 +1,132 @@
+package com.revvo.security;
+
+import org.springframework.security.access.expression.method.MethodSecurityExpressionOperations;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Root das expressões de {@code @PreAuthorize}/{@code @PostAuthorize} com verificação de
+ * roles por bitset ({@link SapAuthorization}).
+ *
+ * O root padrão do Spring Security monta, a cada invocação, um {@code Set<String>} com todas
+ * as authorities do usuário antes do primeiro hasRole/hasAuthority. Aqui essas verificações
+ * usam o bitset do principal SAP; o restante (isAuthenticated, hasPermission, filterObject...)
+ * e qualquer autenticação não SAP ou com hierarquia de roles vão para o root padrão.
+ */
+public class SapMethodSecurityExpressionRoot implements MethodSecurityExpressionOperations {
+
+    // Mesmas constantes públicas do SecurityExpressionRoot (usadas como propriedades no SpEL)
+    public final boolean permitAll = true;
+    public final boolean denyAll = false;
+    public final String read = "read";
+    public final String write = "write";
+    public final String create = "create";
+    public final String delete = "delete";
+    public final String admin = "administration";
+
+    private final MethodSecurityExpressionOperations delegate;
+    private final Authentication authentication;
+    private final String rolePrefix;
+    private final boolean fastPath;
+
+    SapMethodSecurityExpressionRoot(MethodSecurityExpressionOperations delegate, Authentication authentication,
+                                    String rolePrefix, boolean roleHierarchy) {
+        this.delegate = delegate;
+        this.authentication = authentication;
+        this.rolePrefix = rolePrefix;
+        this.fastPath = !roleHierarchy && authentication instanceof SapAuthenticationToken;
+    }
+
+    @Override
+    public boolean hasAuthority(String authority) {
+        return fastPath ? SapAuthorization.hasAuthority(authentication, authority) : delegate.hasAuthority(authority);
+    }
+
+    @Override
+    public boolean hasAnyAuthority(String... authorities) {
+        return fastPath ? SapAuthorization.hasAnyAuthority(authentication, authorities) : delegate.hasAnyAuthority(authorities);
+    }
+
+    @Override
+    public boolean hasRole(String role) {
+        return fastPath ? SapAuthorization.hasRole(authentication, rolePrefix, role) : delegate.hasRole(role);
+    }
+
+    @Override
+    public boolean hasAnyRole(String... roles) {
+        return fastPath ? SapAuthorization.hasAnyRole(authentication, rolePrefix, roles) : delegate.hasAnyRole(roles);
+    }
+
+    @Override
+    public Authentication getAuthentication() {
+        return authentication;
+    }
+
+    public Object getPrincipal() {
+        return authentication.getPrincipal();
+    }
+
+    @Override
+    public boolean permitAll() {
+        return true;
+    }
+
+    @Override
+    public boolean denyAll() {
+        return false;
+    }
+
+    @Override
+    public boolean isAnonymous() {
+        return delegate.isAnonymous();
+    }
+
+    @Override
+    public boolean isAuthenticated() {
+        return delegate.isAuthenticated();
+    }
+
+    @Override
+    public boolean isRememberMe() {
+        return delegate.isRememberMe();
+    }
+
+    @Override
+    public boolean isFullyAuthenticated() {
+        return delegate.isFullyAuthenticated();
+    }
+
+    @Override
+    public boolean hasPermission(Object target, Object permission) {
+        return delegate.hasPermission(target, permission);
+    }
+
+    @Override
+    public boolean hasPermission(Object targetId, String targetType, Object permission) {
+        return delegate.hasPermission(targetId, targetType, permission);
+    }
+
+    @Override
+    public void setFilterObject(Object filterObject) {
+        delegate.setFilterObject(filterObject);
+    }
+
+    @Override
+    public Object getFilterObject() {
+        return delegate.getFilterObject();
+    }
+
+    @Override
+    public void setReturnObject(Object returnObject) {
+        delegate.setReturnObject(returnObject);
+    }
+
+    @Override
+    public Object getReturnObject() {
+        return delegate.getReturnObject();
+    }
+
+    @Override
+    public Object getThis() {
+        return delegate.getThis();
+    }
+}
@@ -0,0 +1,54 @@
+package com.revvo.security;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revvo.domain.UserPermissions;
+
+import java.util.zip.CRC32C;
+
+/**
+ * Perfil do usuário (GET /sap/profile) já serializado, guardado junto do
+ * {@link SapAuthenticatedUser} no {@link SapSsoCache}: enquanto a entrada existir,
+ * o endpoint só escreve os bytes prontos.
+ *
+ * ETag forte = impressão dos roles (chave do cache) + CRC32C do corpo: muda quando os roles
+ * mudam e também se qualquer outro campo do perfil (nome, email) for diferente.
+ */
+public final class SapProfileJson {
+
+    private final byte[] json;
+    private final String etag;
+
+    private SapProfileJson(byte[] json, String etag) {
+        this.json = json;
+        this.etag = etag;
+    }
+
+    static SapProfileJson of(UserPermissions permissions, long roleFingerprint, ObjectMapper objectMapper) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(permissions);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Falha ao serializar o perfil de " + permissions.getUsername(), e);
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(json);
+        String etag = String.format("\"%016x-%08x\"", roleFingerprint, crc.getValue());
+        return new SapProfileJson(json, etag);
+    }
+
+    /**
+     * Corpo JSON (não alterar: é compartilhado entre as requisições).
+     */
+    public byte[] getJson() {
+        return json;
+    }
+
+    /**
+     * ETag forte, já entre aspas.
+     */
+    public String getEtag() {
+        return etag;
+    }
+}
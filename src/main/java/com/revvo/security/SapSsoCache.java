@@ -1,62 +1,556 @@
 package com.revvo.security;
 
-import com.revvo.domain.UserPermissions;
+import com.revvo.cache.ExpiringCache;
+import com.revvo.cache.ExpiringCacheMetrics;
+import com.revvo.config.SapSsoProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
-import java.util.Map;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 /**
- * Cache simples em memória para permissões de usuários SSO.
+ * Cache em memória para permissões de usuários SSO.
  *
- * Em produção, considere usar Redis ou outro cache distribuído
- * se tiver múltiplas instâncias da aplicação.
+ * Guarda o {@link SapAuthenticatedUser} completo (permissões, principal e authorities),
+ * então um hit não precisa remontar nada.
+ *
+ * A chave é o username mais a impressão digital dos roles recebidos ({@link RoleFingerprint}):
+ * uma mudança de roles no BTP gera um miss imediato, então o TTL pode ser longo sem servir
+ * permissões desatualizadas.
+ *
+ * - Tamanho máximo configurável (spring.security.sap.sso.cache-max-size), com evicção LRU
+ * - TTL configurável (spring.security.sap.sso.cache-ttl-minutes)
+ * - Varredura periódica em background remove entradas expiradas de usuários que não voltaram
+ * - Carga única por usuário ({@link #get(String, long, Loader)}): quando a entrada expira e várias
+ *   requisições do mesmo usuário chegam juntas, só uma recalcula; as demais aguardam o resultado
+ * - Refresh-ahead (spring.security.sap.sso.cache-refresh-ahead): uma leitura perto da expiração
+ *   devolve o valor atual e agenda o recálculo num executor limitado, para que usuários ativos
+ *   não caiam no miss síncrono
+ *
+ * - L2 opcional compartilhado entre instâncias ({@link SapSsoL2Cache}, ativo quando existe um
+ *   bean): num miss do L1, o usuário calculado por outra instância é reaproveitado; escritas vão
+ *   para os dois níveis e {@link #invalidate(String)} / {@link #invalidateAll()} limpam o L1 de
+ *   todas as instâncias
+ * - Snapshot opcional em arquivo (spring.security.sap.sso.cache-snapshot): gravado no shutdown
+ *   e recarregado no startup com o TTL restante de cada entrada, para que um redeploy não
+ *   derrube todos os usuários no miss ao mesmo tempo
  */
 @Slf4j
 @Component
 public class SapSsoCache {
 
-    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+    /**
+     * Cálculo do usuário em duas etapas: {@link #prepare(String)} roda na thread da requisição
+     * e lê o que precisar dela (headers, claims); o {@link Supplier} devolvido faz o resto e
+     * pode rodar em outra thread, depois que a requisição já terminou.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        Supplier<SapAuthenticatedUser> prepare(String username);
+
+        /**
+         * Como a requisição foi atendida; chamado uma vez por {@link #get(String, long, Loader)},
+         * na thread da requisição, antes de devolver o usuário (não é chamado se a carga falhar).
+         */
+        default void resolved(Lookup lookup) {
+        }
+    }
+
+    /**
+     * Origem do usuário devolvido por {@link #get(String, long, Loader)}.
+     */
+    public enum Lookup {
+        /** Entrada válida no L1 (inclusive quando um refresh-ahead foi agendado) */
+        HIT("hit"),
+        /** Miss no L1 atendido pelo L2 compartilhado */
+        L2("l2"),
+        /** Miss: o loader rodou nesta requisição */
+        COMPUTED("miss"),
+        /** Miss que aguardou (ou encontrou pronta) a carga de outra requisição do mesmo usuário */
+        COALESCED("coalesced");
+
+        private final String label;
+
+        Lookup(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    private final ExpiringCache<Key, SapAuthenticatedUser> cache;
+    private final long ttlMinutes;
+    private final long ttlNanos;
+
+    // Cargas em andamento por usuário
+    private final ConcurrentHashMap<Key, CompletableFuture<SapAuthenticatedUser>> loading =
+            new ConcurrentHashMap<>();
+    private final LongAdder computedLoads = new LongAdder();
+    private final LongAdder coalescedLoads = new LongAdder();
+    private final LongAdder l2Loads = new LongAdder();
+
+    // L2 compartilhado (null quando não configurado)
+    private final SapSsoL2Cache l2;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // Snapshot em arquivo (null quando desabilitado)
+    private final Path snapshotPath;
+
+    // Refresh-ahead (executor null quando desabilitado)
+    private final ThreadPoolExecutor refreshExecutor;
+    private final long refreshWindowNanos;
+    private final Set<Key> refreshing = ConcurrentHashMap.newKeySet();
+    private final LongAdder refreshed = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    private final LongAdder refreshRejections = new LongAdder();
+
+    public SapSsoCache(SapSsoProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, null);
+    }
+
+    @Autowired
+    public SapSsoCache(SapSsoProperties properties, MeterRegistry meterRegistry, @Nullable SapSsoL2Cache l2) {
+        this.l2 = l2;
+        this.cache = new ExpiringCache<>(properties.getCacheMaxSize());
+        this.ttlMinutes = properties.getCacheTtlMinutes();
+        this.ttlNanos = TimeUnit.MINUTES.toNanos(ttlMinutes);
+        ExpiringCacheMetrics.monitor(meterRegistry, cache, "sap-sso");
+
+        FunctionCounter.builder("sap.sso.cache.loads", computedLoads, LongAdder::sum)
+                .tag("result", "computed")
+                .description("Permissões calculadas após um miss no cache SSO")
+                .register(meterRegistry);
+        FunctionCounter.builder("sap.sso.cache.loads", coalescedLoads, LongAdder::sum)
+                .tag("result", "coalesced")
+                .description("Misses que aguardaram o cálculo já em andamento para o mesmo usuário")
+                .register(meterRegistry);
+        FunctionCounter.builder("sap.sso.cache.loads", l2Loads, LongAdder::sum)
+                .tag("result", "l2")
+                .description("Misses do L1 atendidos pelo L2 compartilhado")
+                .register(meterRegistry);
+
+        SapSsoProperties.CacheRefreshAhead refreshAhead = properties.getCacheRefreshAhead();
+        if (refreshAhead.isEnabled()) {
+            this.refreshExecutor = newRefreshExecutor(refreshAhead);
+            this.refreshWindowNanos = refreshAhead.getWindow().toNanos();
+            bindRefreshMetrics(meterRegistry);
+        } else {
+            this.refreshExecutor = null;
+            this.refreshWindowNanos = 0;
+        }
+
+        if (l2 != null) {
+            l2.subscribe(this::onInvalidation);
+        }
+
+        SapSsoProperties.CacheSnapshot snapshot = properties.getCacheSnapshot();
+        this.snapshotPath = snapshot.isEnabled() ? Path.of(snapshot.getPath()) : null;
+    }
+
+    public SapAuthenticatedUser get(String username, long roleFingerprint) {
+        return cache.get(new Key(username, roleFingerprint));
+    }
+
+    /**
+     * Retorna o usuário do cache ou, num miss, calcula com {@code loader} e cacheia.
+     *
+     * Misses concorrentes para o mesmo usuário são agrupados: só a primeira thread executa
+     * o loader; as demais aguardam e recebem o mesmo resultado (ou a mesma exceção).
+     * Uma falha não fica cacheada, a próxima requisição tenta de novo.
+     *
+     * Com refresh-ahead habilitado, um hit dentro da janela antes da expiração agenda o
+     * recálculo em background (no máximo um por usuário) e devolve o valor atual.
+     *
+     * A origem do resultado (hit, L2, cálculo ou espera por outra carga) é informada em
+     * {@link Loader#resolved(Lookup)}.
+     */
+    public SapAuthenticatedUser get(String username, long roleFingerprint, Loader loader) {
+        Key key = new Key(username, roleFingerprint);
+        SapAuthenticatedUser user = cache.get(key);
+        if (user != null) {
+            if (refreshExecutor != null) {
+                refreshIfExpiringSoon(key, loader);
+            }
+            loader.resolved(Lookup.HIT);
+            return user;
+        }
+
+        CompletableFuture<SapAuthenticatedUser> mine = new CompletableFuture<>();
+        CompletableFuture<SapAuthenticatedUser> inFlight = loading.putIfAbsent(key, mine);
+        if (inFlight != null) {
+            coalescedLoads.increment();
+            log.debug("Aguardando cálculo de permissões já em andamento para: {}", username);
+            user = await(inFlight);
+            loader.resolved(Lookup.COALESCED);
+            return user;
+        }
+
+        Lookup lookup = Lookup.COALESCED;
+        try {
+            // Outra thread pode ter concluído a carga entre o miss e o putIfAbsent
+            user = cache.peek(key);
+            if (user == null) {
+                user = loadFromL2(key);
+                lookup = Lookup.L2;
+            }
+            if (user == null) {
+                user = loader.prepare(username).get();
+                computedLoads.increment();
+                put(key, user);
+                lookup = Lookup.COMPUTED;
+            }
+            mine.complete(user);
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, mine);
+        }
+        loader.resolved(lookup);
+        return user;
+    }
+
+    private void refreshIfExpiringSoon(Key key, Loader loader) {
+        long remaining = cache.remainingNanos(key);
+        if (remaining < 0 || remaining > refreshWindowNanos || !refreshing.add(key)) {
+            return;
+        }
+
+        try {
+            // Dados de identidade lidos aqui, enquanto a requisição ainda está ativa
+            Supplier<SapAuthenticatedUser> refresh = loader.prepare(key.username);
+            refreshExecutor.execute(() -> refresh(key, refresh));
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+            refreshRejections.increment();
+            log.debug("Fila de refresh do cache SSO cheia, {} vai expirar normalmente", key.username);
+        } catch (RuntimeException e) {
+            refreshing.remove(key);
+            refreshFailures.increment();
+            log.warn("Falha ao preparar refresh do cache SSO para {}", key.username, e);
+        }
+    }
+
+    private void refresh(Key key, Supplier<SapAuthenticatedUser> refresh) {
+        try {
+            put(key, refresh.get());
+            refreshed.increment();
+        } catch (RuntimeException e) {
+            refreshFailures.increment();
+            log.warn("Falha no refresh do cache SSO para {}", key.username, e);
+        } finally {
+            refreshing.remove(key);
+        }
+    }
 
-    // Tempo de vida do cache em minutos (ajustar conforme necessário)
-    private static final long TTL_MINUTES = 15;
+    private static SapAuthenticatedUser await(CompletableFuture<SapAuthenticatedUser> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
 
-    public UserPermissions get(String username) {
-        CacheEntry entry = cache.get(username);
+    public void put(String username, long roleFingerprint, SapAuthenticatedUser user) {
+        put(new Key(username, roleFingerprint), user);
+    }
 
-        if (entry == null) {
+    private void put(Key key, SapAuthenticatedUser user) {
+        cache.put(key, user, ttlNanos);
+        log.debug("Permissões cacheadas para usuário: {} (TTL: {} min)", key.username, ttlMinutes);
+
+        if (l2 != null) {
+            try {
+                long expiresAtMillis = System.currentTimeMillis() + TimeUnit.NANOSECONDS.toMillis(ttlNanos);
+                byte[] value = SapAuthenticatedUserCodec.encode(user, key.roleFingerprint, expiresAtMillis);
+                l2.put(key.username, value, Duration.ofNanos(ttlNanos));
+            } catch (RuntimeException e) {
+                log.warn("Falha ao gravar {} no L2 do cache SSO", key.username, e);
+            }
+        }
+    }
+
+    /**
+     * Usuário já calculado por outra instância, se o L2 tiver uma entrada com os mesmos roles.
+     * A entrada vai para o L1 com o tempo de vida que ainda resta no L2.
+     */
+    private SapAuthenticatedUser loadFromL2(Key key) {
+        if (l2 == null) {
             return null;
         }
+        try {
+            byte[] value = l2.get(key.username);
+            if (value == null) {
+                return null;
+            }
+
+            SapAuthenticatedUserCodec.Entry entry = SapAuthenticatedUserCodec.decode(value);
+            long remainingMillis = entry.expiresAtMillis - System.currentTimeMillis();
+            if (entry.roleFingerprint != key.roleFingerprint || remainingMillis <= 0) {
+                return null;
+            }
 
-        // Verificar expiração
-        if (entry.isExpired()) {
-            log.debug("Cache expirado para usuário: {}", username);
-            cache.remove(username);
+            cache.put(key, entry.user, Math.min(ttlNanos, TimeUnit.MILLISECONDS.toNanos(remainingMillis)));
+            l2Loads.increment();
+            log.debug("Permissões recuperadas do L2 para: {}", key.username);
+            return entry.user;
+        } catch (RuntimeException e) {
+            log.warn("Falha ao ler {} do L2 do cache SSO", key.username, e);
             return null;
         }
+    }
+
+    /**
+     * Remove as entradas do usuário (todas as impressões de roles) nesta e, com L2, em todas as instâncias.
+     * Retorna quantas entradas foram removidas do L1 local (percorre o cache inteiro).
+     */
+    public int invalidate(String username) {
+        int removed = cache.removeIf(key -> key.username.equals(username));
+        propagateInvalidation(username);
+        return removed;
+    }
+
+    /**
+     * Remove as entradas com a impressão de roles informada (todos os usuários com aquele header de
+     * roles; a mesma combinação em outra ordem tem outra impressão, ver {@link RoleFingerprint}).
+     * Com L2, os usuários afetados são invalidados em todas as instâncias (o L2 é indexado por
+     * username). Retorna quantas entradas foram removidas do L1 local.
+     */
+    public int invalidateRoleFingerprint(long roleFingerprint) {
+        Set<String> usernames = new HashSet<>();
+        int removed = cache.removeIf(key -> {
+            if (key.roleFingerprint != roleFingerprint) {
+                return false;
+            }
+            usernames.add(key.username);
+            return true;
+        });
+        if (l2 != null) {
+            usernames.forEach(this::propagateInvalidation);
+        }
+        return removed;
+    }
+
+    private void propagateInvalidation(String username) {
+        if (l2 == null) {
+            return;
+        }
+        try {
+            l2.remove(username);
+            l2.publish(new SapSsoL2Cache.Invalidation(nodeId, username));
+        } catch (RuntimeException e) {
+            log.warn("Falha ao propagar invalidação de {} pelo L2 do cache SSO", username, e);
+        }
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+        if (l2 != null) {
+            try {
+                l2.clear();
+                l2.publish(new SapSsoL2Cache.Invalidation(nodeId, null));
+            } catch (RuntimeException e) {
+                log.warn("Falha ao propagar limpeza do cache SSO pelo L2", e);
+            }
+        }
+    }
 
-        return entry.userPermissions;
+    // Invalidação publicada por outra instância: só o L1 local (o L2 já foi limpo por quem publicou)
+    private void onInvalidation(SapSsoL2Cache.Invalidation invalidation) {
+        if (nodeId.equals(invalidation.getOrigin())) {
+            return;
+        }
+        if (invalidation.isAll()) {
+            cache.clear();
+            log.debug("Cache SSO limpo por invalidação de outra instância");
+        } else {
+            String username = invalidation.getUsername();
+            cache.removeIf(key -> key.username.equals(username));
+            log.debug("Usuário {} removido do cache SSO por invalidação de outra instância", username);
+        }
     }
 
-    public void put(String username, UserPermissions userPermissions) {
-        cache.put(username, new CacheEntry(userPermissions));
-        log.debug("Permissões cacheadas para usuário: {} (TTL: {} min)", username, TTL_MINUTES);
+    public int size() {
+        return cache.size();
     }
 
-    private static class CacheEntry {
-        private final UserPermissions userPermissions;
-        private final LocalDateTime expiresAt;
+    /**
+     * Estatísticas do L1 (ver {@link SapSsoCacheStats}) numa única passada pela iteração fracamente
+     * consistente do ConcurrentHashMap: não trava leituras nem escritas das requisições, e entradas
+     * alteradas durante a passada podem ou não ser contadas.
+     */
+    public SapSsoCacheStats stats(int topRoleSets) {
+        SapSsoCacheStats.Collector collector = new SapSsoCacheStats.Collector(ttlNanos);
+        cache.forEach((key, user, remainingNanos) ->
+                collector.add(key.username, key.roleFingerprint, user, remainingNanos));
+        return collector.build(cache.maxSize(), ttlMinutes, topRoleSets);
+    }
 
-        CacheEntry(UserPermissions userPermissions) {
-            this.userPermissions = userPermissions;
-            this.expiresAt = LocalDateTime.now().plusMinutes(TTL_MINUTES);
+    @Scheduled(
+            fixedDelayString = "${spring.security.sap.sso.cache-sweep-interval:PT1M}",
+            initialDelayString = "${spring.security.sap.sso.cache-sweep-interval:PT1M}")
+    public void evictExpired() {
+        int removed = cache.cleanUp();
+        if (removed > 0) {
+            log.debug("Varredura do cache SSO removeu {} entradas expiradas ({} restantes)", removed, cache.size());
         }
+    }
 
-        boolean isExpired() {
-            return LocalDateTime.now().isAfter(expiresAt);
+    @PostConstruct
+    public void restoreSnapshot() {
+        if (snapshotPath == null || !Files.exists(snapshotPath)) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            int loaded = loadSnapshot(snapshotPath);
+            log.info("Cache SSO aquecido com {} entradas do snapshot {} em {} ms",
+                     loaded, snapshotPath, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Snapshot do cache SSO ignorado ({}): {}", snapshotPath, e.toString());
+        } finally {
+            // Consumido: um restart depois de um shutdown não gracioso não recarrega dados antigos
+            try {
+                Files.deleteIfExists(snapshotPath);
+            } catch (IOException e) {
+                log.warn("Não foi possível remover o snapshot do cache SSO {}", snapshotPath, e);
+            }
         }
     }
-}
 
+    @PreDestroy
+    public void shutdown() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+        if (snapshotPath != null) {
+            try {
+                int written = writeSnapshot(snapshotPath);
+                log.info("Snapshot do cache SSO gravado com {} entradas em {}", written, snapshotPath);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Falha ao gravar o snapshot do cache SSO em {}", snapshotPath, e);
+            }
+        }
+    }
+
+    /**
+     * Grava as entradas válidas (com a expiração de cada uma) no arquivo. Retorna quantas foram gravadas.
+     */
+    public int writeSnapshot(Path path) throws IOException {
+        long nowMillis = System.currentTimeMillis();
+        List<SapSsoCacheSnapshot.Entry> entries = new ArrayList<>(cache.size());
+        cache.forEach((key, user, remainingNanos) -> entries.add(new SapSsoCacheSnapshot.Entry(
+                key.roleFingerprint, nowMillis + TimeUnit.NANOSECONDS.toMillis(remainingNanos), user)));
+
+        SapSsoCacheSnapshot.write(path, entries);
+        return entries.size();
+    }
+
+    /**
+     * Carrega no L1 as entradas ainda válidas do arquivo, com o TTL que resta a cada uma.
+     * Retorna quantas foram carregadas.
+     */
+    public int loadSnapshot(Path path) throws IOException {
+        long nowMillis = System.currentTimeMillis();
+        int[] loaded = new int[1];
+        int expired = SapSsoCacheSnapshot.read(path, nowMillis, entry -> {
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(entry.expiresAtMillis - nowMillis);
+            cache.put(new Key(entry.user.getUsername(), entry.roleFingerprint),
+                      entry.user, Math.min(ttlNanos, remainingNanos));
+            loaded[0]++;
+        });
+        log.debug("Snapshot do cache SSO: {} entradas carregadas, {} expiradas descartadas", loaded[0], expired);
+        return loaded[0];
+    }
+
+    private static final class Key {
+        private final String username;
+        private final long roleFingerprint;
+
+        Key(String username, long roleFingerprint) {
+            this.username = username;
+            this.roleFingerprint = roleFingerprint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return roleFingerprint == other.roleFingerprint && username.equals(other.username);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * username.hashCode() + Long.hashCode(roleFingerprint);
+        }
+    }
+
+    private static ThreadPoolExecutor newRefreshExecutor(SapSsoProperties.CacheRefreshAhead refreshAhead) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "sap-sso-refresh-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                refreshAhead.getThreads(), refreshAhead.getThreads(),
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(refreshAhead.getQueueCapacity()),
+                threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private void bindRefreshMetrics(MeterRegistry meterRegistry) {
+        // executor.queued, executor.queue.remaining, executor.active, executor.completed...
+        new ExecutorServiceMetrics(refreshExecutor, "sap-sso-refresh", Tags.empty()).bindTo(meterRegistry);
+
+        FunctionCounter.builder("sap.sso.cache.refreshes", refreshed, LongAdder::sum)
+                .tag("result", "success")
+                .description("Entradas do cache SSO recalculadas em background antes de expirar")
+                .register(meterRegistry);
+        FunctionCounter.builder("sap.sso.cache.refreshes", refreshFailures, LongAdder::sum)
+                .tag("result", "failure")
+                .register(meterRegistry);
+        FunctionCounter.builder("sap.sso.cache.refreshes", refreshRejections, LongAdder::sum)
+                .tag("result", "rejected")
+                .description("Refreshes descartados com a fila do executor cheia")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,79 @@
+package com.revvo.security;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Endpoint de actuator do {@link SapSsoCache} (/actuator/sapssocache, só para ADMIN):
+ *
+ * - GET: estatísticas do L1 ({@link SapSsoCacheStats}); ?top=N limita os grupos de roles (padrão 10)
+ * - DELETE ?username=...: remove um usuário (ex.: depois de uma mudança de roles no BTP)
+ * - DELETE ?roleFingerprint=...: remove todos os usuários com aquela impressão do header de roles
+ *   (hex de 16 dígitos, como no ETag de /sap/profile). É a impressão do header bruto, não do
+ *   conjunto canônico: para remover um grupo de topRoleSets inteiro, chame uma vez para cada
+ *   valor de roleFingerprints do grupo
+ * - DELETE sem parâmetros: limpa o cache inteiro
+ *
+ * Com L2 configurado, as evicções valem para todas as instâncias.
+ */
+@Slf4j
+@Component
+@Endpoint(id = "sapssocache")
+@RequiredArgsConstructor
+public class SapSsoCacheEndpoint {
+
+    private static final int DEFAULT_TOP_ROLE_SETS = 10;
+
+    private final SapSsoCache sapSsoCache;
+
+    @ReadOperation
+    public SapSsoCacheStats stats(@Nullable Integer top) {
+        int limit = top != null ? top : DEFAULT_TOP_ROLE_SETS;
+        if (limit < 0) {
+            throw new InvalidEndpointRequestException("top deve ser >= 0: " + top, "Parâmetro top inválido");
+        }
+        return sapSsoCache.stats(limit);
+    }
+
+    @DeleteOperation
+    public Map<String, Object> evict(@Nullable String username, @Nullable String roleFingerprint) {
+        if (username != null && roleFingerprint != null) {
+            throw new InvalidEndpointRequestException(
+                    "Informe username ou roleFingerprint, não os dois", "Parâmetros de evicção conflitantes");
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (username != null) {
+            result.put("username", username);
+            result.put("evicted", sapSsoCache.invalidate(username));
+        } else if (roleFingerprint != null) {
+            result.put("roleFingerprint", roleFingerprint);
+            result.put("evicted", sapSsoCache.invalidateRoleFingerprint(parseFingerprint(roleFingerprint)));
+        } else {
+            int size = sapSsoCache.size();
+            sapSsoCache.invalidateAll();
+            result.put("evicted", size);
+        }
+
+        log.info("Cache SSO: evicção via actuator {}", result);
+        return result;
+    }
+
+    private static long parseFingerprint(String hex) {
+        try {
+            return Long.parseUnsignedLong(hex.trim(), 16);
+        } catch (NumberFormatException e) {
+            throw new InvalidEndpointRequestException(
+                    "roleFingerprint inválido (esperado hex de até 16 dígitos): " + hex, "roleFingerprint inválido");
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.revvo.security;
+
+import com.revvo.domain.RoleSet;
+import com.revvo.domain.UserPermissions;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Snapshot do {@link SapSsoCache} em arquivo, para aquecer o cache após um redeploy.
+ *
+ * Formato (big-endian; varint = inteiro sem sinal em base 128; str = varint (tamanho + 1, 0 = null) + UTF-8):
+ * <pre>
+ * int     magic "RVSC"
+ * short   versão (1)
+ * long    gravado em (epoch millis)
+ * varint  N strings, str*                       dicionário: roles SAP/Revvo, authorities, source
+ * varint  M listas, (varint n, varint id*)*     listas distintas de roles/authorities (ids do dicionário)
+ * varint  K entradas, entrada*
+ *
+ * entrada: long impressão dos roles, long expiração (epoch millis),
+ *          str username, str name, str email, varint source (id + 1, 0 = null),
+ *          varint sapRoles, varint revvoRoles, varint authorities   (ids de lista)
+ * </pre>
+ *
+ * Roles e conjuntos de roles se repetem entre milhares de usuários: no arquivo cada um aparece
+ * uma vez, e na leitura os {@link RoleSet} (e as authorities) decodificados são compartilhados pelas entradas.
+ * A leitura é feita sobre um {@link MappedByteBuffer}, sem cópia do arquivo para o heap.
+ */
+final class SapSsoCacheSnapshot {
+
+    private static final int MAGIC = 0x52565343; // "RVSC"
+    private static final short VERSION = 1;
+
+    private SapSsoCacheSnapshot() {
+    }
+
+    static final class Entry {
+        final long roleFingerprint;
+        final long expiresAtMillis;
+        final SapAuthenticatedUser user;
+
+        Entry(long roleFingerprint, long expiresAtMillis, SapAuthenticatedUser user) {
+            this.roleFingerprint = roleFingerprint;
+            this.expiresAtMillis = expiresAtMillis;
+            this.user = user;
+        }
+    }
+
+    // -------- Escrita --------
+
+    /**
+     * Grava as entradas num arquivo temporário e o move para {@code path} (o snapshot anterior
+     * só é substituído se a gravação terminar).
+     */
+    static void write(Path path, List<Entry> entries) throws IOException {
+        Map<String, Integer> strings = new HashMap<>();
+        List<String> stringTable = new ArrayList<>();
+        Map<List<String>, Integer> lists = new HashMap<>();
+        List<int[]> listTable = new ArrayList<>();
+
+        int[][] refs = new int[entries.size()][];
+        for (int i = 0; i < entries.size(); i++) {
+            UserPermissions p = entries.get(i).user.getPermissions();
+            List<String> authorities = new ArrayList<>(entries.get(i).user.getAuthorities().size());
+            for (GrantedAuthority authority : entries.get(i).user.getAuthorities()) {
+                authorities.add(authority.getAuthority());
+            }
+
+            refs[i] = new int[] {
+                    p.getSource() != null ? intern(p.getSource(), strings, stringTable) + 1 : 0,
+                    internList(p.getSapRoles(), strings, stringTable, lists, listTable),
+                    internList(p.getRevvoRoles(), strings, stringTable, lists, listTable),
+                    internList(authorities, strings, stringTable, lists, listTable)
+            };
+        }
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(System.currentTimeMillis());
+
+            writeVarInt(out, stringTable.size());
+            for (String s : stringTable) {
+                writeString(out, s);
+            }
+
+            writeVarInt(out, listTable.size());
+            for (int[] ids : listTable) {
+                writeVarInt(out, ids.length);
+                for (int id : ids) {
+                    writeVarInt(out, id);
+                }
+            }
+
+            writeVarInt(out, entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                Entry e = entries.get(i);
+                UserPermissions p = e.user.getPermissions();
+                out.writeLong(e.roleFingerprint);
+                out.writeLong(e.expiresAtMillis);
+                writeString(out, p.getUsername());
+                writeString(out, p.getName());
+                writeString(out, p.getEmail());
+                for (int ref : refs[i]) {
+                    writeVarInt(out, ref);
+                }
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int intern(String s, Map<String, Integer> strings, List<String> stringTable) {
+        Integer id = strings.get(s);
+        if (id == null) {
+            id = stringTable.size();
+            strings.put(s, id);
+            stringTable.add(s);
+        }
+        return id;
+    }
+
+    // Lista null é gravada como vazia
+    private static int internList(List<String> values, Map<String, Integer> strings, List<String> stringTable,
+                                  Map<List<String>, Integer> lists, List<int[]> listTable) {
+        List<String> key = values != null ? values : Collections.emptyList();
+        Integer id = lists.get(key);
+        if (id == null) {
+            int[] ids = new int[key.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = intern(key.get(i), strings, stringTable);
+            }
+            id = listTable.size();
+            lists.put(key, id);
+            listTable.add(ids);
+        }
+        return id;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    // -------- Leitura --------
+
+    /**
+     * Lê o snapshot e entrega as entradas ainda válidas em {@code nowMillis}.
+     * Retorna quantas entradas foram descartadas por já terem expirado.
+     *
+     * @throws IllegalArgumentException se o arquivo não for um snapshot, for de outra versão ou estiver truncado
+     */
+    static int read(Path path, long nowMillis, Consumer<Entry> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer, nowMillis, sink);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Snapshot truncado: " + path, e);
+        }
+    }
+
+    private static int read(ByteBuffer in, long nowMillis, Consumer<Entry> sink) {
+        if (in.remaining() < 6 || in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Arquivo não é um snapshot do cache SSO");
+        }
+        short version = in.getShort();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Versão de snapshot não suportada: " + version);
+        }
+        in.getLong(); // gravado em
+
+        String[] strings = new String[readVarInt(in)];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = readString(in);
+        }
+
+        int[][] listIds = new int[readVarInt(in)][];
+        for (int i = 0; i < listIds.length; i++) {
+            int[] ids = new int[readVarInt(in)];
+            for (int j = 0; j < ids.length; j++) {
+                ids[j] = readVarInt(in);
+            }
+            listIds[i] = ids;
+        }
+
+        Lists lists = new Lists(strings, listIds);
+
+        int count = readVarInt(in);
+        int expired = 0;
+        for (int i = 0; i < count; i++) {
+            long roleFingerprint = in.getLong();
+            long expiresAtMillis = in.getLong();
+            String username = readString(in);
+            String name = readString(in);
+            String email = readString(in);
+            int source = readVarInt(in);
+            int sapRoles = readVarInt(in);
+            int revvoRoles = readVarInt(in);
+            int authorities = readVarInt(in);
+
+            if (expiresAtMillis <= nowMillis) {
+                expired++;
+                continue;
+            }
+
+            UserPermissions permissions = UserPermissions.builder()
+                    .username(username)
+                    .name(name)
+                    .email(email)
+                    .source(source > 0 ? strings[source - 1] : null)
+                    .sapRoleSet(lists.roleSet(sapRoles))
+                    .revvoRoleSet(lists.roleSet(revvoRoles))
+                    .build();
+            SapAuthenticatedUser user = new SapAuthenticatedUser(permissions, lists.authorities(authorities));
+            sink.accept(new Entry(roleFingerprint, expiresAtMillis, user));
+        }
+        return expired;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("varint malformado no snapshot");
+    }
+
+    /**
+     * Listas decodificadas sob demanda e compartilhadas entre as entradas que usam o mesmo id.
+     */
+    private static final class Lists {
+        private final String[] strings;
+        private final int[][] ids;
+        private final RoleSet[] roleSets;
+        private final List<List<GrantedAuthority>> authorityLists;
+        private final GrantedAuthority[] authorities;
+
+        Lists(String[] strings, int[][] ids) {
+            this.strings = strings;
+            this.ids = ids;
+            this.roleSets = new RoleSet[ids.length];
+            this.authorityLists = new ArrayList<>(Collections.nCopies(ids.length, null));
+            this.authorities = new GrantedAuthority[strings.length];
+        }
+
+        RoleSet roleSet(int list) {
+            RoleSet values = roleSets[list];
+            if (values == null) {
+                String[] array = new String[ids[list].length];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = strings[ids[list][i]];
+                }
+                // Roles SAP do snapshot já tinham sido observados antes do restart
+                values = RoleSet.intern(Arrays.asList(array));
+                roleSets[list] = values;
+            }
+            return values;
+        }
+
+        List<GrantedAuthority> authorities(int list) {
+            List<GrantedAuthority> values = authorityLists.get(list);
+            if (values == null) {
+                GrantedAuthority[] array = new GrantedAuthority[ids[list].length];
+                for (int i = 0; i < array.length; i++) {
+                    int id = ids[list][i];
+                    if (authorities[id] == null) {
+                        authorities[id] = new SimpleGrantedAuthority(strings[id]);
+                    }
+                    array[i] = authorities[id];
+                }
+                values = List.of(array);
+                authorityLists.set(list, values);
+            }
+            return values;
+        }
+    }
+}
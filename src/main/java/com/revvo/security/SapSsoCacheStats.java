@@ -0,0 +1,191 @@
+package com.revvo.security;
+
+import com.revvo.domain.RoleSet;
+import com.revvo.domain.UserPermissions;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fotografia do L1 do {@link SapSsoCache} para o endpoint /actuator/sapssocache
+ * ({@link SapSsoCacheEndpoint}).
+ *
+ * - entries: entradas válidas vistas na passada
+ * - estimatedBytes: heap retido estimado (entradas do mapa, usuários, strings e JSON de perfil;
+ *   conjuntos de roles compartilhados contados uma vez), sem percorrer o grafo por reflexão
+ * - ageDistribution: idade das entradas desde o cálculo (TTL menos o tempo restante)
+ * - topRoleSets: conjuntos de roles SAP com mais usuários, agrupados pela forma canônica
+ *   (ordenada, sem duplicatas), como no memo do {@link com.revvo.service.PermissionService}
+ */
+@Value
+@Builder
+public class SapSsoCacheStats {
+
+    // Limites das faixas de idade, em minutos
+    private static final long[] AGE_LIMITS_MINUTES = {1, 5, 15, 30, 60};
+
+    int entries;
+    int maxSize;
+    long ttlMinutes;
+    long estimatedBytes;
+    long oldestEntrySeconds;
+    Map<String, Long> ageDistribution;
+    List<RoleSetGroup> topRoleSets;
+
+    @Value
+    public static class RoleSetGroup {
+        // Impressões do header de roles vistas no grupo (a mesma combinação em outra ordem ou com
+        // duplicatas tem outra impressão). Mesmo formato do ETag de /sap/profile e do DELETE
+        // ?roleFingerprint, que remove só os usuários daquela impressão
+        List<String> roleFingerprints;
+        int users;
+        int sapRoles;
+        List<String> revvoRoles;
+    }
+
+    /**
+     * Acumula as entradas de uma passada pelo cache. Não é thread-safe: uma instância por chamada.
+     */
+    static final class Collector {
+
+        // Estimativas (JVM 64 bits, compressed oops): cabeçalho 12 bytes, referência 4, alinhamento 8
+        private static final int MAP_ENTRY_BYTES = 32 + 24 + 32; // nó do ConcurrentHashMap + Key + entrada com expiração
+        private static final int USER_BYTES = 24 + 40;            // SapAuthenticatedUser + UserPermissions
+
+        private final long ttlNanos;
+        private final long[] ageBuckets = new long[AGE_LIMITS_MINUTES.length + 1];
+        private final Map<List<String>, Group> groups = new HashMap<>();
+        // Forma canônica de cada RoleSet (compartilhados entre usuários: ordenados uma vez por instância)
+        private final Map<RoleSet, List<String>> canonical = new IdentityHashMap<>();
+        private final Set<Object> shared = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private int entries;
+        private long bytes;
+        private long oldestNanos;
+
+        Collector(long ttlNanos) {
+            this.ttlNanos = ttlNanos;
+        }
+
+        void add(String username, long roleFingerprint, SapAuthenticatedUser user, long remainingNanos) {
+            entries++;
+
+            long age = Math.max(0, ttlNanos - remainingNanos);
+            oldestNanos = Math.max(oldestNanos, age);
+            ageBuckets[ageBucket(age)]++;
+
+            UserPermissions permissions = user.getPermissions();
+            bytes += MAP_ENTRY_BYTES + USER_BYTES
+                    + stringBytes(username) + stringBytes(permissions.getName()) + stringBytes(permissions.getEmail())
+                    + user.lazyBytes();
+            bytes += sharedBytes(permissions.getSapRoleSet()) + sharedBytes(permissions.getRevvoRoleSet())
+                    + sharedBytes(user.getAuthorities());
+
+            List<String> roleSet = canonical(permissions.getSapRoleSet());
+            Group group = groups.get(roleSet);
+            if (group == null) {
+                group = new Group(roleSet, permissions);
+                groups.put(roleSet, group);
+            }
+            group.roleFingerprints.add(roleFingerprint);
+            group.users++;
+        }
+
+        private List<String> canonical(RoleSet roles) {
+            if (roles == null) {
+                return List.of();
+            }
+            List<String> result = canonical.get(roles);
+            if (result == null) {
+                result = List.copyOf(new TreeSet<>(roles.names()));
+                canonical.put(roles, result);
+            }
+            return result;
+        }
+
+        SapSsoCacheStats build(int maxSize, long ttlMinutes, int top) {
+            Map<String, Long> ages = new LinkedHashMap<>();
+            long previous = 0;
+            for (int i = 0; i < AGE_LIMITS_MINUTES.length; i++) {
+                ages.put(previous + "m-" + AGE_LIMITS_MINUTES[i] + "m", ageBuckets[i]);
+                previous = AGE_LIMITS_MINUTES[i];
+            }
+            ages.put(">=" + previous + "m", ageBuckets[AGE_LIMITS_MINUTES.length]);
+
+            List<Group> sorted = new ArrayList<>(groups.values());
+            sorted.sort(Comparator.comparingInt((Group g) -> g.users).reversed());
+            List<RoleSetGroup> topGroups = new ArrayList<>(Math.min(top, sorted.size()));
+            for (Group group : sorted.subList(0, Math.min(top, sorted.size()))) {
+                topGroups.add(group.toRoleSetGroup());
+            }
+
+            return SapSsoCacheStats.builder()
+                    .entries(entries)
+                    .maxSize(maxSize)
+                    .ttlMinutes(ttlMinutes)
+                    .estimatedBytes(bytes)
+                    .oldestEntrySeconds(TimeUnit.NANOSECONDS.toSeconds(oldestNanos))
+                    .ageDistribution(ages)
+                    .topRoleSets(topGroups)
+                    .build();
+        }
+
+        private static int ageBucket(long ageNanos) {
+            long minutes = TimeUnit.NANOSECONDS.toMinutes(ageNanos);
+            for (int i = 0; i < AGE_LIMITS_MINUTES.length; i++) {
+                if (minutes < AGE_LIMITS_MINUTES[i]) {
+                    return i;
+                }
+            }
+            return AGE_LIMITS_MINUTES.length;
+        }
+
+        // RoleSet / lista de authorities: compartilhados por conjunto de roles, contados na primeira vez
+        private long sharedBytes(Object value) {
+            if (value == null || !shared.add(value)) {
+                return 0;
+            }
+            int size = value instanceof RoleSet ? ((RoleSet) value).size() : ((List<?>) value).size();
+            return 24 + align(16 + 4L * size);
+        }
+
+        static long stringBytes(String s) {
+            return s == null ? 0 : 24 + align(16 + s.length());
+        }
+
+        static long align(long bytes) {
+            return (bytes + 7) & ~7L;
+        }
+    }
+
+    private static final class Group {
+        final Set<Long> roleFingerprints = new TreeSet<>(Long::compareUnsigned);
+        final int sapRoles;
+        final List<String> revvoRoles;
+        int users;
+
+        Group(List<String> sapRoles, UserPermissions permissions) {
+            this.sapRoles = sapRoles.size();
+            this.revvoRoles = permissions.getRevvoRoles() != null ? List.copyOf(permissions.getRevvoRoles()) : List.of();
+        }
+
+        RoleSetGroup toRoleSetGroup() {
+            List<String> fingerprints = new ArrayList<>(roleFingerprints.size());
+            for (long fingerprint : roleFingerprints) {
+                fingerprints.add(String.format("%016x", fingerprint));
+            }
+            return new RoleSetGroup(fingerprints, users, sapRoles, revvoRoles);
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.revvo.security;
 
 import com.revvo.sap.SapContextExtractor;
+import com.revvo.sap.SapIdentityContext;
 import com.revvo.service.PermissionService;
+import com.revvo.service.RoleSetMapping;
 import com.revvo.domain.UserPermissions;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -9,19 +11,14 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.User;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 /**
  * Filtro para autenticação SSO com SAP Build Work Zone / Fiori Launchpad.
@@ -34,6 +31,8 @@ import java.util.stream.Collectors;
  * 2. Mapeia roles SAP para roles Revvo
  * 3. Cacheia as permissões para otimizar performance
  * 4. Configura o SecurityContext do Spring Security automaticamente
+ * 5. Registra a autenticação no {@link AuthenticationAuditLog} (sem formatar log na requisição)
+ *    e nas métricas por etapa ({@link SapSsoMetrics})
  *
  * Resultado: O usuário já vem "logado" sem necessidade de tela de login.
  */
@@ -45,6 +44,10 @@ public class SapSsoFilter extends OncePerRequestFilter {
     private final SapContextExtractor sapContextExtractor;
     private final PermissionService permissionService;
     private final SapSsoCache sapSsoCache;
+    private final AuthenticationAuditLog auditLog;
+    private final SapSsoMetrics metrics;
+
+    private final WebAuthenticationDetailsSource authenticationDetailsSource = new WebAuthenticationDetailsSource();
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -60,78 +63,98 @@ public class SapSsoFilter extends OncePerRequestFilter {
         }
 
         try {
-            // 1. Extrair usuário do contexto SAP (headers)
-            String username = sapContextExtractor.extractUsername(request);
+            // 1. Extrair usuário do contexto SAP (headers) - resolvido uma vez por requisição
+            SapIdentityContext identity = sapContextExtractor.resolve(request);
+            String username = identity.hasIdentity() ? identity.getUsername() : null;
 
             if (username != null && !username.isBlank()) {
                 log.debug("SAP SSO detectado para usuário: {}", username);
+                long start = System.nanoTime();
 
-                // 2. Verificar cache
-                UserPermissions cachedPermissions = sapSsoCache.get(username);
-
-                UserPermissions userPermissions;
-                if (cachedPermissions != null) {
-                    log.debug("Permissões recuperadas do cache para: {}", username);
-                    userPermissions = cachedPermissions;
-                } else {
-                    // 3. Extrair informações completas do usuário dos headers
-                    String name = sapContextExtractor.extractUserName(request);
-                    String email = sapContextExtractor.extractUserEmail(request);
-                    List<String> sapRoles = sapContextExtractor.extractSapRoles(request);
+                // 2. Verificar cache por usuário + roles recebidos (num miss, só uma requisição recalcula;
+                //    perto da expiração, o recálculo vai para background)
+                long roleFingerprint = identity.getRoleFingerprint();
+                UserLoad load = new UserLoad(identity);
+                SapAuthenticatedUser user = sapSsoCache.get(username, roleFingerprint, load);
 
-                    log.debug("Informações SAP extraídas - Nome: {}, Email: {}, Roles: {}", name, email, sapRoles);
+                // 6. Criar Authentication a partir do principal/authorities já prontos
+                SapAuthenticationToken auth = new SapAuthenticationToken(user);
 
-                    // 4. Processar permissões (mapear SAP → Revvo)
-                    userPermissions = permissionService.processUserPermissions(username, name, email, sapRoles);
+                auth.setDetails(authenticationDetailsSource.buildDetails(request));
 
-                    // 5. Cachear
-                    sapSsoCache.put(username, userPermissions);
-                }
+                // 7. Configurar SecurityContext
+                SecurityContextHolder.getContext().setAuthentication(auth);
 
-                // 6. Montar authorities do Spring Security
-                List<GrantedAuthority> authorities = userPermissions.getRevvoRoles().stream()
-                        .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
-                        .collect(Collectors.toList());
+                // 8. Auditoria (gravada em background) e métricas
+                boolean fromHeader = identity.isUsernameFromHeader();
+                auditLog.record(username,
+                        fromHeader ? AuthenticationAuditLog.SOURCE_HEADER : AuthenticationAuditLog.SOURCE_JWT,
+                        roleFingerprint, load.lookup, System.nanoTime() - start);
+                metrics.authenticated(fromHeader, user.getPermissions().getSapRoleSet().size(), start);
 
-                // Adicionar roles SAP também (para auditoria/debug)
-                userPermissions.getSapRoles().forEach(sapRole ->
-                    authorities.add(new SimpleGrantedAuthority("SAP_" + sapRole))
-                );
+                if (log.isDebugEnabled()) {
+                    log.debug("Usuário {} autenticado via SAP SSO com {} roles SAP",
+                              username, user.getPermissions().getSapRoleSet().size());
+                }
+            }
+        } catch (Exception e) {
+            log.error("Erro ao processar SSO SAP", e);
+        }
 
-                // 7. Criar UserDetails e Authentication
-                UserDetails userDetails = User.withUsername(username)
-                        .password("N/A") // não usado em SSO
-                        .authorities(authorities)
-                        .build();
+        filterChain.doFilter(request, response);
+    }
 
-                UsernamePasswordAuthenticationToken auth =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails,
-                                null,
-                                userDetails.getAuthorities()
-                        );
+    /**
+     * Carga do usuário num miss do cache: lê os dados do contexto SAP (na thread da requisição)
+     * e devolve o cálculo do usuário autenticado, que só depende desses valores e pode rodar
+     * depois, em background. Também guarda como o cache atendeu a requisição, para a auditoria.
+     */
+    private final class UserLoad implements SapSsoCache.Loader {
 
-                auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        private final SapIdentityContext identity;
+        private SapSsoCache.Lookup lookup;
 
-                // 8. Configurar SecurityContext
-                SecurityContextHolder.getContext().setAuthentication(auth);
+        UserLoad(SapIdentityContext identity) {
+            this.identity = identity;
+        }
 
-                log.info("Usuário {} autenticado via SAP SSO com {} roles SAP",
-                         username, userPermissions.getSapRoles().size());
-            }
-        } catch (Exception e) {
-            log.error("Erro ao processar SSO SAP", e);
+        @Override
+        public Supplier<SapAuthenticatedUser> prepare(String username) {
+            // 3. Extrair informações completas do usuário dos headers
+            String name = identity.getName();
+            String email = identity.getEmail();
+            List<String> sapRoles = identity.getSapRoles();
+
+            log.debug("Informações SAP extraídas - Nome: {}, Email: {}, Roles: {}", name, email, sapRoles);
+
+            return () -> {
+                // 4. Processar permissões (mapear SAP → Revvo, compartilhado por conjunto de roles)
+                RoleSetMapping roleSet = permissionService.mapRoles(sapRoles);
+
+                // 5. Montar o principal uma única vez
+                long buildStart = metrics.start();
+                UserPermissions userPermissions =
+                        permissionService.processUserPermissions(username, name, email, sapRoles, roleSet);
+                SapAuthenticatedUser user = new SapAuthenticatedUser(userPermissions, roleSet.getAuthorities());
+                metrics.stop(SapSsoMetrics.Stage.AUTHORITY_BUILD, buildStart);
+                return user;
+            };
         }
 
-        filterChain.doFilter(request, response);
+        @Override
+        public void resolved(SapSsoCache.Lookup lookup) {
+            this.lookup = lookup;
+        }
     }
 
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) {
-        // Não aplicar filtro em rotas públicas
+        // Não aplicar filtro em rotas públicas (detect-environment faz a própria detecção leve);
+        // no actuator, só o health é público (os demais endpoints exigem ADMIN)
         String path = request.getServletPath();
         return path.startsWith("/public")
-            || path.startsWith("/actuator")
+            || path.equals("/sap/detect-environment")
+            || path.startsWith("/actuator/health")
             || path.startsWith("/error");
     }
 }
@@ -0,0 +1,65 @@
+package com.revvo.security;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Segundo nível (compartilhado entre instâncias) do {@link SapSsoCache}.
+ *
+ * O L1 continua sendo o cache em memória de cada instância; o L2 evita que cada instância
+ * recalcule as permissões de um usuário que outra já calculou (cold start após deploy,
+ * scale-out). Os valores são bytes no formato de {@link SapAuthenticatedUserCodec}, uma
+ * entrada por username (a impressão dos roles vai dentro do valor).
+ *
+ * Também transporta as mensagens de invalidação: {@link SapSsoCache#invalidate(String)}
+ * remove o usuário do L2 e publica a invalidação para que as outras instâncias limpem o L1.
+ *
+ * Uma implementação típica é Redis (GET/SET com EX/DEL + pub/sub). Falhas do L2 não
+ * derrubam a autenticação: o {@link SapSsoCache} registra e segue só com o L1.
+ */
+public interface SapSsoL2Cache {
+
+    /**
+     * Valor codificado do usuário, ou null se não existir (ou tiver expirado).
+     */
+    byte[] get(String username);
+
+    void put(String username, byte[] value, Duration ttl);
+
+    void remove(String username);
+
+    void clear();
+
+    /**
+     * Envia a invalidação para todas as instâncias inscritas (inclusive a que publicou).
+     */
+    void publish(Invalidation invalidation);
+
+    void subscribe(Consumer<Invalidation> listener);
+
+    /**
+     * Mensagem de invalidação: um usuário ou, com username null, o cache inteiro.
+     */
+    final class Invalidation {
+        private final String origin;
+        private final String username;
+
+        public Invalidation(String origin, String username) {
+            this.origin = origin;
+            this.username = username;
+        }
+
+        // Instância que publicou (para ignorar a própria mensagem)
+        public String getOrigin() {
+            return origin;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public boolean isAll() {
+            return username == null;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.revvo.security;
+
+import com.revvo.config.SapSsoProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas de cada etapa da autenticação SSO (spring.security.sap.sso.metrics.enabled),
+ * publicadas no actuator (/actuator/metrics, /actuator/prometheus):
+ *
+ * - sap.sso.stage{stage}: latência por etapa (header_probe, jwt_decode, role_extraction,
+ *   mapping, authority_build); histograma ligado no application.yaml
+ *   (management.metrics.distribution.percentiles-histogram)
+ * - sap.sso.authentication{source=header|jwt}: autenticações do filtro por origem do usuário,
+ *   com a latência total
+ * - sap.sso.roles: quantidade de roles SAP por autenticação
+ *
+ * Hit ratio, tamanho e evicções dos caches vêm das métricas cache.* ({@link com.revvo.cache.ExpiringCacheMetrics}).
+ *
+ * Os meters são criados uma vez (sem lookup por tags na requisição). Desligado, nenhum meter é
+ * registrado e {@link #start()} não lê o relógio: o custo é um teste de campo final por etapa.
+ *
+ * Uso: {@code long t = metrics.start(); ...; metrics.stop(Stage.MAPPING, t);}
+ */
+@Component
+public class SapSsoMetrics {
+
+    public enum Stage {
+        HEADER_PROBE("header_probe"),
+        JWT_DECODE("jwt_decode"),
+        ROLE_EXTRACTION("role_extraction"),
+        MAPPING("mapping"),
+        AUTHORITY_BUILD("authority_build");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    // Para uso fora do Spring (testes, benchmarks) e como padrão dos construtores curtos
+    public static final SapSsoMetrics DISABLED = new SapSsoMetrics();
+
+    private final boolean enabled;
+    private final Timer[] stages;
+    private final Timer headerAuthentications;
+    private final Timer jwtAuthentications;
+    private final DistributionSummary roleCount;
+
+    @Autowired
+    public SapSsoMetrics(SapSsoProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.getMetrics().isEnabled();
+        if (!enabled) {
+            this.stages = null;
+            this.headerAuthentications = null;
+            this.jwtAuthentications = null;
+            this.roleCount = null;
+            return;
+        }
+
+        this.stages = new Timer[Stage.values().length];
+        for (Stage stage : Stage.values()) {
+            stages[stage.ordinal()] = Timer.builder("sap.sso.stage")
+                    .tag("stage", stage.tag)
+                    .description("Latência de cada etapa da autenticação SSO")
+                    .register(meterRegistry);
+        }
+        this.headerAuthentications = authenticationTimer(meterRegistry, AuthenticationAuditLog.SOURCE_HEADER);
+        this.jwtAuthentications = authenticationTimer(meterRegistry, AuthenticationAuditLog.SOURCE_JWT);
+        this.roleCount = DistributionSummary.builder("sap.sso.roles")
+                .baseUnit("roles")
+                .description("Quantidade de roles SAP por autenticação")
+                .register(meterRegistry);
+    }
+
+    private SapSsoMetrics() {
+        this.enabled = false;
+        this.stages = null;
+        this.headerAuthentications = null;
+        this.jwtAuthentications = null;
+        this.roleCount = null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Início de uma medição; 0 quando desligado (sem ler o relógio).
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public void stop(Stage stage, long start) {
+        if (enabled) {
+            stages[stage.ordinal()].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Uma autenticação concluída pelo filtro: origem do username, quantidade de roles SAP e
+     * latência total (do início da medição até aqui).
+     */
+    public void authenticated(boolean fromHeader, int sapRoles, long start) {
+        if (enabled) {
+            (fromHeader ? headerAuthentications : jwtAuthentications)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            roleCount.record(sapRoles);
+        }
+    }
+
+    private static Timer authenticationTimer(MeterRegistry meterRegistry, String source) {
+        return Timer.builder("sap.sso.authentication")
+                .tag("source", source)
+                .description("Autenticações SSO por origem do usuário (header do approuter ou claim do JWT)")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,47 @@
+package com.revvo.security;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Value;
+
+/**
+ * Claims de um token XSUAA que o Revvo usa, extraídas pelo parser em streaming
+ * (ver {@link JwtClaimsExtractor#extractSapClaims(String)}). Todo o resto do payload
+ * (xs.user.attributes, demais atributos de sistema, etc.) é ignorado.
+ *
+ * Valores escalares ficam como texto, exatamente como vieram no JSON (sem trim).
+ * Claims de roles (groups, roles, authorities, xs.rolecollections) podem vir como
+ * lista ou como string no token, então ficam como {@code List<String>} ou {@code String}.
+ */
+@Value
+@Builder
+public class SapTokenClaims {
+
+    public static final SapTokenClaims EMPTY = SapTokenClaims.builder().build();
+
+    String preferredUsername;
+    String userName;
+    String email;
+    String sub;
+
+    String name;
+    String givenName;
+    String familyName;
+
+    // xs.system.attributes → xs.rolecollections (role collections do BTP)
+    Object roleCollections;
+    Object groups;
+    Object roles;
+    Object authorities;
+    String scope;
+
+    // Expiração (epoch seconds), null se ausente
+    Long exp;
+
+    // "aud": lista ou string, como os roles
+    Object audience;
+
+    // Calculada uma vez por token (as claims ficam em cache por digest do token)
+    @Getter(lazy = true)
+    long roleFingerprint = RoleFingerprint.ofClaims(this);
+}
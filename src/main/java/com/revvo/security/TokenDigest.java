@@ -0,0 +1,101 @@
+package com.revvo.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Digest SHA-256 de um token, usado como chave de cache.
+ *
+ * Evita reter o token inteiro (alguns KB) como chave e, por ser criptográfico,
+ * não permite que um token forjado colida com a entrada de outro usuário.
+ */
+public final class TokenDigest {
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 não disponível", e);
+        }
+    });
+
+    // Buffer reutilizável para converter o token (ASCII) em bytes sem alocar
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[4096]);
+
+    // Buffers maiores que isso não ficam retidos na thread
+    private static final int MAX_RETAINED_SCRATCH = 64 * 1024;
+
+    private final long h0;
+    private final long h1;
+    private final long h2;
+    private final long h3;
+
+    private TokenDigest(byte[] d) {
+        this.h0 = toLong(d, 0);
+        this.h1 = toLong(d, 8);
+        this.h2 = toLong(d, 16);
+        this.h3 = toLong(d, 24);
+    }
+
+    public static TokenDigest of(String token) {
+        MessageDigest md = SHA256.get();
+        int len = token.length();
+
+        byte[] scratch = scratch(len);
+        if (isAscii(token)) {
+            for (int i = 0; i < len; i++) {
+                scratch[i] = (byte) token.charAt(i);
+            }
+            md.update(scratch, 0, len);
+        } else {
+            md.update(token.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return new TokenDigest(md.digest());
+    }
+
+    private static byte[] scratch(int size) {
+        byte[] scratch = SCRATCH.get();
+        if (scratch.length >= size) return scratch;
+
+        scratch = new byte[Math.max(size, scratch.length * 2)];
+        if (scratch.length <= MAX_RETAINED_SCRATCH) {
+            SCRATCH.set(scratch);
+        }
+        return scratch;
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > 0x7F) return false;
+        }
+        return true;
+    }
+
+    private static long toLong(byte[] b, int off) {
+        long v = 0;
+        for (int i = 0; i < 8; i++) {
+            v = (v << 8) | (b[off + i] & 0xFF);
+        }
+        return v;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TokenDigest)) return false;
+        TokenDigest other = (TokenDigest) o;
+        return h0 == other.h0 && h1 == other.h1 && h2 == other.h2 && h3 == other.h3;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (h0 ^ (h0 >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x%016x%016x", h0, h1, h2, h3);
+    }
+}
@@ -1,8 +1,14 @@
 package com.revvo.service;
 
+import com.revvo.cache.ExpiringCache;
+import com.revvo.cache.ExpiringCacheMetrics;
+import com.revvo.config.SapSsoProperties;
+import com.revvo.domain.RoleSet;
 import com.revvo.domain.UserPermissions;
-import lombok.RequiredArgsConstructor;
+import com.revvo.security.SapSsoMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -12,54 +18,110 @@ import java.util.*;
  *
  * Este serviço:
  * 1. Normaliza roles SAP recebidos
- * 2. Mapeia roles SAP para roles Revvo (implementar conforme REV-339)
+ * 2. Mapeia roles SAP para roles Revvo via {@link RoleMappingEngine} (regras do application.yaml)
  * 3. Monta o objeto UserPermissions completo
+ *
+ * O mapeamento é memorizado por conjunto de roles SAP: milhares de usuários compartilham
+ * poucas dezenas de combinações distintas, então cada combinação é mapeada uma vez e o
+ * resultado ({@link RoleSetMapping}) é compartilhado entre todos os usuários que a possuem.
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class PermissionService {
 
+    private final RoleMappingEngine roleMappingEngine;
+    private final ExpiringCache<RoleSetMapping.Key, RoleSetMapping> roleSets;
+    private final SapSsoMetrics metrics;
+
+    public PermissionService(RoleMappingEngine roleMappingEngine,
+                             SapSsoProperties properties,
+                             MeterRegistry meterRegistry) {
+        this(roleMappingEngine, properties, meterRegistry, SapSsoMetrics.DISABLED);
+    }
+
+    @Autowired
+    public PermissionService(RoleMappingEngine roleMappingEngine,
+                             SapSsoProperties properties,
+                             MeterRegistry meterRegistry,
+                             SapSsoMetrics metrics) {
+        this.roleMappingEngine = roleMappingEngine;
+        this.metrics = metrics;
+        this.roleSets = new ExpiringCache<>(properties.getRoleSetCacheMaxSize());
+        ExpiringCacheMetrics.monitor(meterRegistry, roleSets, "sap-role-sets");
+    }
+
     public UserPermissions processUserPermissions(
             String username,
             String name,
             String email,
             List<String> sapRoles
     ) {
-        Set<String> revvoRoles = mapSapRolesToRevvo(sapRoles);
+        return processUserPermissions(username, name, email, sapRoles, mapRoles(sapRoles));
+    }
 
+    /**
+     * Monta as permissões com o mapeamento já obtido por {@link #mapRoles(List)} para os mesmos roles.
+     * Os roles SAP do perfil ficam na ordem em que vieram (a forma canônica só indexa o cache);
+     * quando já vieram em ordem canônica, a lista do mapeamento é compartilhada.
+     */
+    public UserPermissions processUserPermissions(
+            String username,
+            String name,
+            String email,
+            List<String> sapRoles,
+            RoleSetMapping roleSet
+    ) {
         return UserPermissions.builder()
                 .username(username)
                 .name(name)
                 .email(email)
-                .sapRoles(sapRoles)
-                .revvoRoles(new ArrayList<>(revvoRoles))
+                .sapRoleSet(sapRoleSet(sapRoles, roleSet))
+                .revvoRoleSet(roleSet.getRevvoRoleSet())
                 .build();
     }
 
-    private Set<String> mapSapRolesToRevvo(List<String> sapRoles) {
-        Set<String> result = new HashSet<>();
+    /**
+     * Retorna o mapeamento (compartilhado) do conjunto de roles SAP informado.
+     * A ordem dos roles e duplicatas não importam: o cache é indexado pela forma canônica
+     * (ordenada), e {@link RoleSetMapping#getSapRoles()} devolve essa forma.
+     */
+    public RoleSetMapping mapRoles(List<String> sapRoles) {
+        long start = metrics.start();
+        RoleSetMapping mapping = roleSetMapping(sapRoles);
+        metrics.stop(SapSsoMetrics.Stage.MAPPING, start);
+        return mapping;
+    }
+
+    private RoleSetMapping roleSetMapping(List<String> sapRoles) {
+        RoleSetMapping.Key key = RoleSetMapping.Key.of(sapRoles);
 
-        if (sapRoles == null || sapRoles.isEmpty()) {
-            result.add("USER");
-            return result;
+        RoleSetMapping cached = roleSets.get(key);
+        if (cached != null) {
+            return cached;
         }
 
-        for (String role : sapRoles) {
-            if (role.equalsIgnoreCase("RevvoAdmin")) {
-                result.add("ADMIN");
-            }
-            if (role.equalsIgnoreCase("RevvoUser")) {
-                result.add("USER");
-            }
-            if (role.startsWith("Admin")) {
-                result.add("ADMIN");
-            }
+        RoleSetMapping mapping = new RoleSetMapping(key, mapSapRolesToRevvo(key.roles()));
+        roleSets.put(key, mapping);
+        return mapping;
+    }
+
+    private static RoleSet sapRoleSet(List<String> sapRoles, RoleSetMapping roleSet) {
+        List<String> canonical = roleSet.getSapRoles();
+        if (sapRoles == null || sapRoles.equals(canonical)) {
+            return roleSet.getSapRoleSet();
         }
-        if (result.isEmpty()) {
-            result.add("USER");
+
+        // Mesma ordem recebida, mas com o texto do mapeamento (compartilhado), não o do header
+        String[] shared = new String[sapRoles.size()];
+        for (int i = 0; i < shared.length; i++) {
+            String role = sapRoles.get(i);
+            int index = role != null ? Collections.binarySearch(canonical, role) : -1;
+            shared[i] = index >= 0 ? canonical.get(index) : role;
         }
+        return RoleSet.of(Arrays.asList(shared));
+    }
 
-        return result;
+    private Set<String> mapSapRolesToRevvo(List<String> sapRoles) {
+        return roleMappingEngine.map(sapRoles);
     }
 }
@@ -0,0 +1,268 @@
+package com.revvo.service;
+
+import com.revvo.config.SapSsoProperties;
+import com.revvo.config.SapSsoProperties.RoleMapping;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Mapeamento SAP → Revvo compilado a partir das regras de configuração
+ * (spring.security.sap.sso.role-mappings).
+ *
+ * Na inicialização as regras viram um único matcher:
+ * - exact: lookup em hash (um mapa sensível e outro insensível a maiúsculas)
+ * - prefix: trie de prefixos (percorrida uma vez por role, custo proporcional ao tamanho do role)
+ * - wildcard/regex: padrões pré-compilados (casam o role inteiro)
+ *
+ * Assim o custo por role não cresce com a quantidade de regras exact/prefix.
+ */
+@Component
+public class RoleMappingEngine {
+
+    private final Map<String, String[]> exact;
+    private final Map<String, String[]> exactIgnoreCase;
+    private final TrieNode prefixes;
+    private final TrieNode prefixesIgnoreCase;
+    private final List<PatternRule> patterns;
+    private final String defaultRole;
+
+    @Autowired
+    public RoleMappingEngine(SapSsoProperties properties) {
+        this(properties.getRoleMappings(), properties.getDefaultRole());
+    }
+
+    public RoleMappingEngine(List<RoleMapping> mappings, String defaultRole) {
+        Map<String, Set<String>> exactBuild = new HashMap<>();
+        Map<String, Set<String>> exactIgnoreCaseBuild = new HashMap<>();
+        TrieBuilder prefixBuild = new TrieBuilder();
+        TrieBuilder prefixIgnoreCaseBuild = new TrieBuilder();
+        List<PatternRule> patternBuild = new ArrayList<>();
+        Set<String> knownRevvoRoles = new HashSet<>();
+        Set<String> knownSapRoles = new HashSet<>();
+
+        for (RoleMapping mapping : mappings) {
+            if (mapping.getPattern() == null || mapping.getRole() == null) {
+                throw new IllegalArgumentException("Regra de mapeamento incompleta: " + mapping);
+            }
+
+            String pattern = mapping.getPattern();
+            boolean ignoreCase = mapping.isIgnoreCase();
+            knownRevvoRoles.add(mapping.getRole());
+
+            switch (mapping.getMatch()) {
+                case EXACT:
+                    knownSapRoles.add(pattern);
+                    if (ignoreCase) {
+                        exactIgnoreCaseBuild.computeIfAbsent(fold(pattern), k -> new LinkedHashSet<>()).add(mapping.getRole());
+                    } else {
+                        exactBuild.computeIfAbsent(pattern, k -> new LinkedHashSet<>()).add(mapping.getRole());
+                    }
+                    break;
+                case PREFIX:
+                    if (ignoreCase) {
+                        prefixIgnoreCaseBuild.add(fold(pattern), mapping.getRole());
+                    } else {
+                        prefixBuild.add(pattern, mapping.getRole());
+                    }
+                    break;
+                case WILDCARD:
+                    patternBuild.add(new PatternRule(compile(wildcardToRegex(pattern), ignoreCase), mapping.getRole()));
+                    break;
+                case REGEX:
+                    patternBuild.add(new PatternRule(compile(pattern, ignoreCase), mapping.getRole()));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Tipo de regra não suportado: " + mapping.getMatch());
+            }
+        }
+
+        this.exact = toArrays(exactBuild);
+        this.exactIgnoreCase = toArrays(exactIgnoreCaseBuild);
+        this.prefixes = prefixBuild.build();
+        this.prefixesIgnoreCase = prefixIgnoreCaseBuild.build();
+        this.patterns = List.copyOf(patternBuild);
+        this.defaultRole = defaultRole;
+
+        if (defaultRole != null) {
+            knownRevvoRoles.add(defaultRole);
+        }
+        RoleSetMapping.registerKnownRoles(knownRevvoRoles, knownSapRoles);
+    }
+
+    /**
+     * Mapeia os roles SAP para roles Revvo. Sem nenhum role SAP, ou sem nenhuma
+     * regra casando, retorna apenas o role padrão.
+     */
+    public Set<String> map(Collection<String> sapRoles) {
+        Set<String> result = new HashSet<>();
+
+        if (sapRoles == null || sapRoles.isEmpty()) {
+            result.add(defaultRole);
+            return result;
+        }
+
+        boolean foldedLookups = !exactIgnoreCase.isEmpty() || !prefixesIgnoreCase.isEmpty();
+
+        for (String role : sapRoles) {
+            addAll(result, exact.get(role));
+            prefixes.collect(role, result);
+
+            if (foldedLookups) {
+                String folded = fold(role);
+                addAll(result, exactIgnoreCase.get(folded));
+                prefixesIgnoreCase.collect(folded, result);
+            }
+
+            for (PatternRule rule : patterns) {
+                if (rule.pattern.matcher(role).matches()) {
+                    result.add(rule.role);
+                }
+            }
+        }
+
+        if (result.isEmpty()) {
+            result.add(defaultRole);
+        }
+
+        return result;
+    }
+
+    // -------- Helpers --------
+
+    /**
+     * Normaliza para comparação sem distinção de maiúsculas, com a mesma
+     * equivalência de {@link String#equalsIgnoreCase(String)} (caractere a caractere).
+     */
+    static String fold(String s) {
+        StringBuilder sb = null;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            char f = Character.toLowerCase(Character.toUpperCase(c));
+            if (f != c && sb == null) {
+                sb = new StringBuilder(s.length());
+                sb.append(s, 0, i);
+            }
+            if (sb != null) {
+                sb.append(f);
+            }
+        }
+        return sb != null ? sb.toString() : s;
+    }
+
+    private static void addAll(Set<String> result, String[] roles) {
+        if (roles != null) {
+            result.addAll(Arrays.asList(roles));
+        }
+    }
+
+    private static Map<String, String[]> toArrays(Map<String, Set<String>> source) {
+        Map<String, String[]> result = new HashMap<>();
+        source.forEach((k, v) -> result.put(k, v.toArray(new String[0])));
+        return result;
+    }
+
+    private static Pattern compile(String regex, boolean ignoreCase) {
+        return ignoreCase
+                ? Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE)
+                : Pattern.compile(regex);
+    }
+
+    private static String wildcardToRegex(String wildcard) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : wildcard.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return regex.toString();
+    }
+
+    private static final class PatternRule {
+        private final Pattern pattern;
+        private final String role;
+
+        PatternRule(Pattern pattern, String role) {
+            this.pattern = pattern;
+            this.role = role;
+        }
+    }
+
+    /**
+     * Nó imutável da trie de prefixos: filhos ordenados por caractere (busca binária).
+     */
+    private static final class TrieNode {
+        private final char[] keys;
+        private final TrieNode[] children;
+        private final String[] roles;
+
+        TrieNode(char[] keys, TrieNode[] children, String[] roles) {
+            this.keys = keys;
+            this.children = children;
+            this.roles = roles;
+        }
+
+        boolean isEmpty() {
+            return keys.length == 0 && roles == null;
+        }
+
+        void collect(String value, Set<String> result) {
+            TrieNode node = this;
+            addAll(result, node.roles);
+            for (int i = 0; i < value.length(); i++) {
+                int idx = Arrays.binarySearch(node.keys, value.charAt(i));
+                if (idx < 0) {
+                    return;
+                }
+                node = node.children[idx];
+                addAll(result, node.roles);
+            }
+        }
+    }
+
+    private static final class TrieBuilder {
+        private final TreeMap<Character, TrieBuilder> children = new TreeMap<>();
+        private final Set<String> roles = new LinkedHashSet<>();
+
+        void add(String prefix, String role) {
+            TrieBuilder node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new TrieBuilder());
+            }
+            node.roles.add(role);
+        }
+
+        TrieNode build() {
+            char[] keys = new char[children.size()];
+            TrieNode[] nodes = new TrieNode[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, TrieBuilder> e : children.entrySet()) {
+                keys[i] = e.getKey();
+                nodes[i] = e.getValue().build();
+                i++;
+            }
+            return new TrieNode(keys, nodes, roles.isEmpty() ? null : roles.toArray(new String[0]));
+        }
+    }
+}
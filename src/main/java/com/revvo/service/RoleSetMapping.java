@@ -0,0 +1,152 @@
+package com.revvo.service;
+
+import com.revvo.domain.RoleDictionary;
+import com.revvo.domain.RoleSet;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Resultado imutável do mapeamento de um conjunto de roles SAP.
+ *
+ * Usuários com as mesmas role collections compartilham a mesma instância
+ * (ver {@link PermissionService#mapRoles(List)}): a lista canônica de roles SAP,
+ * os roles Revvo e as authorities do Spring Security são criados uma única vez
+ * por conjunto distinto, não por usuário.
+ *
+ * Os roles ficam como {@link RoleSet} de ids do {@link RoleDictionary}, com o texto uma vez na JVM:
+ * os da configuração são registrados na inicialização (ver {@link #registerKnownRoles}) e os roles
+ * SAP que só aparecem nas requisições entram como observados ao criar o mapeamento. Acima do
+ * limite de observados, os roles SAP ficam como nomes, compartilhados pelos usuários do conjunto.
+ */
+public final class RoleSetMapping {
+
+    private static final String REVVO_AUTHORITY_PREFIX = "ROLE_";
+    private static final String SAP_AUTHORITY_PREFIX = "SAP_";
+
+    private final RoleSet sapRoles;
+    private final RoleSet revvoRoles;
+    private final List<GrantedAuthority> authorities;
+
+    RoleSetMapping(Key key, Set<String> revvoRoles) {
+        this.sapRoles = RoleSet.intern(Arrays.asList(key.roles));
+        this.revvoRoles = RoleSet.of(revvoRoles);
+        this.authorities = buildAuthorities(this.revvoRoles.names(), this.sapRoles.names());
+    }
+
+    /**
+     * Roles SAP em forma canônica (ordenados, sem duplicatas).
+     */
+    public List<String> getSapRoles() {
+        return sapRoles.names();
+    }
+
+    public List<String> getRevvoRoles() {
+        return revvoRoles.names();
+    }
+
+    public RoleSet getSapRoleSet() {
+        return sapRoles;
+    }
+
+    public RoleSet getRevvoRoleSet() {
+        return revvoRoles;
+    }
+
+    /**
+     * Authorities ROLE_* (Revvo) e SAP_* (originais, para auditoria/debug),
+     * ordenadas pelo nome como no {@code User} do Spring Security.
+     */
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    private static List<GrantedAuthority> buildAuthorities(List<String> revvoRoles, List<String> sapRoles) {
+        TreeSet<String> names = new TreeSet<>();
+        for (String role : revvoRoles) {
+            names.add(REVVO_AUTHORITY_PREFIX + role);
+        }
+        for (String sapRole : sapRoles) {
+            names.add(SAP_AUTHORITY_PREFIX + sapRole);
+        }
+
+        List<GrantedAuthority> result = new ArrayList<>(names.size());
+        for (String name : names) {
+            result.add(new SimpleGrantedAuthority(name));
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * Registra no {@link RoleDictionary} os roles da configuração e as authorities correspondentes,
+     * na inicialização. Roles que só aparecem nas requisições nunca são registrados, só observados:
+     * o bitset de {@link com.revvo.security.AuthorityBits} não cresce com valores do cliente.
+     */
+    static void registerKnownRoles(Collection<String> revvoRoles, Collection<String> sapRoles) {
+        RoleDictionary dictionary = RoleDictionary.global();
+        for (String role : revvoRoles) {
+            dictionary.register(role);
+            dictionary.register(REVVO_AUTHORITY_PREFIX + role);
+        }
+        for (String sapRole : sapRoles) {
+            dictionary.register(sapRole);
+            dictionary.register(SAP_AUTHORITY_PREFIX + sapRole);
+        }
+    }
+
+    /**
+     * Chave canônica de um conjunto de roles SAP: ordenada, sem duplicatas e com hash
+     * pré-calculado, para que a mesma combinação de roles em qualquer ordem caia na
+     * mesma entrada.
+     */
+    static final class Key {
+        private final String[] roles;
+        private final int hash;
+
+        private Key(String[] roles) {
+            this.roles = roles;
+            this.hash = Arrays.hashCode(roles);
+        }
+
+        static Key of(Collection<String> sapRoles) {
+            if (sapRoles == null || sapRoles.isEmpty()) {
+                return new Key(new String[0]);
+            }
+
+            String[] sorted = sapRoles.toArray(new String[0]);
+            Arrays.sort(sorted);
+
+            int n = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (n == 0 || !sorted[i].equals(sorted[n - 1])) {
+                    sorted[n++] = sorted[i];
+                }
+            }
+
+            return new Key(n == sorted.length ? sorted : Arrays.copyOf(sorted, n));
+        }
+
+        List<String> roles() {
+            return Arrays.asList(roles);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return hash == other.hash && Arrays.equals(roles, other.roles);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.revvo.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExpiringCacheTest {
+
+    private static final long SHORT_TTL = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long LONG_TTL = TimeUnit.HOURS.toNanos(1);
+
+    @Test
+    void entryExpiresAfterItsTtl() throws Exception {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+        cache.put("a", "1", SHORT_TTL);
+        cache.put("b", "2", LONG_TTL);
+
+        assertThat(cache.get("a")).isEqualTo("1");
+        assertThat(cache.remainingNanos("a")).isPositive().isLessThanOrEqualTo(SHORT_TTL);
+
+        Thread.sleep(50);
+
+        assertThat(cache.peek("a")).isNull();
+        assertThat(cache.remainingNanos("a")).isEqualTo(-1);
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.get("b")).isEqualTo("2");
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.hitCount()).isEqualTo(2);
+        assertThat(cache.missCount()).isEqualTo(1);
+        assertThat(cache.evictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void putWithoutTtlNeverExpires() throws Exception {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+        cache.put("a", "1");
+
+        Thread.sleep(5);
+
+        // now + Long.MAX_VALUE dá a volta no long: a entrada continua válida
+        assertThat(cache.get("a")).isEqualTo("1");
+        assertThat(cache.peek("a")).isEqualTo("1");
+        assertThat(cache.remainingNanos("a")).isGreaterThan(TimeUnit.DAYS.toNanos(365 * 100));
+        assertThat(cache.cleanUp()).isZero();
+
+        Map<String, Long> visited = new HashMap<>();
+        cache.forEach((key, value, remaining) -> visited.put(key, remaining));
+        assertThat(visited).containsOnlyKeys("a");
+    }
+
+    @Test
+    void exceedingMaxSizeEvictsLeastRecentlyUsedDownToNinetyPercent() throws Exception {
+        ExpiringCache<Integer, String> cache = new ExpiringCache<>(100);
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, "v" + i, LONG_TTL);
+        }
+        assertThat(cache.size()).isEqualTo(100);
+        assertThat(cache.evictionCount()).isZero();
+
+        Thread.sleep(2);
+        for (int i = 50; i < 100; i++) {
+            assertThat(cache.get(i)).isEqualTo("v" + i);
+        }
+        Thread.sleep(2);
+
+        cache.put(100, "v100", LONG_TTL);
+
+        // 101 entradas → 90 (maxSize - 10%): saem 11, todas entre as não acessadas
+        assertThat(cache.size()).isEqualTo(90);
+        assertThat(cache.evictionCount()).isEqualTo(11);
+        assertThat(IntStream.rangeClosed(50, 100)).allMatch(i -> cache.peek(i) != null);
+        assertThat(IntStream.range(0, 50).filter(i -> cache.peek(i) != null).count()).isEqualTo(39);
+    }
+
+    @Test
+    void evictionRemovesExpiredEntriesBeforeLiveOnes() throws Exception {
+        ExpiringCache<Integer, String> cache = new ExpiringCache<>(10);
+        for (int i = 0; i < 5; i++) {
+            cache.put(i, "expira", SHORT_TTL);
+        }
+        for (int i = 5; i < 10; i++) {
+            cache.put(i, "fica", LONG_TTL);
+        }
+        Thread.sleep(50);
+
+        cache.put(10, "fica", LONG_TTL);
+
+        assertThat(cache.size()).isEqualTo(6);
+        assertThat(IntStream.rangeClosed(5, 10)).allMatch(i -> cache.peek(i) != null);
+    }
+
+    @Test
+    void removeIfRemovesMatchingKeysOnly() {
+        ExpiringCache<String, Integer> cache = new ExpiringCache<>(10);
+        cache.put("adriana|1", 1);
+        cache.put("adriana|2", 2);
+        cache.put("rafael|1", 3, LONG_TTL);
+
+        assertThat(cache.removeIf(key -> key.startsWith("adriana|"))).isEqualTo(2);
+        assertThat(cache.removeIf(key -> key.startsWith("ninguem|"))).isZero();
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.peek("rafael|1")).isEqualTo(3);
+        assertThat(cache.remove("rafael|1")).isEqualTo(3);
+        assertThat(cache.remove("rafael|1")).isNull();
+    }
+
+    @Test
+    void cleanUpRemovesOnlyExpiredEntries() throws Exception {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+        cache.put("expira-1", "x", SHORT_TTL);
+        cache.put("expira-2", "x", SHORT_TTL);
+        cache.put("longo", "x", LONG_TTL);
+        cache.put("sem-ttl", "x");
+
+        assertThat(cache.cleanUp()).isZero();
+        Thread.sleep(50);
+
+        assertThat(cache.cleanUp()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.peek("longo")).isEqualTo("x");
+        assertThat(cache.peek("sem-ttl")).isEqualTo("x");
+        assertThat(cache.evictionCount()).isEqualTo(2);
+    }
+
+    @Test
+    void maxSizeMustBePositive() {
+        assertThatThrownBy(() -> new ExpiringCache<>(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
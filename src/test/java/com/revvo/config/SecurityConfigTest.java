@@ -0,0 +1,43 @@
+package com.revvo.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+class SecurityConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void healthIsPublic() throws Exception {
+        mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+    }
+
+    @Test
+    void actuatorEndpointsRequireAdmin() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isForbidden());
+        mockMvc.perform(as(get("/actuator/prometheus"), "user@ideen.tech", "RevvoUser")).andExpect(status().isForbidden());
+        mockMvc.perform(as(get("/actuator/metrics"), "user@ideen.tech", "RevvoUser")).andExpect(status().isForbidden());
+
+        mockMvc.perform(as(get("/actuator/prometheus"), "prometheus@ideen.tech", "RevvoAdmin"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("sap_sso_stage_seconds")));
+    }
+
+    private static MockHttpServletRequestBuilder as(MockHttpServletRequestBuilder request, String username, String roles) {
+        return request.header("x-authenticated-user", username).header("x-sap-roles", roles);
+    }
+}
@@ -0,0 +1,151 @@
+package com.revvo.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.revvo.domain.UserPermissions;
+import com.revvo.security.SapAuthenticatedUser;
+import com.revvo.support.SsoTestFixture;
+import com.revvo.support.XsuaaTestTokens;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SapControllerTest {
+
+    private final SsoTestFixture fixture = new SsoTestFixture();
+    private final SapController controller =
+            new SapController(fixture.sapContextExtractor, fixture.permissionService, fixture.objectMapper);
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void profileIsServedFromCachedJson() throws Exception {
+        MockHttpServletRequest request = SsoTestFixture.headerRequest("adriana", List.of("RevvoUser", "AdminFinanceApps"));
+        ResponseEntity<?> first = getProfile(request, new MockHttpServletResponse());
+        ResponseEntity<?> second = getProfile(
+                SsoTestFixture.headerRequest("adriana", List.of("RevvoUser", "AdminFinanceApps")),
+                new MockHttpServletResponse());
+
+        SapAuthenticatedUser user = (SapAuthenticatedUser) SecurityContextHolder.getContext()
+                .getAuthentication().getPrincipal();
+        assertThat(first.getBody()).isEqualTo(fixture.objectMapper.writeValueAsBytes(user.getPermissions()));
+        assertThat(second.getBody()).isSameAs(first.getBody());
+        assertThat(first.getHeaders().getETag()).isEqualTo(second.getHeaders().getETag()).startsWith("\"");
+    }
+
+    @Test
+    void profileKeepsSapRolesInHeaderOrder() throws Exception {
+        List<String> roles = List.of("RevvoUser", "PI_Read_Only", "AdminFinanceApps");
+
+        ResponseEntity<?> cached = getProfile(SsoTestFixture.headerRequest("adriana", roles), new MockHttpServletResponse());
+        assertThat(fixture.objectMapper.readTree((byte[]) cached.getBody()).get("sapRoles"))
+                .extracting(node -> node.asText())
+                .containsExactlyElementsOf(roles);
+
+        // Sem autenticação SSO (perfil montado na hora)
+        MockHttpServletRequest request = SsoTestFixture.headerRequest("rafael", roles);
+        ResponseEntity<?> computed = controller.getProfile(request,
+                new ServletWebRequest(request, new MockHttpServletResponse()), null);
+        assertThat(((UserPermissions) computed.getBody()).getSapRoles()).containsExactlyElementsOf(roles);
+    }
+
+    @Test
+    void matchingEtagReturnsNotModified() throws Exception {
+        ResponseEntity<?> first = getProfile(
+                SsoTestFixture.headerRequest("adriana", List.of("RevvoUser")), new MockHttpServletResponse());
+        String etag = first.getHeaders().getETag();
+
+        MockHttpServletRequest conditional = SsoTestFixture.headerRequest("adriana", List.of("RevvoUser"));
+        conditional.addHeader("If-None-Match", etag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(getProfile(conditional, response)).isNull();
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getHeader("ETag")).isEqualTo(etag);
+    }
+
+    @Test
+    void roleChangeChangesEtag() throws Exception {
+        String before = getProfile(SsoTestFixture.headerRequest("adriana", List.of("RevvoUser")),
+                new MockHttpServletResponse()).getHeaders().getETag();
+
+        MockHttpServletRequest changed = SsoTestFixture.headerRequest("adriana", List.of("RevvoUser", "RevvoAdmin"));
+        changed.addHeader("If-None-Match", before);
+        ResponseEntity<?> after = getProfile(changed, new MockHttpServletResponse());
+
+        assertThat(after).isNotNull();
+        assertThat(after.getHeaders().getETag()).isNotEqualTo(before);
+    }
+
+    @Test
+    void detectEnvironmentWritesSameJsonAsBefore() throws Exception {
+        assertThat(detect(new MockHttpServletRequest("GET", "/sap/detect-environment")))
+                .isEqualTo(Map.of("isFiori", false, "authenticated", false));
+
+        assertThat(detect(SsoTestFixture.headerRequest("adriana \"ç\" \uD83D\uDE00\n", List.of("RevvoUser"))))
+                .isEqualTo(Map.of("isFiori", true, "authenticated", true, "username", "adriana \"ç\" \uD83D\uDE00"));
+
+        String token = XsuaaTestTokens.token("adriana.amaral@partner.ideen.tech", XsuaaTestTokens.roles(5));
+        assertThat(detect(SsoTestFixture.jwtRequest(token)))
+                .isEqualTo(Map.of("isFiori", true, "authenticated", true,
+                        "username", "adriana.amaral@partner.ideen.tech"));
+    }
+
+    @Test
+    void detectEnvironmentEscapesLikeJackson() throws Exception {
+        // trim() só remove as pontas: controles no meio chegam ao JSON
+        String username = "a\tb\u0001c\bd\fe\rf\ng\u001fh\"i\\j\u007fç\uD83D\uDE00k\uDE00l";
+        MockHttpServletRequest request = SsoTestFixture.headerRequest(username, List.of("RevvoUser"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.detectEnvironment(request, response);
+
+        // Mesmo Map que o endpoint devolvia antes, serializado pelo Jackson
+        Map<String, Object> before = new HashMap<>();
+        before.put("isFiori", true);
+        before.put("authenticated", true);
+        before.put("username", username);
+        assertThat(response.getContentAsByteArray()).isEqualTo(fixture.objectMapper.writeValueAsBytes(before));
+        assertThat(response.getContentAsString())
+                .contains("a\\tb\\u0001c\\bd\\fe\\rf\\ng\\u001Fh")
+                .contains("\\uD83D\\uDE00k\\uDE00l");
+
+        MockHttpServletResponse anonymous = new MockHttpServletResponse();
+        controller.detectEnvironment(new MockHttpServletRequest("GET", "/sap/detect-environment"), anonymous);
+        before.remove("username");
+        before.put("isFiori", false);
+        before.put("authenticated", false);
+        assertThat(anonymous.getContentAsByteArray()).isEqualTo(fixture.objectMapper.writeValueAsBytes(before));
+    }
+
+    private Map<String, Object> detect(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.detectEnvironment(request, response);
+
+        assertThat(response.getContentType()).isEqualTo("application/json");
+        assertThat(response.getContentLength()).isEqualTo(response.getContentAsByteArray().length);
+        return fixture.objectMapper.readValue(response.getContentAsByteArray(), new TypeReference<Map<String, Object>>() {});
+    }
+
+    private ResponseEntity<?> getProfile(MockHttpServletRequest request, MockHttpServletResponse response)
+            throws Exception {
+        SecurityContextHolder.clearContext();
+        fixture.sapSsoFilter.doFilter(request, response, new MockFilterChain());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return controller.getProfile(request, new ServletWebRequest(request, response), authentication);
+    }
+}
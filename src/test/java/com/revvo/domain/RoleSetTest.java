@@ -0,0 +1,107 @@
+package com.revvo.domain;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoleSetTest {
+
+    @Test
+    void rolesAreStoredOnceInTheDictionary() {
+        RoleDictionary.global().register("RevvoAdmin");
+        RoleDictionary.global().register("PI_Read_Only");
+
+        RoleSet a = RoleSet.of(List.of(new String("RevvoAdmin"), new String("PI_Read_Only")));
+        RoleSet b = RoleSet.of(List.of(new String("PI_Read_Only")));
+
+        assertThat(a.names()).containsExactly("RevvoAdmin", "PI_Read_Only");
+        assertThat(b.get(0)).isSameAs(a.get(1));
+        assertThat(a.contains("RevvoAdmin")).isTrue();
+        assertThat(a.contains("RevvoUser")).isFalse();
+    }
+
+    @Test
+    void fullDictionaryFallsBackToPlainNames() {
+        RoleDictionary dictionary = new RoleDictionary(1);
+        assertThat(dictionary.register("A")).isZero();
+        assertThat(dictionary.register("B")).isEqualTo(-1);
+        assertThat(dictionary.register("A")).isZero();
+
+        RoleSet withNull = RoleSet.of(Arrays.asList("A", null));
+        assertThat(withNull.names()).containsExactly("A", null);
+        assertThat(withNull).isEqualTo(RoleSet.of(Arrays.asList("A", null)));
+    }
+
+    @Test
+    void unknownRolesAreKeptAsNamesWithoutGrowingTheDictionary() {
+        RoleDictionary.global().register("RevvoUser");
+        int size = RoleDictionary.global().size();
+
+        List<String> roles = List.of(new String("RevvoUser"), "Cliente_" + System.nanoTime(), "x".repeat(10_000));
+        RoleSet set = RoleSet.of(roles);
+
+        assertThat(set.names()).isEqualTo(roles);
+        assertThat(set.get(0)).isSameAs(RoleDictionary.global().name(RoleDictionary.global().find("RevvoUser")));
+        assertThat(set.contains(roles.get(1))).isTrue();
+        assertThat(set).isEqualTo(RoleSet.of(roles));
+        assertThat(RoleDictionary.global().find(roles.get(1))).isEqualTo(-1);
+        assertThat(RoleDictionary.global().size()).isEqualTo(size);
+    }
+
+    @Test
+    void observedRolesAreInternedUpToTheirOwnLimit() {
+        RoleDictionary dictionary = new RoleDictionary(10, 2);
+        assertThat(dictionary.register("RevvoUser")).isZero();
+        assertThat(dictionary.intern("Cliente_A")).isEqualTo(1);
+        assertThat(dictionary.intern("Cliente_B")).isEqualTo(2);
+        assertThat(dictionary.intern("Cliente_C")).isEqualTo(-1);
+        assertThat(dictionary.intern("RevvoUser")).isZero();
+        assertThat(dictionary.intern("Cliente_A")).isEqualTo(1);
+
+        assertThat(dictionary.find("Cliente_A")).isEqualTo(1);
+        assertThat(dictionary.findRegistered("Cliente_A")).isEqualTo(-1);
+        assertThat(dictionary.findRegistered("RevvoUser")).isZero();
+
+        // Registrado depois de observado: mantém o id e libera a vaga de observado
+        assertThat(dictionary.register("Cliente_A")).isEqualTo(1);
+        assertThat(dictionary.findRegistered("Cliente_A")).isEqualTo(1);
+        assertThat(dictionary.intern("Cliente_C")).isEqualTo(3);
+        assertThat(dictionary.size()).isEqualTo(4);
+    }
+
+    @Test
+    void internedRoleSetSharesTheDictionaryText() {
+        List<String> roles = List.of("Cliente_" + System.nanoTime(), "Departamento_" + System.nanoTime());
+
+        RoleSet interned = RoleSet.intern(roles);
+        RoleSet found = RoleSet.of(List.of(new String(roles.get(1)), new String(roles.get(0))));
+
+        assertThat(interned.names()).isEqualTo(roles);
+        assertThat(found.get(0)).isSameAs(interned.get(1));
+        assertThat(found.get(1)).isSameAs(interned.get(0));
+        assertThat(RoleDictionary.global().findRegistered(roles.get(0))).isEqualTo(-1);
+    }
+
+    @Test
+    void userPermissionsJsonKeepsRoleLists() throws Exception {
+        UserPermissions permissions = UserPermissions.builder()
+                .username("adriana")
+                .sapRoles(List.of("RevvoUser", "Launchpad_Admin"))
+                .revvoRoles(List.of("USER"))
+                .build();
+
+        String json = new ObjectMapper().writeValueAsString(permissions);
+
+        assertThat(json).isEqualTo("{\"username\":\"adriana\",\"name\":null,\"email\":null,\"source\":null,"
+                + "\"sapRoles\":[\"RevvoUser\",\"Launchpad_Admin\"],\"revvoRoles\":[\"USER\"]}");
+        assertThat(permissions).isEqualTo(UserPermissions.builder()
+                .username("adriana")
+                .sapRoles(List.of("RevvoUser", "Launchpad_Admin"))
+                .revvoRoles(List.of("USER"))
+                .build());
+    }
+}
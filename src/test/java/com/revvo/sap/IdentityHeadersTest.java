@@ -0,0 +1,181 @@
+package com.revvo.sap;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdentityHeadersTest {
+
+    // Sondagem anterior (arrays de candidatos por atributo), usada como referência
+
+    private static final String[][] LEGACY_CANDIDATES = {
+            {"X-SAP-USER", "X-Authenticated-User", "X-User", "X-Forwarded-User",
+                    "x-sap-user", "x-authenticated-user", "x-user", "x-forwarded-user"},
+            {"X-User-Name", "X-SAP-USER-NAME", "x-user-name", "x-sap-user-name"},
+            {"X-User-Email", "X-SAP-USER-EMAIL", "x-user-email", "x-sap-user-email"},
+            {"X-SAP-ROLES", "x-sap-roles", "X-SAP-GROUPS", "x-sap-groups",
+                    "X-User-Roles", "x-user-roles", "X-Groups", "x-groups"}
+    };
+
+    private static String[] legacyScan(HttpServletRequest request) {
+        String[] values = new String[IdentityHeaders.ATTRIBUTE_COUNT];
+        for (int attribute = 0; attribute < LEGACY_CANDIDATES.length; attribute++) {
+            for (String h : LEGACY_CANDIDATES[attribute]) {
+                String v = request.getHeader(h);
+                if (v != null && !v.isBlank()) {
+                    values[attribute] = v.trim();
+                    break;
+                }
+            }
+        }
+        values[IdentityHeaders.TOKEN] = legacyJwt(request);
+        return values;
+    }
+
+    private static String legacyJwt(HttpServletRequest request) {
+        String auth = request.getHeader("Authorization");
+        if (auth != null && auth.toLowerCase().startsWith("bearer ")) {
+            return auth.substring("bearer ".length()).trim();
+        }
+
+        String forwarded = request.getHeader("X-Forwarded-Access-Token");
+        if (forwarded != null && !forwarded.isBlank()) return forwarded.trim();
+
+        String assertion = request.getHeader("X-JWT-Assertion");
+        if (assertion != null && !assertion.isBlank()) return assertion.trim();
+
+        return null;
+    }
+
+    private static MockHttpServletRequest request(String... namesAndValues) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/sap/profile");
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            request.addHeader(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return request;
+    }
+
+    private static void assertMatchesLegacy(MockHttpServletRequest request) {
+        assertThat(IdentityHeaders.scan(request)).isEqualTo(legacyScan(request));
+    }
+
+    @Test
+    void higherPriorityHeaderWinsEvenWhenItArrivesLater() {
+        MockHttpServletRequest request = request(
+                "X-Forwarded-User", "proxy-user",
+                "X-User", "plain-user",
+                "X-SAP-GROUPS", "Group_A",
+                "X-SAP-ROLES", "Role_A,Role_B",
+                "X-JWT-Assertion", "assertion.jwt",
+                "Authorization", "Bearer bearer.jwt");
+
+        String[] values = IdentityHeaders.scan(request);
+
+        assertThat(values[IdentityHeaders.USERNAME]).isEqualTo("plain-user");
+        assertThat(values[IdentityHeaders.ROLES]).isEqualTo("Role_A,Role_B");
+        assertThat(values[IdentityHeaders.TOKEN]).isEqualTo("bearer.jwt");
+        assertMatchesLegacy(request);
+    }
+
+    @Test
+    void blankHigherPriorityValueFallsThroughToLowerPriority() {
+        MockHttpServletRequest request = request(
+                "X-SAP-USER", "   ",
+                "X-Authenticated-User", " adriana@ideen.tech ",
+                "X-User-Name", "",
+                "X-SAP-USER-NAME", "Adriana",
+                "X-Forwarded-Access-Token", " ",
+                "X-JWT-Assertion", "assertion.jwt");
+
+        String[] values = IdentityHeaders.scan(request);
+
+        assertThat(values[IdentityHeaders.USERNAME]).isEqualTo("adriana@ideen.tech");
+        assertThat(values[IdentityHeaders.NAME]).isEqualTo("Adriana");
+        assertThat(values[IdentityHeaders.TOKEN]).isEqualTo("assertion.jwt");
+        assertMatchesLegacy(request);
+    }
+
+    @Test
+    void headerNamesAreCaseInsensitive() {
+        MockHttpServletRequest request = request(
+                "x-AUTHENTICATED-user", "adriana@ideen.tech",
+                "X-USER-EMAIL", "adriana@ideen.tech",
+                "x-sap-roles", "RevvoUser",
+                "AUTHORIZATION", "bEaReR bearer.jwt");
+
+        String[] values = IdentityHeaders.scan(request);
+
+        assertThat(values[IdentityHeaders.USERNAME]).isEqualTo("adriana@ideen.tech");
+        assertThat(values[IdentityHeaders.EMAIL]).isEqualTo("adriana@ideen.tech");
+        assertThat(values[IdentityHeaders.ROLES]).isEqualTo("RevvoUser");
+        assertThat(values[IdentityHeaders.TOKEN]).isEqualTo("bearer.jwt");
+        assertThat(IdentityHeaders.find("x-sap-user-name")).isSameAs(IdentityHeaders.find("X-SAP-USER-NAME"));
+        assertMatchesLegacy(request);
+    }
+
+    @Test
+    void nonBearerAuthorizationYieldsNoToken() {
+        MockHttpServletRequest basic = request("Authorization", "Basic YWRtaW46YWRtaW4=");
+        MockHttpServletRequest bearerPrefix = request("Authorization", "Bearerabc.def");
+
+        assertThat(IdentityHeaders.scan(basic)[IdentityHeaders.TOKEN]).isNull();
+        assertThat(IdentityHeaders.scan(bearerPrefix)[IdentityHeaders.TOKEN]).isNull();
+        assertMatchesLegacy(basic);
+        assertMatchesLegacy(bearerPrefix);
+
+        // Authorization inválido não bloqueia os headers de token de menor prioridade
+        MockHttpServletRequest withForwarded = request(
+                "Authorization", "Basic YWRtaW46YWRtaW4=",
+                "X-Forwarded-Access-Token", "forwarded.jwt");
+        assertThat(IdentityHeaders.scan(withForwarded)[IdentityHeaders.TOKEN]).isEqualTo("forwarded.jwt");
+        assertMatchesLegacy(withForwarded);
+    }
+
+    @Test
+    void anonymousRequestReturnsSharedNone() {
+        MockHttpServletRequest request = request(
+                "Host", "revvo.cfapps.br10.hana.ondemand.com",
+                "Accept", "application/json",
+                "X-Forwarded-For", "10.0.0.1",
+                "X-Forwarded-Proto", "https");
+
+        assertThat(IdentityHeaders.scan(request)).isSameAs(IdentityHeaders.NONE);
+        assertThat(IdentityHeaders.scan(request("Host", "localhost"))).isSameAs(IdentityHeaders.NONE);
+        assertThat(IdentityHeaders.NONE).containsOnlyNulls();
+    }
+
+    @Test
+    void matchesLegacyOnRandomHeaderOrders() {
+        List<String> names = new ArrayList<>();
+        for (String[] candidates : LEGACY_CANDIDATES) {
+            Collections.addAll(names, candidates);
+        }
+        Collections.addAll(names, "Authorization", "X-Forwarded-Access-Token", "X-JWT-Assertion",
+                "Accept", "X-Forwarded-For", "X-Request-Id");
+        String[] values = {"value", " padded ", "", "  ", "Bearer jwt.a", "bearer  jwt.b ", "Basic abc", "Bearer"};
+        Random random = new Random(11);
+
+        for (int i = 0; i < 2_000; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/sap/profile");
+            int count = random.nextInt(8);
+            for (int j = 0; j < count; j++) {
+                String name = names.get(random.nextInt(names.size()));
+                if (random.nextBoolean()) name = name.toUpperCase();
+                // Um valor por header, como o approuter envia
+                if (request.getHeader(name) == null) {
+                    request.addHeader(name, values[random.nextInt(values.length)]);
+                }
+            }
+
+            assertThat(IdentityHeaders.scan(request)).as("headers %s", Collections.list(request.getHeaderNames()))
+                    .isEqualTo(legacyScan(request));
+        }
+    }
+}
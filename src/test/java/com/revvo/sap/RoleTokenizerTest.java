@@ -0,0 +1,84 @@
+package com.revvo.sap;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoleTokenizerTest {
+
+    // Implementações anteriores (regex + stream), usadas como referência
+
+    private static List<String> legacySplitCsv(String csv) {
+        return Arrays.stream(csv.split(","))
+                .map(String::trim)
+                .filter(v -> !v.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> legacySplitWhitespace(String s) {
+        return Arrays.stream(s.split("\\s+"))
+                .map(String::trim)
+                .filter(v -> !v.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> legacyFromCollection(Collection<?> col) {
+        return col.stream()
+                .filter(Objects::nonNull)
+                .map(String::valueOf)
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void matchesLegacyOnEdgeCases() {
+        List<String> inputs = List.of(
+                "", ",", ",,,", " ", "A", " A ", "A,B,C", "A, B ,C", ",A,,B,", "A,A,B,A",
+                "SAP HANA Cloud Viewer,Subaccount Viewer", "A\tB\nC\u000BD\fE\rF", "  A  B  ",
+                "A\u0001,B", "\u0001A\u0001 B", "A B C", "Admin , Admin ,admin"
+        );
+
+        for (String input : inputs) {
+            assertThat(RoleTokenizer.splitCsv(input)).as("csv '%s'", input).isEqualTo(legacySplitCsv(input));
+            assertThat(RoleTokenizer.splitWhitespace(input)).as("ws '%s'", input).isEqualTo(legacySplitWhitespace(input));
+        }
+    }
+
+    @Test
+    void matchesLegacyOnRandomInputs() {
+        char[] alphabet = {'A', 'b', 'R', '_', '.', ',', ' ', '\t', '\n', '\u0001', ' '};
+        Random random = new Random(7);
+
+        for (int i = 0; i < 5_000; i++) {
+            char[] chars = new char[random.nextInt(40)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = alphabet[random.nextInt(alphabet.length)];
+            }
+            String input = new String(chars);
+
+            assertThat(RoleTokenizer.splitCsv(input)).as("csv '%s'", input).isEqualTo(legacySplitCsv(input));
+            assertThat(RoleTokenizer.splitWhitespace(input)).as("ws '%s'", input).isEqualTo(legacySplitWhitespace(input));
+        }
+    }
+
+    @Test
+    void deduplicatesLargeListsInFirstOccurrenceOrder() {
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            values.add(" Role_" + (i % 120) + " ");
+            if (i % 50 == 0) values.add(null);
+        }
+        values.add(42);
+
+        assertThat(RoleTokenizer.fromCollection(values)).isEqualTo(legacyFromCollection(values));
+        assertThat(RoleTokenizer.splitCsv(values.stream().map(String::valueOf).collect(Collectors.joining(","))))
+                .isEqualTo(legacySplitCsv(values.stream().map(String::valueOf).collect(Collectors.joining(","))));
+    }
+}
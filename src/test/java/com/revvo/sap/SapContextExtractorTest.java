@@ -0,0 +1,247 @@
+package com.revvo.sap;
+
+import com.revvo.support.SsoTestFixture;
+import com.revvo.support.XsuaaTestTokens;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SapContextExtractorTest {
+
+    private final SsoTestFixture fixture = new SsoTestFixture();
+    private final SapContextExtractor extractor = fixture.sapContextExtractor;
+
+    // Extração anterior (headers e claims consultados a cada chamada), usada como referência
+
+    private String legacyUsername(HttpServletRequest request) {
+        String v = legacyHeader(request, "X-SAP-USER", "X-Authenticated-User", "X-User", "X-Forwarded-User",
+                "x-sap-user", "x-authenticated-user", "x-user", "x-forwarded-user");
+        return v != null ? v : legacyClaim(request, "preferred_username", "user_name", "email", "sub");
+    }
+
+    private String legacyUserName(HttpServletRequest request) {
+        String v = legacyHeader(request, "X-User-Name", "X-SAP-USER-NAME", "x-user-name", "x-sap-user-name");
+        return v != null ? v : legacyClaim(request, "name", "given_name", "family_name");
+    }
+
+    private String legacyUserEmail(HttpServletRequest request) {
+        String v = legacyHeader(request, "X-User-Email", "X-SAP-USER-EMAIL", "x-user-email", "x-sap-user-email");
+        return v != null ? v : legacyClaim(request, "email");
+    }
+
+    private List<String> legacySapRoles(HttpServletRequest request) {
+        String roles = legacyHeader(request, "X-SAP-ROLES", "x-sap-roles", "X-SAP-GROUPS", "x-sap-groups",
+                "X-User-Roles", "x-user-roles", "X-Groups", "x-groups");
+        if (roles != null) {
+            return legacySplit(roles, ",");
+        }
+
+        Map<String, Object> claims = fixture.jwtClaimsExtractor.extractClaims(request);
+        Object xsSystemAttrs = claims.get("xs.system.attributes");
+        if (xsSystemAttrs instanceof Map) {
+            List<String> roleCollections = legacyList(((Map<?, ?>) xsSystemAttrs).get("xs.rolecollections"));
+            if (!roleCollections.isEmpty()) return roleCollections;
+        }
+        for (String claim : new String[] {"groups", "roles", "authorities"}) {
+            List<String> values = legacyList(claims.get(claim));
+            if (!values.isEmpty()) return values;
+        }
+        Object scope = claims.get("scope");
+        if (scope != null && !String.valueOf(scope).isBlank()) {
+            return legacySplit(String.valueOf(scope), "\\s+");
+        }
+        return Collections.emptyList();
+    }
+
+    private static String legacyHeader(HttpServletRequest request, String... names) {
+        for (String n : names) {
+            String v = request.getHeader(n);
+            if (v != null && !v.isBlank()) return v.trim();
+        }
+        return null;
+    }
+
+    private String legacyClaim(HttpServletRequest request, String... names) {
+        Map<String, Object> claims = fixture.jwtClaimsExtractor.extractClaims(request);
+        for (String c : names) {
+            Object v = claims.get(c);
+            if (v != null && !String.valueOf(v).isBlank()) return String.valueOf(v).trim();
+        }
+        return null;
+    }
+
+    private static List<String> legacyList(Object value) {
+        if (value == null) return Collections.emptyList();
+        if (value instanceof Collection<?>) {
+            return ((Collection<?>) value).stream()
+                    .filter(Objects::nonNull)
+                    .map(v -> String.valueOf(v).trim())
+                    .filter(v -> !v.isEmpty())
+                    .distinct()
+                    .collect(Collectors.toList());
+        }
+        String s = String.valueOf(value).trim();
+        if (s.isEmpty()) return Collections.emptyList();
+        if (s.contains(",")) return legacySplit(s, ",");
+        if (s.contains(" ")) return legacySplit(s, "\\s+");
+        return Collections.singletonList(s);
+    }
+
+    private static List<String> legacySplit(String s, String separator) {
+        return Arrays.stream(s.split(separator))
+                .map(String::trim)
+                .filter(v -> !v.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private void assertMatchesLegacy(MockHttpServletRequest request) {
+        // Cada chamada em uma requisição nova: o contexto memorizado não mascara a comparação
+        assertThat(extractor.extractUsername(copy(request))).isEqualTo(legacyUsername(request));
+        assertThat(extractor.extractUserName(copy(request))).isEqualTo(legacyUserName(request));
+        assertThat(extractor.extractUserEmail(copy(request))).isEqualTo(legacyUserEmail(request));
+        assertThat(extractor.extractSapRoles(copy(request))).isEqualTo(legacySapRoles(request));
+        assertThat(extractor.detectUsername(copy(request))).isEqualTo(legacyUsername(request));
+    }
+
+    private static MockHttpServletRequest copy(MockHttpServletRequest request) {
+        MockHttpServletRequest copy = new MockHttpServletRequest("GET", "/sap/profile");
+        for (String name : Collections.list(request.getHeaderNames())) {
+            copy.addHeader(name, request.getHeader(name));
+        }
+        return copy;
+    }
+
+    /**
+     * JWT sem assinatura com as claims informadas (a validação de assinatura vem desligada).
+     */
+    private String token(Map<String, Object> claims) throws Exception {
+        return base64Url("{\"alg\":\"RS256\",\"typ\":\"JWT\"}") + "."
+                + base64Url(fixture.objectMapper.writeValueAsString(claims)) + ".c2ln";
+    }
+
+    private static String base64Url(String s) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void repeatedResolveReturnsTheSameContext() {
+        MockHttpServletRequest request = SsoTestFixture.headerRequest("adriana@ideen.tech", List.of("RevvoUser", "RevvoAdmin"));
+
+        SapIdentityContext context = extractor.resolve(request);
+
+        assertThat(extractor.resolve(request)).isSameAs(context);
+        assertThat(request.getAttribute(SapIdentityContext.REQUEST_ATTRIBUTE)).isSameAs(context);
+        assertThat(context.getSapRoles()).isSameAs(extractor.extractSapRoles(request));
+        assertThat(extractor.resolve(new MockHttpServletRequest())).isNotSameAs(context);
+    }
+
+    @Test
+    void contextMemoizesTokenClaimsAcrossAttributes() {
+        MockHttpServletRequest request = SsoTestFixture.jwtRequest(
+                XsuaaTestTokens.token("adriana@ideen.tech", List.of("RevvoUser")));
+
+        SapIdentityContext context = extractor.resolve(request);
+        String username = extractor.extractUsername(request);
+
+        assertThat(username).isEqualTo("adriana@ideen.tech");
+        assertThat(context.claims()).isSameAs(extractor.resolve(request).claims());
+        assertThat(extractor.extractUsername(request)).isSameAs(username);
+        assertThat(extractor.extractSapRoles(request)).isSameAs(context.getSapRoles()).containsExactly("RevvoUser");
+        assertThat(context.isUsernameFromHeader()).isFalse();
+    }
+
+    @Test
+    void headerRequestMatchesLegacy() {
+        MockHttpServletRequest request = SsoTestFixture.headerRequest("adriana@ideen.tech", List.of("RevvoUser", "RevvoAdmin"));
+
+        assertThat(extractor.extractUsername(request)).isEqualTo("adriana@ideen.tech");
+        assertThat(extractor.extractUserName(request)).isEqualTo("Usuário adriana@ideen.tech");
+        assertThat(extractor.extractSapRoles(request)).containsExactly("RevvoUser", "RevvoAdmin");
+        assertMatchesLegacy(request);
+    }
+
+    @Test
+    void headerPriorityAndBlankFallthroughMatchLegacy() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/sap/profile");
+        request.addHeader("X-Forwarded-User", "proxy-user");
+        request.addHeader("X-SAP-USER", "  ");
+        request.addHeader("X-User", " plain-user ");
+        request.addHeader("X-User-Name", "");
+        request.addHeader("x-sap-user-name", "Adriana Amaral");
+        request.addHeader("X-SAP-GROUPS", "Group_A");
+        request.addHeader("X-SAP-ROLES", " Role_B , Role_A,,Role_B ");
+        request.addHeader("Authorization", "Bearer " + XsuaaTestTokens.token("jwt-user@ideen.tech", List.of("RevvoUser")));
+
+        assertThat(extractor.extractUsername(request)).isEqualTo("plain-user");
+        assertThat(extractor.extractUserName(request)).isEqualTo("Adriana Amaral");
+        assertThat(extractor.extractUserEmail(request)).isEqualTo("jwt-user@ideen.tech");
+        assertThat(extractor.extractSapRoles(request)).containsExactly("Role_B", "Role_A");
+        assertMatchesLegacy(request);
+    }
+
+    @Test
+    void jwtClaimFallbackMatchesLegacy() throws Exception {
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("preferred_username", " ");
+        claims.put("user_name", "");
+        claims.put("sub", "3f1e5c7a-9b2d-4e6f-8a0c-2b4d6f8a0c1e");
+        claims.put("name", "  ");
+        claims.put("given_name", " Adriana ");
+        claims.put("family_name", "Amaral");
+        claims.put("groups", List.of(" ", ""));
+        claims.put("roles", "Role_A, Role_B,Role_A");
+        claims.put("scope", "openid revvo.User");
+        MockHttpServletRequest request = SsoTestFixture.jwtRequest(token(claims));
+
+        assertThat(extractor.extractUsername(request)).isEqualTo("3f1e5c7a-9b2d-4e6f-8a0c-2b4d6f8a0c1e");
+        assertThat(extractor.extractUserName(request)).isEqualTo("Adriana");
+        assertThat(extractor.extractUserEmail(request)).isNull();
+        assertThat(extractor.extractSapRoles(request)).containsExactly("Role_A", "Role_B");
+        assertMatchesLegacy(request);
+
+        // Sem roles em claims de lista: scope separado por espaços
+        claims.remove("groups");
+        claims.remove("roles");
+        claims.put("email", " adriana@ideen.tech ");
+        MockHttpServletRequest scopeOnly = SsoTestFixture.jwtRequest(token(claims));
+
+        assertThat(extractor.extractUsername(scopeOnly)).isEqualTo("adriana@ideen.tech");
+        assertThat(extractor.extractSapRoles(scopeOnly)).containsExactly("openid", "revvo.User");
+        assertMatchesLegacy(scopeOnly);
+    }
+
+    @Test
+    void xsuaaTokenMatchesLegacy() {
+        MockHttpServletRequest request = SsoTestFixture.jwtRequest(
+                XsuaaTestTokens.token("adriana@ideen.tech", XsuaaTestTokens.PRODUCTION_ROLES));
+
+        assertThat(extractor.extractSapRoles(request)).isEqualTo(XsuaaTestTokens.PRODUCTION_ROLES);
+        assertThat(extractor.extractUserName(request)).isEqualTo("Adriana");
+        assertMatchesLegacy(request);
+    }
+
+    @Test
+    void anonymousRequestMatchesLegacy() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/sap/profile");
+        request.addHeader("Accept", "application/json");
+
+        assertThat(extractor.resolve(request).hasIdentity()).isFalse();
+        assertThat(extractor.extractUsername(request)).isNull();
+        assertThat(extractor.extractSapRoles(request)).isEmpty();
+        assertMatchesLegacy(request);
+    }
+}
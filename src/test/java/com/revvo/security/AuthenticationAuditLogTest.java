@@ -0,0 +1,133 @@
+package com.revvo.security;
+
+import com.revvo.config.SapSsoProperties;
+import com.revvo.support.SsoTestFixture;
+import com.revvo.support.XsuaaTestTokens;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthenticationAuditLogTest {
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void eventsFromManyThreadsAreAllWritten() throws Exception {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AuthenticationAuditLog auditLog = new AuthenticationAuditLog(properties(1024), meterRegistry);
+        auditLog.start();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    auditLog.record("user-" + thread, AuthenticationAuditLog.SOURCE_JWT, 0xABCL,
+                            i % 2 == 0 ? SapSsoCache.Lookup.HIT : SapSsoCache.Lookup.COMPUTED, 1_500_000);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        auditLog.close();
+
+        List<String> lines = Files.readAllLines(dir.resolve("audit.log"));
+        assertThat(lines).hasSize(800);
+        assertThat(lines.get(0).split("\t")).hasSize(6);
+        assertThat(lines.get(0)).contains("\tjwt\t0000000000000abc\t").endsWith("\t1500");
+        assertThat(events(meterRegistry, "written")).isEqualTo(800);
+        assertThat(events(meterRegistry, "dropped")).isZero();
+    }
+
+    @Test
+    void fullBufferDropsEventsWithoutBlocking() throws Exception {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AuthenticationAuditLog auditLog = new AuthenticationAuditLog(properties(8), meterRegistry);
+
+        // Gravador ainda parado: a fila enche e o resto é descartado
+        for (int i = 0; i < 20; i++) {
+            auditLog.record("user", AuthenticationAuditLog.SOURCE_HEADER, i, SapSsoCache.Lookup.HIT, 1000);
+        }
+        assertThat(events(meterRegistry, "dropped")).isEqualTo(12);
+
+        auditLog.start();
+        auditLog.close();
+        assertThat(Files.readAllLines(dir.resolve("audit.log"))).hasSize(8);
+    }
+
+    @Test
+    void usernameWithControlCharactersStaysOnOneLineWithSixFields() throws Exception {
+        AuthenticationAuditLog auditLog = new AuthenticationAuditLog(properties(16), new SimpleMeterRegistry());
+        auditLog.start();
+
+        String forged = "mallory\tjwt\t0000000000000000\thit\t1\n2025-01-01T00:00:00Z\tadmin\r\n\\x\u0000\u2028";
+        auditLog.record(forged, AuthenticationAuditLog.SOURCE_HEADER, 0xABCL, SapSsoCache.Lookup.COMPUTED, 1000);
+        auditLog.record("rafael", AuthenticationAuditLog.SOURCE_HEADER, 0xABCL, SapSsoCache.Lookup.HIT, 1000);
+        auditLog.close();
+
+        List<String> lines = Files.readAllLines(dir.resolve("audit.log"));
+        assertThat(lines).hasSize(2);
+        for (String line : lines) {
+            assertThat(line.split("\t", -1)).hasSize(6);
+        }
+        assertThat(lines.get(0).split("\t")[1])
+                .isEqualTo("mallory\\tjwt\\t0000000000000000\\thit\\t1\\n2025-01-01T00:00:00Z\\tadmin\\r\\n\\\\x\\u0000\\u2028");
+        assertThat(lines.get(1).split("\t")[1]).isEqualTo("rafael");
+    }
+
+    @Test
+    void filterRecordsSourceAndCacheOutcome() throws Exception {
+        SsoTestFixture fixture = new SsoTestFixture(properties(1024));
+        fixture.auditLog.start();
+
+        String token = XsuaaTestTokens.token("adriana.amaral@partner.ideen.tech", XsuaaTestTokens.roles(5));
+        authenticate(fixture, SsoTestFixture.jwtRequest(token));
+        authenticate(fixture, SsoTestFixture.jwtRequest(token));
+        authenticate(fixture, SsoTestFixture.headerRequest("rafael", List.of("RevvoUser")));
+        fixture.auditLog.close();
+
+        List<String> lines = Files.readAllLines(dir.resolve("audit.log"));
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(0)).contains("\tadriana.amaral@partner.ideen.tech\tjwt\t").contains("\tmiss\t");
+        assertThat(lines.get(1)).contains("\tjwt\t").contains("\thit\t");
+        assertThat(lines.get(2)).contains("\trafael\theader\t").contains("\tmiss\t");
+    }
+
+    private SapSsoProperties properties(int bufferSize) {
+        SapSsoProperties properties = new SapSsoProperties();
+        properties.getAudit().setEnabled(true);
+        properties.getAudit().setPath(dir.resolve("audit.log").toString());
+        properties.getAudit().setBufferSize(bufferSize);
+        return properties;
+    }
+
+    private static void authenticate(SsoTestFixture fixture, MockHttpServletRequest request) throws Exception {
+        SecurityContextHolder.clearContext();
+        fixture.sapSsoFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+    }
+
+    private static double events(MeterRegistry meterRegistry, String result) {
+        return meterRegistry.get("sap.sso.audit.events").tag("result", result).functionCounter().count();
+    }
+}
@@ -0,0 +1,198 @@
+package com.revvo.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revvo.config.SapSsoProperties;
+import com.revvo.support.XsuaaTestTokens;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtClaimsExtractorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JwtClaimsExtractor extractor =
+            new JwtClaimsExtractor(new ObjectMapper(), new SapSsoProperties(), meterRegistry);
+
+    @Test
+    void streamingParserMatchesFullPayload() {
+        String token = XsuaaTestTokens.token("adriana.amaral@partner.ideen.tech", XsuaaTestTokens.PRODUCTION_ROLES);
+
+        SapTokenClaims claims = extractor.extractSapClaims(token);
+        Map<String, Object> full = extractor.extractClaims(token);
+
+        assertThat(claims.getUserName()).isEqualTo(full.get("user_name"));
+        assertThat(claims.getEmail()).isEqualTo(full.get("email"));
+        assertThat(claims.getSub()).isEqualTo(full.get("sub"));
+        assertThat(claims.getGivenName()).isEqualTo(full.get("given_name"));
+        assertThat(claims.getFamilyName()).isEqualTo(full.get("family_name"));
+        assertThat(claims.getScope()).isEqualTo(String.valueOf(full.get("scope")));
+        assertThat(claims.getExp()).isEqualTo(((Number) full.get("exp")).longValue());
+        assertThat(claims.getRoleCollections()).isEqualTo(
+                ((Map<?, ?>) full.get("xs.system.attributes")).get("xs.rolecollections"));
+    }
+
+    @Test
+    void repeatedTokenIsServedFromCache() {
+        String token = XsuaaTestTokens.token("user@revvo", XsuaaTestTokens.roles(5));
+
+        assertThat(extractor.extractSapClaims(token)).isSameAs(extractor.extractSapClaims(token));
+    }
+
+    @Test
+    void invalidTokensYieldEmptyClaims() {
+        assertThat(extractor.extractSapClaims(null)).isSameAs(SapTokenClaims.EMPTY);
+        assertThat(extractor.extractSapClaims("nao-e-jwt")).isSameAs(SapTokenClaims.EMPTY);
+        assertThat(extractor.extractSapClaims("a.b@d.c")).isSameAs(SapTokenClaims.EMPTY);
+        assertThat(extractor.extractSapClaims("a." + base64Url("{\"user_name\":") + ".c")).isSameAs(SapTokenClaims.EMPTY);
+        assertThat(extractor.extractSapClaims("a." + base64Url("[1,2]") + ".c")).isSameAs(SapTokenClaims.EMPTY);
+    }
+
+    @Test
+    void roleClaimsKeepStringOrListShape() {
+        String payload = "{\"groups\":\"A,B\",\"roles\":[\"X\",null,1,{\"n\":1}],\"exp\":\"soon\"}";
+
+        SapTokenClaims claims = extractor.extractSapClaims("a." + base64Url(payload) + ".c");
+
+        assertThat(claims.getGroups()).isEqualTo("A,B");
+        assertThat(claims.getRoles()).isEqualTo(List.of("X", "1"));
+        assertThat(claims.getExp()).isNull();
+    }
+
+    @Test
+    void rejectedTokensAreRememberedByDigest() {
+        String malformedJson = "a." + base64Url("{\"user_name\":}") + ".c";
+        String badPayload = "a.b@d.c";
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(extractor.extractSapClaims(malformedJson)).isSameAs(SapTokenClaims.EMPTY);
+            assertThat(extractor.extractSapClaims(badPayload)).isSameAs(SapTokenClaims.EMPTY);
+            assertThat(extractor.extractClaims(malformedJson)).isEmpty();
+        }
+
+        assertThat(meterRegistry.get("cache.puts").tag("cache", "jwt-rejected").functionCounter().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "jwt-rejected").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(7);
+    }
+
+    @Test
+    void payloadValidationNeverThrows() {
+        byte[] out = new byte[64];
+        assertThat(JwtPayloadParser.decodePayload("semponto", out)).isEqualTo(-1);
+        assertThat(JwtPayloadParser.decodePayload(".e30.c", out)).isEqualTo(-1);
+        assertThat(JwtPayloadParser.decodePayload("a b." + base64Url("{}") + ".c", out)).isEqualTo(-1);
+        assertThat(JwtPayloadParser.decodePayload("a." + base64Url("[1]") + ".c", out)).isEqualTo(-1);
+        assertThat(JwtPayloadParser.decodePayload("a." + base64Url(" {\"a\":1} ") + ".c", out)).isEqualTo(9);
+    }
+
+    @Test
+    void usernameProbeFollowsClaimPriority() {
+        assertThat(extractor.extractUsername(XsuaaTestTokens.token("user@revvo", XsuaaTestTokens.roles(5))))
+                .isEqualTo("user@revvo");
+        assertThat(extractor.extractUsername("a." + base64Url("{\"sub\":\"s\",\"email\":\" e \",\"x\":{\"user_name\":\"n\"}}") + ".c"))
+                .isEqualTo("e");
+        assertThat(extractor.extractUsername("a." + base64Url("{\"user_name\":\"u\",\"preferred_username\":\"p\"}") + ".c"))
+                .isEqualTo("p");
+        assertThat(extractor.extractUsername("a." + base64Url("{\"preferred_username\":\" \",\"sub\":\"s\"}") + ".c"))
+                .isEqualTo("s");
+        assertThat(extractor.extractUsername("a." + base64Url("{\"sub\":}") + ".c")).isNull();
+        assertThat(extractor.extractUsername("opaco")).isNull();
+    }
+
+    @Test
+    void usernameProbeMatchesFullPayloadForRepeatedAndNonStringClaims() {
+        List<String> payloads = List.of(
+                "{\"preferred_username\":\"primeiro\",\"preferred_username\":\"ultimo\"}",
+                "{\"preferred_username\":\"p\",\"user_name\":\"u\",\"preferred_username\":\" \"}",
+                "{\"preferred_username\":\"p\",\"preferred_username\":null,\"sub\":\"s\"}",
+                "{\"preferred_username\":123,\"user_name\":\"u\"}",
+                "{\"user_name\":true,\"sub\":\"s\"}",
+                "{\"email\":1.5e3,\"sub\":\"s\"}",
+                "{\"user_name\":{\"id\":1,\"nome\":\"a\"},\"sub\":\"s\"}",
+                "{\"sub\":[\"a\",2]}");
+
+        for (String payload : payloads) {
+            String token = "a." + base64Url(payload) + ".c";
+            Map<String, Object> claims = extractor.extractClaims(token);
+            String expected = null;
+            for (String claim : List.of("preferred_username", "user_name", "email", "sub")) {
+                Object v = claims.get(claim);
+                if (v != null && !String.valueOf(v).isBlank()) {
+                    expected = String.valueOf(v).trim();
+                    break;
+                }
+            }
+
+            assertThat(extractor.extractUsername(token)).as(payload).isEqualTo(expected);
+        }
+        assertThat(extractor.extractUsername("a." + base64Url(payloads.get(0)) + ".c")).isEqualTo("ultimo");
+        assertThat(extractor.extractUsername("a." + base64Url(payloads.get(3)) + ".c")).isEqualTo("123");
+    }
+
+    @Test
+    void differentTokensAreCachedSeparately() {
+        long exp = System.currentTimeMillis() / 1000 + 3600;
+        String token = token("{\"user_name\":\"adriana@ideen.tech\",\"exp\":" + exp + "}");
+
+        SapTokenClaims first = extractor.extractSapClaims(token);
+
+        assertThat(first.getUserName()).isEqualTo("adriana@ideen.tech");
+        assertThat(extractor.extractSapClaims(token)).isSameAs(first);
+        assertThat(extractor.extractSapClaims(token("{\"user_name\":\"outro\",\"exp\":" + exp + "}")))
+                .isNotSameAs(first)
+                .extracting(SapTokenClaims::getUserName).isEqualTo("outro");
+        assertThat(meterRegistry.get("cache.puts").tag("cache", "jwt-claims").functionCounter().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void cachedClaimsExpireAtTokenExp() throws Exception {
+        long exp = System.currentTimeMillis() / 1000 + 2;
+        String token = token("{\"user_name\":\"adriana@ideen.tech\",\"exp\":" + exp + "}");
+
+        SapTokenClaims first = extractor.extractSapClaims(token);
+        assertThat(extractor.extractSapClaims(token)).isSameAs(first);
+
+        Thread.sleep(exp * 1000 - System.currentTimeMillis() + 50);
+
+        SapTokenClaims afterExp = extractor.extractSapClaims(token);
+        assertThat(afterExp).isNotSameAs(first);
+        assertThat(afterExp.getUserName()).isEqualTo("adriana@ideen.tech");
+        // Já expirado: decodificado de novo a cada requisição, sem voltar ao cache
+        assertThat(extractor.extractSapClaims(token)).isNotSameAs(afterExp);
+    }
+
+    @Test
+    void ttlIsCappedByClaimsCacheMaxTtl() throws Exception {
+        SapSsoProperties properties = new SapSsoProperties();
+        properties.getJwt().setClaimsCacheMaxTtl(Duration.ofMillis(20));
+        JwtClaimsExtractor shortLived = new JwtClaimsExtractor(new ObjectMapper(), properties, new SimpleMeterRegistry());
+        String withExp = token("{\"user_name\":\"a\",\"exp\":" + (System.currentTimeMillis() / 1000 + 3600) + "}");
+        String withoutExp = token("{\"user_name\":\"b\"}");
+
+        SapTokenClaims first = shortLived.extractSapClaims(withExp);
+        SapTokenClaims firstWithoutExp = shortLived.extractSapClaims(withoutExp);
+        assertThat(shortLived.extractSapClaims(withExp)).isSameAs(first);
+        assertThat(shortLived.extractSapClaims(withoutExp)).isSameAs(firstWithoutExp);
+
+        Thread.sleep(50);
+
+        assertThat(shortLived.extractSapClaims(withExp)).isNotSameAs(first);
+        assertThat(shortLived.extractSapClaims(withoutExp)).isNotSameAs(firstWithoutExp);
+    }
+
+    private static String token(String payload) {
+        return base64Url("{\"alg\":\"RS256\",\"typ\":\"JWT\"}") + "." + base64Url(payload) + ".c2ln";
+    }
+
+    private static String base64Url(String s) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(s.getBytes(StandardCharsets.UTF_8));
+    }
+}
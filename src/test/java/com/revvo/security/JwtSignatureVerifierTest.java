@@ -0,0 +1,241 @@
+package com.revvo.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revvo.config.SapSsoProperties;
+import com.revvo.support.XsuaaTestTokens;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtSignatureVerifierTest {
+
+    private static final String USER = "adriana.amaral@partner.ideen.tech";
+    private static final KeyPair KEYS = XsuaaTestTokens.rsaKeyPair();
+    private static final KeyPair OTHER_KEYS = XsuaaTestTokens.rsaKeyPair();
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SapSsoProperties properties = new SapSsoProperties();
+
+    private Path jwksFile;
+    private JwksKeyStore keyStore;
+    private JwtClaimsExtractor extractor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jwksFile = dir.resolve("token_keys.json");
+        Files.writeString(jwksFile, XsuaaTestTokens.jwks("key-1", (RSAPublicKey) KEYS.getPublic()));
+
+        SapSsoProperties.Verification verification = properties.getJwt().getVerification();
+        verification.setEnabled(true);
+        verification.setJwksUri(jwksFile.toUri().toString());
+        verification.setAudiences(List.of("sb-revvo!t8564"));
+        verification.setKeysMinRefetchInterval(Duration.ZERO);
+
+        keyStore = new JwksKeyStore(properties, new DefaultResourceLoader(), objectMapper);
+        keyStore.init();
+        JwtSignatureVerifier verifier = new JwtSignatureVerifier(properties, keyStore, objectMapper, meterRegistry);
+        extractor = new JwtClaimsExtractor(objectMapper, properties, meterRegistry, verifier);
+    }
+
+    @Test
+    void validTokenIsVerifiedOnceAndThenServedFromCache() {
+        String token = signed("key-1", KEYS, inOneHour());
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(extractor.extractSapClaims(token).getUserName()).isEqualTo(USER);
+        }
+        assertThat(verifications("valid")).isEqualTo(1);
+    }
+
+    @Test
+    void invalidTokensYieldEmptyClaims() {
+        assertThat(extractor.extractSapClaims(signed("key-1", OTHER_KEYS, inOneHour()))).isSameAs(SapTokenClaims.EMPTY);
+        assertThat(extractor.extractSapClaims(signed("key-1", KEYS, System.currentTimeMillis() / 1000 - 3600)))
+                .isSameAs(SapTokenClaims.EMPTY);
+        assertThat(extractor.extractSapClaims(signed("key-2", KEYS, inOneHour()))).isSameAs(SapTokenClaims.EMPTY);
+        assertThat(extractor.extractSapClaims(XsuaaTestTokens.token(USER, XsuaaTestTokens.roles(5))))
+                .isSameAs(SapTokenClaims.EMPTY);
+
+        assertThat(verifications("invalid_signature")).isEqualTo(1);
+        assertThat(verifications("expired")).isEqualTo(1);
+        assertThat(verifications("unknown_key")).isEqualTo(2);
+        assertThat(verifications("valid")).isZero();
+    }
+
+    @Test
+    void unexpectedAudienceIsRejected() {
+        properties.getJwt().getVerification().setAudiences(List.of("outro-app!t1"));
+        JwtSignatureVerifier verifier = new JwtSignatureVerifier(properties, keyStore, objectMapper, new SimpleMeterRegistry());
+
+        SapTokenClaims claims = extractor.extractSapClaims(signed("key-1", KEYS, inOneHour()));
+        assertThat(verifier.check(signed("key-1", KEYS, inOneHour()), claims))
+                .isEqualTo(JwtSignatureVerifier.Result.AUDIENCE);
+    }
+
+    @Test
+    void unknownKeyIdTriggersJwksReload() throws Exception {
+        KeyPair rotated = XsuaaTestTokens.rsaKeyPair();
+        String token = signed("key-2", rotated, inOneHour());
+
+        Files.writeString(jwksFile, XsuaaTestTokens.jwks("key-2", (RSAPublicKey) rotated.getPublic()));
+
+        assertThat(extractor.extractSapClaims(token).getUserName()).isEqualTo(USER);
+        assertThat(keyStore.key("key-2")).isEqualTo(rotated.getPublic());
+    }
+
+    @Test
+    void unknownKeyIsNotNegativeCachedButBadSignatureIs() throws Exception {
+        KeyPair rotated = XsuaaTestTokens.rsaKeyPair();
+        String unknownKey = signed("key-3", rotated, inOneHour());
+        String badSignature = signed("key-1", OTHER_KEYS, inOneHour());
+
+        assertThat(extractor.extractSapClaims(unknownKey)).isSameAs(SapTokenClaims.EMPTY);
+        assertThat(extractor.extractSapClaims(badSignature)).isSameAs(SapTokenClaims.EMPTY);
+
+        // XSUAA publica a chave nova: o mesmo token passa a valer, sem esperar o cache negativo
+        Files.writeString(jwksFile, XsuaaTestTokens.jwks("key-3", (RSAPublicKey) rotated.getPublic()));
+        assertThat(extractor.extractSapClaims(unknownKey).getUserName()).isEqualTo(USER);
+
+        // Assinatura inválida não muda com o tempo: validada uma única vez
+        assertThat(extractor.extractSapClaims(badSignature)).isSameAs(SapTokenClaims.EMPTY);
+        assertThat(verifications("unknown_key")).isEqualTo(1);
+        assertThat(verifications("invalid_signature")).isEqualTo(1);
+        assertThat(verifications("valid")).isEqualTo(1);
+    }
+
+    @Test
+    void failedReloadKeepsPreviousKeys() throws Exception {
+        Files.writeString(jwksFile, "nao-e-json");
+
+        assertThat(keyStore.refresh()).isFalse();
+        assertThat(keyStore.key("key-1")).isEqualTo(KEYS.getPublic());
+    }
+
+    @Test
+    void concurrentUnknownKeyIdsShareOneReload() throws Exception {
+        KeyPair rotated = XsuaaTestTokens.rsaKeyPair();
+        AtomicReference<String> body = new AtomicReference<>(XsuaaTestTokens.jwks("key-1", (RSAPublicKey) KEYS.getPublic()));
+        AtomicInteger fetches = new AtomicInteger();
+        HttpServer server = jwksServer(exchange -> {
+            fetches.incrementAndGet();
+            return body.get();
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            JwksKeyStore httpKeyStore = httpKeyStore(server);
+            body.set(XsuaaTestTokens.jwks("key-2", (RSAPublicKey) rotated.getPublic()));
+
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<PublicKey>> keys = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                keys.add(pool.submit(() -> {
+                    start.await();
+                    return httpKeyStore.key("key-2");
+                }));
+            }
+            start.countDown();
+
+            for (Future<PublicKey> key : keys) {
+                assertThat(key.get()).isEqualTo(rotated.getPublic());
+            }
+            // Carga inicial + uma única recarga: quem esperou o lock encontrou a chave já carregada
+            assertThat(fetches).hasValue(2);
+        } finally {
+            pool.shutdownNow();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void slowJwksEndpointTimesOutAndKeepsPreviousKeys() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        HttpServer server = jwksServer(exchange -> {
+            if (calls.incrementAndGet() > 1) {
+                Thread.sleep(2_000);
+            }
+            return XsuaaTestTokens.jwks("key-1", (RSAPublicKey) KEYS.getPublic());
+        });
+        try {
+            properties.getJwt().getVerification().setKeysFetchTimeout(Duration.ofMillis(200));
+            JwksKeyStore httpKeyStore = httpKeyStore(server);
+
+            long start = System.nanoTime();
+            assertThat(httpKeyStore.refresh()).isFalse();
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(1_500));
+            assertThat(httpKeyStore.key("key-1")).isEqualTo(KEYS.getPublic());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private JwksKeyStore httpKeyStore(HttpServer server) {
+        properties.getJwt().getVerification()
+                .setJwksUri("http://localhost:" + server.getAddress().getPort() + "/token_keys");
+        JwksKeyStore httpKeyStore = new JwksKeyStore(properties, new DefaultResourceLoader(), objectMapper);
+        httpKeyStore.init();
+        return httpKeyStore;
+    }
+
+    private static HttpServer jwksServer(JwksHandler handler) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/token_keys", exchange -> {
+            byte[] jwks;
+            try {
+                jwks = handler.body(exchange).getBytes(StandardCharsets.UTF_8);
+            } catch (InterruptedException e) {
+                exchange.close();
+                return;
+            }
+            exchange.sendResponseHeaders(200, jwks.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(jwks);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private interface JwksHandler {
+        String body(HttpExchange exchange) throws InterruptedException;
+    }
+
+    private double verifications(String result) {
+        return meterRegistry.get("sap.jwt.verifications").tag("result", result).counter().count();
+    }
+
+    private static String signed(String kid, KeyPair keys, long exp) {
+        return XsuaaTestTokens.signedToken(USER, XsuaaTestTokens.roles(5), exp, kid, keys.getPrivate());
+    }
+
+    private static long inOneHour() {
+        return System.currentTimeMillis() / 1000 + 3600;
+    }
+}
@@ -0,0 +1,128 @@
+package com.revvo.security;
+
+import com.revvo.support.SsoTestFixture;
+import com.revvo.support.XsuaaTestTokens;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.access.expression.ExpressionUtils;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionHandler;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SapMethodSecurityExpressionHandlerTest {
+
+    private final MethodSecurityExpressionHandler defaultHandler = new DefaultMethodSecurityExpressionHandler();
+    private final MethodSecurityExpressionHandler sapHandler = new SapMethodSecurityExpressionHandler();
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void filterAuthenticatesWithSapToken() throws Exception {
+        Authentication auth = authenticateSapUser();
+
+        assertThat(auth).isInstanceOf(SapAuthenticationToken.class);
+        assertThat(auth.isAuthenticated()).isTrue();
+        assertThat(auth.getPrincipal()).isInstanceOf(SapAuthenticatedUser.class);
+        assertThat(auth.getDetails()).isNotNull();
+    }
+
+    @Test
+    void sapHandlerMatchesDefaultHandler() throws Exception {
+        Authentication sap = authenticateSapUser();
+        Authentication plain = new UsernamePasswordAuthenticationToken("legacy", null, sap.getAuthorities());
+        Authentication anonymous = new AnonymousAuthenticationToken(
+                "key", "anonymous", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+
+        List<String> expressions = expressions(sap);
+        for (Authentication auth : List.of(sap, plain, anonymous)) {
+            for (String expression : expressions) {
+                assertThat(evaluate(sapHandler, expression, auth))
+                        .as("%s com %s", expression, auth.getClass().getSimpleName())
+                        .isEqualTo(evaluate(defaultHandler, expression, auth));
+            }
+        }
+    }
+
+    @Test
+    void sapAuthorizationBeanReadsCurrentAuthentication() throws Exception {
+        Authentication sap = authenticateSapUser();
+        String role = firstRole(sap);
+
+        SapAuthorization authorization = new SapAuthorization();
+        assertThat(authorization.hasRole(role)).isTrue();
+        assertThat(authorization.hasRole("ROLE_" + role)).isTrue();
+        assertThat(authorization.hasAnyRole("NAO_EXISTE", role)).isTrue();
+        assertThat(authorization.hasRole("NAO_EXISTE")).isFalse();
+        assertThat(authorization.hasAuthority(role)).isFalse();
+
+        SecurityContextHolder.clearContext();
+        assertThat(authorization.hasRole(role)).isFalse();
+    }
+
+    private static Authentication authenticateSapUser() throws Exception {
+        SsoTestFixture fixture = new SsoTestFixture();
+        String token = XsuaaTestTokens.token("adriana.amaral@partner.ideen.tech", XsuaaTestTokens.roles(47));
+        fixture.sapSsoFilter.doFilter(SsoTestFixture.jwtRequest(token), new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private static String firstRole(Authentication auth) {
+        for (GrantedAuthority authority : auth.getAuthorities()) {
+            if (authority.getAuthority().startsWith("ROLE_")) {
+                return authority.getAuthority().substring("ROLE_".length());
+            }
+        }
+        throw new AssertionError("usuário sem ROLE_*");
+    }
+
+    private static List<String> expressions(Authentication sap) {
+        List<String> expressions = new ArrayList<>(List.of(
+                "hasRole('NAO_EXISTE')",
+                "hasAuthority('NAO_EXISTE')",
+                "hasAnyRole('NAO_EXISTE', 'OUTRA')",
+                "isAuthenticated()",
+                "isAnonymous()",
+                "permitAll",
+                "denyAll",
+                "principal != null"
+        ));
+        for (GrantedAuthority authority : sap.getAuthorities()) {
+            String name = authority.getAuthority();
+            expressions.add("hasAuthority('" + name + "')");
+            if (name.startsWith("ROLE_")) {
+                String role = name.substring("ROLE_".length());
+                expressions.add("hasRole('" + role + "')");
+                expressions.add("hasAnyRole('NAO_EXISTE', '" + role + "')");
+                expressions.add("hasRole('" + role + "') and isAuthenticated()");
+            }
+        }
+        return expressions;
+    }
+
+    private static boolean evaluate(MethodSecurityExpressionHandler handler, String expression, Authentication auth)
+            throws NoSuchMethodException {
+        SimpleMethodInvocation invocation =
+                new SimpleMethodInvocation(new Object(), Object.class.getMethod("toString"));
+        EvaluationContext context = handler.createEvaluationContext(auth, invocation);
+        Expression parsed = handler.getExpressionParser().parseExpression(expression);
+        return ExpressionUtils.evaluateAsBoolean(parsed, context);
+    }
+}
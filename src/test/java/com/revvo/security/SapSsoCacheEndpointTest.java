@@ -0,0 +1,117 @@
+package com.revvo.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class SapSsoCacheEndpointTest {
+
+    private static final String ENDPOINT = "/actuator/sapssocache";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SapSsoCache sapSsoCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void clearCache() {
+        sapSsoCache.invalidateAll();
+    }
+
+    @Test
+    void onlyAdminsCanUseTheEndpoint() throws Exception {
+        mockMvc.perform(get(ENDPOINT)).andExpect(status().is4xxClientError());
+        mockMvc.perform(as(get(ENDPOINT), "user@ideen.tech", "RevvoUser")).andExpect(status().isForbidden());
+        mockMvc.perform(as(delete(ENDPOINT), "user@ideen.tech", "RevvoUser")).andExpect(status().isForbidden());
+
+        mockMvc.perform(as(get(ENDPOINT), "admin@ideen.tech", "RevvoAdmin")).andExpect(status().isOk());
+    }
+
+    @Test
+    void reportsEntriesAndRoleSetGroups() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            authenticate("user" + i + "@ideen.tech", "RevvoUser,Fiori_Launchpad");
+        }
+        // Mesmo conjunto em outra ordem e com duplicata: outra impressão, mesmo grupo
+        authenticate("reordered@ideen.tech", "Fiori_Launchpad,RevvoUser");
+        authenticate("duplicated@ideen.tech", "RevvoUser,Fiori_Launchpad,RevvoUser");
+        authenticate("other@ideen.tech", "RevvoUser");
+
+        JsonNode stats = read(as(get(ENDPOINT).param("top", "1"), "admin@ideen.tech", "RevvoAdmin"));
+
+        // 6 usuários + o próprio admin, autenticado pelo filtro nesta requisição
+        assertThat(stats.get("entries").asInt()).isEqualTo(7);
+        assertThat(stats.get("estimatedBytes").asLong()).isPositive();
+        assertThat(stats.get("ageDistribution").get("0m-1m").asLong()).isEqualTo(7);
+        assertThat(stats.get("topRoleSets")).hasSize(1);
+
+        JsonNode group = stats.get("topRoleSets").get(0);
+        assertThat(group.get("users").asInt()).isEqualTo(5);
+        assertThat(group.get("sapRoles").asInt()).isEqualTo(2);
+        assertThat(group.get("roleFingerprints")).extracting(JsonNode::asText).containsExactlyInAnyOrder(
+                fingerprint("RevvoUser,Fiori_Launchpad"),
+                fingerprint("Fiori_Launchpad,RevvoUser"),
+                fingerprint("RevvoUser,Fiori_Launchpad,RevvoUser"));
+    }
+
+    @Test
+    void evictsByUsernameRoleFingerprintOrEverything() throws Exception {
+        authenticate("a@ideen.tech", "RevvoUser,Fiori_Launchpad");
+        authenticate("b@ideen.tech", "RevvoUser,Fiori_Launchpad");
+        authenticate("c@ideen.tech", "RevvoUser");
+
+        JsonNode byUser = read(as(delete(ENDPOINT).param("username", "c@ideen.tech"), "admin@ideen.tech", "RevvoAdmin"));
+        assertThat(byUser.get("evicted").asInt()).isEqualTo(1);
+
+        // Impressão do header bruto: a mesma combinação em outra ordem não é removida
+        authenticate("d@ideen.tech", "Fiori_Launchpad,RevvoUser");
+        JsonNode byRoles = read(as(delete(ENDPOINT).param("roleFingerprint", fingerprint("RevvoUser,Fiori_Launchpad")),
+                "admin@ideen.tech", "RevvoAdmin"));
+        assertThat(byRoles.get("evicted").asInt()).isEqualTo(2);
+        assertThat(sapSsoCache.invalidate("d@ideen.tech")).isEqualTo(1);
+
+        // Sobrou só o admin
+        JsonNode all = read(as(delete(ENDPOINT), "admin@ideen.tech", "RevvoAdmin"));
+        assertThat(all.get("evicted").asInt()).isEqualTo(1);
+        assertThat(sapSsoCache.size()).isZero();
+
+        mockMvc.perform(as(delete(ENDPOINT).param("roleFingerprint", "xyz"), "admin@ideen.tech", "RevvoAdmin"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static String fingerprint(String rolesHeader) {
+        return String.format("%016x", RoleFingerprint.ofHeader(rolesHeader));
+    }
+
+    private void authenticate(String username, String roles) throws Exception {
+        mockMvc.perform(as(get("/sap/profile"), username, roles)).andExpect(status().isOk());
+    }
+
+    private JsonNode read(MockHttpServletRequestBuilder request) throws Exception {
+        String body = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private static MockHttpServletRequestBuilder as(MockHttpServletRequestBuilder request, String username, String roles) {
+        return request.header("x-authenticated-user", username).header("x-sap-roles", roles);
+    }
+}
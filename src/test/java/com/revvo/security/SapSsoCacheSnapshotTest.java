@@ -0,0 +1,133 @@
+package com.revvo.security;
+
+import com.revvo.config.SapSsoProperties;
+import com.revvo.domain.UserPermissions;
+import com.revvo.service.RoleSetMapping;
+import com.revvo.support.SsoTestFixture;
+import com.revvo.support.XsuaaTestTokens;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SapSsoCacheSnapshotTest {
+
+    private static final long ROLES = RoleFingerprint.ofHeader(String.join(",", XsuaaTestTokens.PRODUCTION_ROLES));
+
+    @TempDir
+    Path dir;
+
+    private final SsoTestFixture fixture = new SsoTestFixture();
+
+    @Test
+    void snapshotRestoresUsersAndSharesRoleLists() throws Exception {
+        Path file = dir.resolve("cache.snapshot");
+        for (int i = 0; i < 100; i++) {
+            fixture.sapSsoCache.put("user" + i + "@revvo", ROLES, user("user" + i + "@revvo"));
+        }
+
+        assertThat(fixture.sapSsoCache.writeSnapshot(file)).isEqualTo(100);
+
+        SapSsoCache restarted = new SsoTestFixture().sapSsoCache;
+        assertThat(restarted.loadSnapshot(file)).isEqualTo(100);
+
+        SapAuthenticatedUser original = fixture.sapSsoCache.get("user7@revvo", ROLES);
+        SapAuthenticatedUser restored = restarted.get("user7@revvo", ROLES);
+        assertThat(restored.getPermissions()).isEqualTo(original.getPermissions());
+        assertThat(restored.getAuthorities()).isEqualTo(original.getAuthorities());
+
+        // Mesmo conjunto de roles → mesma lista para todos os usuários
+        SapAuthenticatedUser other = restarted.get("user8@revvo", ROLES);
+        assertThat(other.getPermissions().getSapRoleSet()).isSameAs(restored.getPermissions().getSapRoleSet());
+        assertThat(other.getAuthorities()).isSameAs(restored.getAuthorities());
+    }
+
+    @Test
+    void expiredEntriesAreDiscarded() throws Exception {
+        Path file = dir.resolve("cache.snapshot");
+        long now = System.currentTimeMillis();
+        SapSsoCacheSnapshot.write(file, List.of(
+                new SapSsoCacheSnapshot.Entry(ROLES, now - 1, user("expirado@revvo")),
+                new SapSsoCacheSnapshot.Entry(ROLES, now + 60_000, user("valido@revvo"))));
+
+        SapSsoCache cache = fixture.sapSsoCache;
+        assertThat(cache.loadSnapshot(file)).isEqualTo(1);
+        assertThat(cache.get("expirado@revvo", ROLES)).isNull();
+        assertThat(cache.get("valido@revvo", ROLES)).isNotNull();
+    }
+
+    @Test
+    void lifecycleWritesOnShutdownAndConsumesOnStartup() throws Exception {
+        Path file = dir.resolve("cache.snapshot");
+        SapSsoProperties properties = new SapSsoProperties();
+        properties.getCacheSnapshot().setEnabled(true);
+        properties.getCacheSnapshot().setPath(file.toString());
+
+        SapSsoCache before = new SapSsoCache(properties, new SimpleMeterRegistry());
+        before.put("adriana@revvo", ROLES, user("adriana@revvo"));
+        before.shutdown();
+        assertThat(file).exists();
+
+        SapSsoCache after = new SapSsoCache(properties, new SimpleMeterRegistry());
+        after.restoreSnapshot();
+        assertThat(after.get("adriana@revvo", ROLES)).isNotNull();
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    void unreadableSnapshotIsIgnored() throws Exception {
+        Path file = dir.resolve("cache.snapshot");
+        Files.write(file, new byte[] {'R', 'V', 'S', 'C', 0, 99});
+
+        assertThatThrownBy(() -> fixture.sapSsoCache.loadSnapshot(file))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Versão");
+
+        SapSsoProperties properties = new SapSsoProperties();
+        properties.getCacheSnapshot().setEnabled(true);
+        properties.getCacheSnapshot().setPath(file.toString());
+        SapSsoCache cache = new SapSsoCache(properties, new SimpleMeterRegistry());
+        cache.restoreSnapshot();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void loads100kEntries() throws Exception {
+        Path file = dir.resolve("cache.snapshot");
+        SapSsoProperties properties = new SapSsoProperties();
+        properties.setCacheMaxSize(200_000);
+
+        SapAuthenticatedUser template = user("template@revvo");
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        List<SapSsoCacheSnapshot.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            String username = "user" + i + "@revvo";
+            UserPermissions t = template.getPermissions();
+            UserPermissions p = UserPermissions.builder()
+                    .username(username).name(t.getName()).email(username).source(t.getSource())
+                    .sapRoles(t.getSapRoles()).revvoRoles(t.getRevvoRoles())
+                    .build();
+            entries.add(new SapSsoCacheSnapshot.Entry(ROLES, expiresAt, new SapAuthenticatedUser(p, template.getAuthorities())));
+        }
+        SapSsoCacheSnapshot.write(file, entries);
+
+        SapSsoCache restarted = new SapSsoCache(properties, new SimpleMeterRegistry());
+        assertThat(restarted.loadSnapshot(file)).isEqualTo(100_000);
+        assertThat(restarted.get("user99999@revvo", ROLES).getPermissions().getSapRoles())
+                .hasSize(XsuaaTestTokens.PRODUCTION_ROLES.size());
+    }
+
+    private SapAuthenticatedUser user(String username) {
+        RoleSetMapping roleSet = fixture.permissionService.mapRoles(XsuaaTestTokens.PRODUCTION_ROLES);
+        UserPermissions permissions =
+                fixture.permissionService.processUserPermissions(username, "Usuário", username, XsuaaTestTokens.PRODUCTION_ROLES, roleSet);
+        return new SapAuthenticatedUser(permissions, roleSet.getAuthorities());
+    }
+}
@@ -0,0 +1,428 @@
+package com.revvo.security;
+
+import com.revvo.config.SapSsoProperties;
+import com.revvo.domain.UserPermissions;
+import com.revvo.service.RoleSetMapping;
+import com.revvo.support.SsoTestFixture;
+import com.revvo.support.XsuaaTestTokens;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SapSsoCacheTest {
+
+    private static final int THREADS = 32;
+
+    private static final long ROLES = RoleFingerprint.ofHeader("RevvoUser");
+
+    private final SsoTestFixture fixture = new SsoTestFixture();
+    private final SapSsoCache cache = fixture.sapSsoCache;
+    private final MeterRegistry refreshRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentMissesComputeOncePerExpiry() throws Exception {
+        AtomicInteger computations = new AtomicInteger();
+        SapSsoCache.Loader loader = username -> () -> {
+            computations.incrementAndGet();
+            sleep(50);
+            return user(username);
+        };
+
+        List<SapAuthenticatedUser> first = concurrently(() -> cache.get("adriana", ROLES, loader));
+        assertThat(computations).hasValue(1);
+        assertThat(first).allSatisfy(u -> assertThat(u).isSameAs(first.get(0)));
+
+        // Entrada expirada/invalidada: de novo um único cálculo
+        cache.invalidate("adriana");
+        List<SapAuthenticatedUser> second = concurrently(() -> cache.get("adriana", ROLES, loader));
+        assertThat(computations).hasValue(2);
+        assertThat(second).allSatisfy(u -> assertThat(u).isSameAs(second.get(0)));
+        assertThat(second.get(0)).isNotSameAs(first.get(0));
+
+        assertThat(fixture.meterRegistry.get("sap.sso.cache.loads").tag("result", "computed")
+                .functionCounter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void differentUsersLoadIndependently() throws Exception {
+        AtomicInteger computations = new AtomicInteger();
+        AtomicInteger next = new AtomicInteger();
+
+        concurrently(() -> cache.get("user" + (next.getAndIncrement() % 4), ROLES, username -> () -> {
+            computations.incrementAndGet();
+            sleep(50);
+            return user(username);
+        }));
+
+        assertThat(computations).hasValue(4);
+        assertThat(cache.size()).isEqualTo(4);
+    }
+
+    @Test
+    void failureIsSharedWithWaitersAndNotCached() throws Exception {
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        SapSsoCache.Loader failing = username -> () -> {
+            computations.incrementAndGet();
+            await(release);
+            throw new IllegalStateException("falha no mapeamento");
+        };
+
+        List<Future<SapAuthenticatedUser>> futures = submitAll(() -> cache.get("adriana", ROLES, failing));
+
+        // Só falha depois que todas as outras threads estão aguardando a carga em andamento
+        while (coalesced() < THREADS - 1) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        for (Future<SapAuthenticatedUser> f : futures) {
+            assertThatThrownBy(f::get).hasCauseInstanceOf(IllegalStateException.class);
+        }
+        assertThat(computations).hasValue(1);
+        assertThat(cache.size()).isZero();
+
+        SapAuthenticatedUser user = cache.get("adriana", ROLES, username -> () -> user(username));
+        assertThat(user.getUsername()).isEqualTo("adriana");
+    }
+
+    @Test
+    void loaderIsToldHowEachRequestWasServed() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<SapSsoCache.Lookup> lookups = Collections.synchronizedList(new ArrayList<>());
+
+        List<Future<SapAuthenticatedUser>> futures = submitAll(() -> cache.get("adriana", ROLES, new SapSsoCache.Loader() {
+            @Override
+            public Supplier<SapAuthenticatedUser> prepare(String username) {
+                return () -> {
+                    await(release);
+                    return user(username);
+                };
+            }
+
+            @Override
+            public void resolved(SapSsoCache.Lookup lookup) {
+                lookups.add(lookup);
+            }
+        }));
+
+        // Libera a carga só com todas as outras threads aguardando: nenhuma delas é um hit
+        while (coalesced() < THREADS - 1) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        for (Future<SapAuthenticatedUser> f : futures) {
+            f.get();
+        }
+
+        assertThat(lookups).hasSize(THREADS)
+                .containsOnly(SapSsoCache.Lookup.COMPUTED, SapSsoCache.Lookup.COALESCED)
+                .containsOnlyOnce(SapSsoCache.Lookup.COMPUTED);
+
+        List<SapSsoCache.Lookup> next = new ArrayList<>();
+        cache.get("adriana", ROLES, new SapSsoCache.Loader() {
+            @Override
+            public Supplier<SapAuthenticatedUser> prepare(String username) {
+                throw new AssertionError("hit não deveria recalcular");
+            }
+
+            @Override
+            public void resolved(SapSsoCache.Lookup lookup) {
+                next.add(lookup);
+            }
+        });
+        assertThat(next).containsExactly(SapSsoCache.Lookup.HIT);
+    }
+
+    @Test
+    void filterComputesPermissionsOncePerUser() throws Exception {
+        List<String> roles = XsuaaTestTokens.PRODUCTION_ROLES;
+
+        List<SapAuthenticatedUser> principals = concurrently(() -> {
+            try {
+                fixture.sapSsoFilter.doFilter(
+                        SsoTestFixture.headerRequest("adriana.amaral@partner.ideen.tech", roles),
+                        new MockHttpServletResponse(), new MockFilterChain());
+                return (SapAuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        });
+
+        assertThat(principals).allSatisfy(u -> assertThat(u).isSameAs(principals.get(0)));
+        assertThat(fixture.meterRegistry.get("sap.sso.cache.loads").tag("result", "computed")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void cachedPrincipalAndAuthoritiesAreReusedAcrossRequests() throws Exception {
+        List<String> roles = List.of("RevvoUser", "AdminFinanceApps");
+
+        SapAuthenticatedUser first = authenticate(SsoTestFixture.headerRequest("adriana", roles));
+        SapAuthenticatedUser second = authenticate(SsoTestFixture.headerRequest("adriana", roles));
+
+        assertThat(second).isSameAs(first);
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(computedLoads()).isEqualTo(1);
+
+        // Outro usuário com o mesmo conjunto de roles: mesmas authorities
+        SapAuthenticatedUser other = authenticate(SsoTestFixture.headerRequest("rafael", List.of("AdminFinanceApps", "RevvoUser")));
+        assertThat(other).isNotSameAs(first);
+        assertThat(other.getAuthorities()).isSameAs(first.getAuthorities());
+    }
+
+    @Test
+    void prebuiltAuthoritiesCarryRevvoAndSapRoles() {
+        List<String> roles = List.of("RevvoUser", "AdminFinanceApps");
+        RoleSetMapping roleSet = fixture.permissionService.mapRoles(roles);
+        SapAuthenticatedUser user = new SapAuthenticatedUser(
+                fixture.permissionService.processUserPermissions("adriana", null, null, roles, roleSet),
+                roleSet.getAuthorities());
+
+        assertThat(AuthorityUtils.authorityListToSet(user.getAuthorities()))
+                .containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN", "SAP_RevvoUser", "SAP_AdminFinanceApps");
+        assertThat(user.getUsername()).isEqualTo("adriana");
+        assertThatThrownBy(() -> user.getAuthorities().add(new SimpleGrantedAuthority("ROLE_X")))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void roleChangeInHeaderRecomputesImmediately() throws Exception {
+        String username = "adriana.amaral@partner.ideen.tech";
+
+        SapAuthenticatedUser user = authenticate(SsoTestFixture.headerRequest(username, List.of("RevvoUser")));
+        assertThat(user.getPermissions().getRevvoRoles()).containsExactly("USER");
+
+        // Mesmos roles: hit
+        assertThat(authenticate(SsoTestFixture.headerRequest(username, List.of("RevvoUser")))).isSameAs(user);
+
+        // Role collection adicionada no BTP: miss imediato, sem esperar o TTL
+        SapAuthenticatedUser promoted =
+                authenticate(SsoTestFixture.headerRequest(username, List.of("RevvoUser", "RevvoAdmin")));
+        assertThat(promoted.getPermissions().getRevvoRoles()).contains("ADMIN");
+        assertThat(computedLoads()).isEqualTo(2);
+    }
+
+    @Test
+    void roleChangeInJwtRecomputesImmediately() throws Exception {
+        String username = "adriana.amaral@partner.ideen.tech";
+
+        SapAuthenticatedUser user = authenticate(
+                SsoTestFixture.jwtRequest(XsuaaTestTokens.token(username, List.of("RevvoUser"))));
+        assertThat(user.getPermissions().getRevvoRoles()).containsExactly("USER");
+
+        // Token renovado com os mesmos roles: hit
+        assertThat(authenticate(SsoTestFixture.jwtRequest(
+                XsuaaTestTokens.token(username, List.of("RevvoUser"), 4_102_444_800L)))).isSameAs(user);
+
+        SapAuthenticatedUser promoted = authenticate(
+                SsoTestFixture.jwtRequest(XsuaaTestTokens.token(username, List.of("RevvoUser", "RevvoAdmin"))));
+        assertThat(promoted.getPermissions().getRevvoRoles()).contains("ADMIN");
+        assertThat(computedLoads()).isEqualTo(2);
+    }
+
+    @Test
+    void invalidateRemovesEveryRoleFingerprintOfTheUser() {
+        cache.put("adriana", 1L, user("adriana"));
+        cache.put("adriana", 2L, user("adriana"));
+        cache.put("outro", 1L, user("outro"));
+
+        assertThat(cache.invalidate("adriana")).isEqualTo(2);
+        assertThat(cache.get("adriana", 1L)).isNull();
+        assertThat(cache.get("outro", 1L)).isNotNull();
+    }
+
+    @Test
+    void hitInsideRefreshWindowServesOldValueAndRecomputesInBackground() throws Exception {
+        SapSsoCache refreshing = refreshAheadCache(2, 100);
+        AtomicInteger version = new AtomicInteger();
+        List<String> preparedOn = new ArrayList<>();
+        List<String> computedOn = new ArrayList<>();
+
+        SapSsoCache.Loader loader = username -> {
+            preparedOn.add(Thread.currentThread().getName());
+            return () -> {
+                computedOn.add(Thread.currentThread().getName());
+                return user(username + "#" + version.incrementAndGet());
+            };
+        };
+
+        SapAuthenticatedUser first = refreshing.get("adriana", ROLES, loader);
+        assertThat(first.getUsername()).isEqualTo("adriana#1");
+
+        // Janela maior que o TTL: todo hit está "perto de expirar"
+        assertThat(refreshing.get("adriana", ROLES, loader)).isSameAs(first);
+        eventually(() -> refreshing.get("adriana", ROLES).getUsername().equals("adriana#2"));
+
+        String caller = Thread.currentThread().getName();
+        assertThat(preparedOn).containsOnly(caller);
+        assertThat(computedOn.get(1)).startsWith("sap-sso-refresh-");
+        eventually(() -> refreshRegistry.get("sap.sso.cache.refreshes").tag("result", "success")
+                .functionCounter().count() == 1);
+    }
+
+    @Test
+    void hitOutsideRefreshWindowDoesNotRefresh() {
+        AtomicInteger prepared = new AtomicInteger();
+        SapSsoCache.Loader loader = username -> {
+            prepared.incrementAndGet();
+            return () -> user(username);
+        };
+
+        cache.get("adriana", ROLES, loader);
+        cache.get("adriana", ROLES, loader);
+        cache.get("adriana", ROLES, loader);
+
+        assertThat(prepared).hasValue(1);
+    }
+
+    @Test
+    void refreshesBeyondQueueCapacityAreRejected() throws Exception {
+        SapSsoCache refreshing = refreshAheadCache(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger refreshesStarted = new AtomicInteger();
+
+        for (String username : List.of("a", "b", "c")) {
+            refreshing.put(username, ROLES, user(username));
+        }
+        SapSsoCache.Loader blocking = username -> () -> {
+            refreshesStarted.incrementAndGet();
+            await(release);
+            return user(username);
+        };
+
+        refreshing.get("a", ROLES, blocking);                 // ocupa a única thread
+        eventually(() -> refreshesStarted.get() == 1);
+        refreshing.get("b", ROLES, blocking);                 // fila (capacidade 1)
+        refreshing.get("c", ROLES, blocking);                 // rejeitado
+        refreshing.get("a", ROLES, blocking);                 // já em refresh: ignorado
+
+        assertThat(refreshRegistry.get("sap.sso.cache.refreshes").tag("result", "rejected")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(refreshRegistry.get("executor.queued").tag("name", "sap-sso-refresh")
+                .gauge().value()).isEqualTo(1);
+
+        release.countDown();
+        eventually(() -> refreshesStarted.get() == 2);
+        refreshing.shutdown();
+    }
+
+    // -------- Helpers --------
+
+    private SapAuthenticatedUser authenticate(MockHttpServletRequest request) throws Exception {
+        try {
+            fixture.sapSsoFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return (SapAuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private double computedLoads() {
+        return fixture.meterRegistry.get("sap.sso.cache.loads").tag("result", "computed")
+                .functionCounter().count();
+    }
+
+    private SapSsoCache refreshAheadCache(int threads, int queueCapacity) {
+        SapSsoProperties properties = new SapSsoProperties();
+        properties.getCacheRefreshAhead().setWindow(Duration.ofMinutes(properties.getCacheTtlMinutes() + 1));
+        properties.getCacheRefreshAhead().setThreads(threads);
+        properties.getCacheRefreshAhead().setQueueCapacity(queueCapacity);
+        return new SapSsoCache(properties, refreshRegistry);
+    }
+
+    private static void eventually(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime() - deadline).as("condição não atingida em 5s").isNegative();
+            Thread.sleep(5);
+        }
+    }
+
+    private <T> List<T> concurrently(Callable<T> task) throws Exception {
+        List<T> results = new ArrayList<>();
+        for (Future<T> f : submitAll(task)) {
+            results.add(f.get(10, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    private <T> List<Future<T>> submitAll(Callable<T> task) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<T>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                ready.countDown();
+                start.await();
+                return task.call();
+            }));
+        }
+
+        ready.await();
+        start.countDown();
+        return futures;
+    }
+
+    private SapAuthenticatedUser user(String username) {
+        UserPermissions permissions = UserPermissions.builder()
+                .username(username)
+                .sapRoles(List.of())
+                .revvoRoles(List.of("USER"))
+                .source("SAP_SSO")
+                .build();
+        return new SapAuthenticatedUser(permissions, List.of());
+    }
+
+    private double coalesced() {
+        return fixture.meterRegistry.get("sap.sso.cache.loads").tag("result", "coalesced")
+                .functionCounter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.revvo.security;
+
+import com.revvo.config.SapSsoProperties;
+import com.revvo.domain.UserPermissions;
+import com.revvo.service.RoleSetMapping;
+import com.revvo.support.InMemorySapSsoL2Cache;
+import com.revvo.support.SsoTestFixture;
+import com.revvo.support.XsuaaTestTokens;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SapSsoL2CacheTest {
+
+    private static final String USERNAME = "adriana.amaral@partner.ideen.tech";
+    private static final long ROLES = RoleFingerprint.ofHeader(String.join(",", XsuaaTestTokens.PRODUCTION_ROLES));
+
+    private final SsoTestFixture fixture = new SsoTestFixture();
+    private final InMemorySapSsoL2Cache l2 = new InMemorySapSsoL2Cache();
+
+    // Duas instâncias da aplicação atrás do approuter
+    private final SapSsoCache nodeA = node();
+    private final SapSsoCache nodeB = node();
+
+    private final AtomicInteger computations = new AtomicInteger();
+
+    @Test
+    void otherNodeReusesPermissionsFromL2() {
+        SapAuthenticatedUser computed = nodeA.get(USERNAME, ROLES, this::compute);
+
+        SapAuthenticatedUser fromL2 = nodeB.get(USERNAME, ROLES, username -> {
+            throw new AssertionError("não deveria recalcular");
+        });
+
+        assertThat(computations).hasValue(1);
+        assertThat(fromL2.getPermissions()).isEqualTo(computed.getPermissions());
+        assertThat(authorityNames(fromL2)).isEqualTo(authorityNames(computed));
+
+        // Depois do L2, fica no L1 do nó B
+        assertThat(nodeB.get(USERNAME, ROLES)).isSameAs(fromL2);
+    }
+
+    @Test
+    void differentRolesInL2AreIgnored() {
+        nodeA.get(USERNAME, ROLES, this::compute);
+
+        nodeB.get(USERNAME, RoleFingerprint.ofHeader("RevvoUser"), this::compute);
+
+        assertThat(computations).hasValue(2);
+    }
+
+    @Test
+    void invalidationEvictsL1OnEveryNode() {
+        nodeA.get(USERNAME, ROLES, this::compute);
+        nodeB.get(USERNAME, ROLES, this::compute);
+        assertThat(nodeB.get(USERNAME, ROLES)).isNotNull();
+
+        nodeA.invalidate(USERNAME);
+
+        assertThat(nodeA.get(USERNAME, ROLES)).isNull();
+        assertThat(nodeB.get(USERNAME, ROLES)).isNull();
+        assertThat(l2.size()).isZero();
+
+        nodeB.get(USERNAME, ROLES, this::compute);
+        assertThat(computations).hasValue(2);
+    }
+
+    @Test
+    void invalidateAllClearsEveryNode() {
+        nodeA.get(USERNAME, ROLES, this::compute);
+        nodeB.get("outro@revvo", ROLES, this::compute);
+
+        nodeB.invalidateAll();
+
+        assertThat(nodeA.size()).isZero();
+        assertThat(nodeB.size()).isZero();
+        assertThat(l2.size()).isZero();
+    }
+
+    @Test
+    void unreadableL2ValueFallsBackToComputing() {
+        l2.corrupt(USERNAME, new byte[] {1, 2, 3});
+
+        SapAuthenticatedUser user = nodeB.get(USERNAME, ROLES, this::compute);
+
+        assertThat(user.getUsername()).isEqualTo(USERNAME);
+        assertThat(computations).hasValue(1);
+    }
+
+    @Test
+    void codecRoundTripsNullsAndRejectsUnknownVersion() {
+        UserPermissions permissions = UserPermissions.builder().username("u").source("sap-sso").build();
+        SapAuthenticatedUser user = new SapAuthenticatedUser(permissions, List.of());
+
+        byte[] bytes = SapAuthenticatedUserCodec.encode(user, 42L, 1_000L);
+        SapAuthenticatedUserCodec.Entry entry = SapAuthenticatedUserCodec.decode(bytes);
+
+        assertThat(entry.roleFingerprint).isEqualTo(42L);
+        assertThat(entry.expiresAtMillis).isEqualTo(1_000L);
+        assertThat(entry.user.getPermissions().getName()).isNull();
+        assertThat(entry.user.getPermissions().getSapRoles()).isEmpty();
+
+        bytes[0] = 99;
+        assertThatThrownBy(() -> SapAuthenticatedUserCodec.decode(bytes))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // -------- Helpers --------
+
+    private SapSsoCache node() {
+        return new SapSsoCache(new SapSsoProperties(), new SimpleMeterRegistry(), l2);
+    }
+
+    private Supplier<SapAuthenticatedUser> compute(String username) {
+        return () -> {
+            computations.incrementAndGet();
+            RoleSetMapping roleSet = fixture.permissionService.mapRoles(XsuaaTestTokens.PRODUCTION_ROLES);
+            UserPermissions permissions = fixture.permissionService.processUserPermissions(
+                    username, "Adriana", username, XsuaaTestTokens.PRODUCTION_ROLES, roleSet);
+            return new SapAuthenticatedUser(permissions, roleSet.getAuthorities());
+        };
+    }
+
+    private static List<String> authorityNames(SapAuthenticatedUser user) {
+        return user.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toList());
+    }
+}
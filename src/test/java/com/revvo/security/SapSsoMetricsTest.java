@@ -0,0 +1,77 @@
+package com.revvo.security;
+
+import com.revvo.config.SapSsoProperties;
+import com.revvo.support.SsoTestFixture;
+import com.revvo.support.XsuaaTestTokens;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SapSsoMetricsTest {
+
+    private static final List<String> ROLES = List.of("RevvoAdmin", "RevvoUser", "Fiori_Launchpad");
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void filterRecordsEachStageAndSource() throws Exception {
+        SsoTestFixture fixture = new SsoTestFixture(properties(true));
+
+        authenticate(fixture, SsoTestFixture.headerRequest("ana@ideen.tech", ROLES));
+        authenticate(fixture, SsoTestFixture.headerRequest("ana@ideen.tech", ROLES)); // hit
+        authenticate(fixture, SsoTestFixture.jwtRequest(XsuaaTestTokens.token("bia@ideen.tech", ROLES)));
+
+        MeterRegistry registry = fixture.meterRegistry;
+        assertThat(stage(registry, "header_probe")).isEqualTo(3);
+        assertThat(stage(registry, "jwt_decode")).isEqualTo(1);
+        // Só nos misses do cache (o hit reaproveita o usuário montado)
+        assertThat(stage(registry, "role_extraction")).isEqualTo(2);
+        assertThat(stage(registry, "mapping")).isEqualTo(2);
+        assertThat(stage(registry, "authority_build")).isEqualTo(2);
+
+        assertThat(registry.get("sap.sso.authentication").tag("source", "header").timer().count()).isEqualTo(2);
+        assertThat(registry.get("sap.sso.authentication").tag("source", "jwt").timer().count()).isEqualTo(1);
+        assertThat(registry.get("sap.sso.roles").summary().count()).isEqualTo(3);
+        assertThat(registry.get("sap.sso.roles").summary().max()).isEqualTo(ROLES.size());
+    }
+
+    @Test
+    void disabledRegistersNothing() throws Exception {
+        SsoTestFixture fixture = new SsoTestFixture(properties(false));
+
+        authenticate(fixture, SsoTestFixture.headerRequest("ana@ideen.tech", ROLES));
+
+        assertThat(fixture.metrics.start()).isZero();
+        assertThat(fixture.meterRegistry.find("sap.sso.stage").timers()).isEmpty();
+        assertThat(fixture.meterRegistry.find("sap.sso.authentication").timers()).isEmpty();
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isInstanceOf(SapAuthenticationToken.class);
+    }
+
+    private static void authenticate(SsoTestFixture fixture, MockHttpServletRequest request) throws Exception {
+        SecurityContextHolder.clearContext();
+        fixture.sapSsoFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+    }
+
+    private static long stage(MeterRegistry registry, String stage) {
+        Timer timer = registry.get("sap.sso.stage").tag("stage", stage).timer();
+        return timer.count();
+    }
+
+    private static SapSsoProperties properties(boolean enabled) {
+        SapSsoProperties properties = new SapSsoProperties();
+        properties.getMetrics().setEnabled(enabled);
+        return properties;
+    }
+}
@@ -0,0 +1,77 @@
+package com.revvo.service;
+
+import com.revvo.config.SapSsoProperties;
+import com.revvo.domain.RoleDictionary;
+import com.revvo.domain.UserPermissions;
+import com.revvo.security.AuthorityBits;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PermissionServiceTest {
+
+    private final SapSsoProperties properties = new SapSsoProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PermissionService permissionService =
+            new PermissionService(new RoleMappingEngine(properties), properties, meterRegistry);
+
+    @Test
+    void sameRoleSetInAnyOrderSharesOneMapping() {
+        RoleSetMapping mapping = permissionService.mapRoles(List.of("RevvoUser", "AdminFinanceApps", "PI_Read_Only"));
+
+        assertThat(permissionService.mapRoles(List.of("PI_Read_Only", "RevvoUser", "AdminFinanceApps"))).isSameAs(mapping);
+        assertThat(permissionService.mapRoles(List.of("AdminFinanceApps", "RevvoUser", "AdminFinanceApps", "PI_Read_Only")))
+                .isSameAs(mapping);
+        assertThat(permissionService.mapRoles(List.of("RevvoUser", "AdminFinanceApps"))).isNotSameAs(mapping);
+
+        assertThat(mapping.getSapRoles()).containsExactly("AdminFinanceApps", "PI_Read_Only", "RevvoUser");
+        assertThat(mapping.getRevvoRoles()).containsExactlyInAnyOrder("ADMIN", "USER");
+        assertThat(meterRegistry.get("cache.puts").tag("cache", "sap-role-sets").functionCounter().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void onlyConfiguredRolesAndAuthoritiesAreRegistered() {
+        int size = RoleDictionary.global().size();
+        String clientRole = "Cliente_" + System.nanoTime();
+
+        RoleSetMapping mapping = permissionService.mapRoles(List.of("RevvoAdmin", clientRole));
+        AuthorityBits bits = AuthorityBits.of(mapping.getAuthorities());
+
+        // O role do cliente entra só como observado; a authority dele não entra
+        assertThat(RoleDictionary.global().size()).isEqualTo(size + 1);
+        assertThat(RoleDictionary.global().find(clientRole)).isNotNegative();
+        assertThat(RoleDictionary.global().findRegistered(clientRole)).isEqualTo(-1);
+        assertThat(RoleDictionary.global().find("SAP_" + clientRole)).isEqualTo(-1);
+        assertThat(RoleDictionary.global().findRegistered("ROLE_ADMIN")).isNotNegative();
+        assertThat(RoleDictionary.global().findRegistered("SAP_RevvoAdmin")).isNotNegative();
+        assertThat(mapping.getSapRoles().get(0))
+                .isSameAs(RoleDictionary.global().name(RoleDictionary.global().find(clientRole)));
+
+        assertThat(bits.has("ROLE_ADMIN")).isTrue();
+        assertThat(bits.has("SAP_RevvoAdmin")).isTrue();
+        assertThat(bits.has("SAP_" + clientRole)).isTrue();
+        assertThat(bits.has("SAP_Outro")).isFalse();
+        assertThat(bits.has("ROLE_AUDITOR")).isFalse();
+        assertThat(bits.has(null)).isFalse();
+    }
+
+    @Test
+    void userPermissionsKeepSapRolesInReceivedOrder() {
+        List<String> received = List.of("RevvoUser", "AdminFinanceApps", "PI_Read_Only");
+        List<String> canonical = List.of("AdminFinanceApps", "PI_Read_Only", "RevvoUser");
+
+        UserPermissions permissions = permissionService.processUserPermissions("adriana", "Adriana", null, received);
+        assertThat(permissions.getSapRoles()).isEqualTo(received);
+        assertThat(permissions.getRevvoRoles()).containsExactlyInAnyOrder("ADMIN", "USER");
+
+        // Já em ordem canônica: a lista de roles do mapeamento é compartilhada
+        RoleSetMapping mapping = permissionService.mapRoles(canonical);
+        UserPermissions sorted = permissionService.processUserPermissions("rafael", "Rafael", null, canonical, mapping);
+        assertThat(sorted.getSapRoleSet()).isSameAs(mapping.getSapRoleSet());
+        assertThat(sorted.getRevvoRoleSet()).isSameAs(permissions.getRevvoRoleSet());
+    }
+}
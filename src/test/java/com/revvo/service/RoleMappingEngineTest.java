@@ -0,0 +1,98 @@
+package com.revvo.service;
+
+import com.revvo.config.SapSsoProperties;
+import com.revvo.config.SapSsoProperties.MatchType;
+import com.revvo.config.SapSsoProperties.RoleMapping;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoleMappingEngineTest {
+
+    private final RoleMappingEngine engine = new RoleMappingEngine(new SapSsoProperties());
+
+    /**
+     * Mapeamento original (hardcoded) do PermissionService, usado como referência.
+     */
+    private static Set<String> legacyMapping(List<String> sapRoles) {
+        Set<String> result = new HashSet<>();
+
+        if (sapRoles == null || sapRoles.isEmpty()) {
+            result.add("USER");
+            return result;
+        }
+
+        for (String role : sapRoles) {
+            if (role.equalsIgnoreCase("RevvoAdmin")) {
+                result.add("ADMIN");
+            }
+            if (role.equalsIgnoreCase("RevvoUser")) {
+                result.add("USER");
+            }
+            if (role.startsWith("Admin")) {
+                result.add("ADMIN");
+            }
+        }
+        if (result.isEmpty()) {
+            result.add("USER");
+        }
+
+        return result;
+    }
+
+    @Test
+    void defaultRulesMatchLegacyMapping() {
+        List<List<String>> cases = List.of(
+                List.of(),
+                List.of("RevvoAdmin"),
+                List.of("REVVOADMIN"),
+                List.of("revvouser"),
+                List.of("RevvoUser", "RevvoAdmin"),
+                List.of("AdminFinanceApps", "AdminIdeenFinance"),
+                List.of("admin", "ADMIN", "Admin"),
+                List.of("Launchpad_Admin", "Subaccount Administrator"),
+                List.of("RevvoAdminX", "xRevvoUser"),
+                List.of("OpenConnectors_User", "PI_Read_Only", "sap_subaccount_everyone"),
+                List.of("revvoadmın") // 'ı' sem ponto: equalsIgnoreCase não casa com 'i'
+        );
+
+        for (List<String> roles : cases) {
+            assertThat(engine.map(roles)).as("roles %s", roles).isEqualTo(legacyMapping(roles));
+        }
+        assertThat(engine.map(null)).isEqualTo(legacyMapping(null));
+    }
+
+    @Test
+    void randomRoleSetsMatchLegacyMapping() {
+        String[] pool = {
+                "RevvoAdmin", "revvoADMIN", "RevvoUser", "REVVOUSER", "Admin", "AdminFinanceApps", "admin",
+                "Adm", "APIPortal.Administrator", "Launchpad_Admin", "PI_Administrator", "Subaccount Viewer", ""
+        };
+        Random random = new Random(42);
+
+        for (int i = 0; i < 2_000; i++) {
+            List<String> roles = new ArrayList<>();
+            int n = random.nextInt(6);
+            for (int j = 0; j < n; j++) {
+                roles.add(pool[random.nextInt(pool.length)]);
+            }
+            assertThat(engine.map(roles)).as("roles %s", roles).isEqualTo(legacyMapping(roles));
+        }
+    }
+
+    @Test
+    void supportsWildcardRegexAndIgnoreCasePrefixRules() {
+        RoleMappingEngine custom = new RoleMappingEngine(List.of(
+                RoleMapping.of(MatchType.WILDCARD, "PI_*_Developer", false, "INTEGRATION"),
+                RoleMapping.of(MatchType.REGEX, "APIPortal\\.(Administrator|Configurator)", false, "API_ADMIN"),
+                RoleMapping.of(MatchType.PREFIX, "launchpad_", true, "LAUNCHPAD")
+        ), "GUEST");
+
+        assertThat(custom.map(List.of("PI_Integration_Developer"))).containsExactly("INTEGRATION");
+        assertThat(custom.map(List.of("APIPortal.Configurator"))).containsExactly("API_ADMIN");
+        assertThat(custom.map(List.of("APIPortal.Tester"))).containsExactly("GUEST");
+        assertThat(custom.map(List.of("Launchpad_Admin", "LAUNCHPAD_USER"))).containsExactly("LAUNCHPAD");
+    }
+}
@@ -0,0 +1,76 @@
+package com.revvo.support;
+
+import com.revvo.security.SapSsoL2Cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * L2 em memória para testes: várias instâncias de {@link com.revvo.security.SapSsoCache}
+ * compartilhando o mesmo objeto se comportam como nós atrás do approuter com um Redis comum.
+ * As invalidações são entregues de forma síncrona a todos os inscritos.
+ */
+public final class InMemorySapSsoL2Cache implements SapSsoL2Cache {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final List<Consumer<Invalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public byte[] get(String username) {
+        Entry entry = entries.get(username);
+        if (entry == null || entry.expiresAtMillis <= System.currentTimeMillis()) {
+            return null;
+        }
+        return entry.value.clone();
+    }
+
+    @Override
+    public void put(String username, byte[] value, Duration ttl) {
+        entries.put(username, new Entry(value.clone(), System.currentTimeMillis() + ttl.toMillis()));
+    }
+
+    @Override
+    public void remove(String username) {
+        entries.remove(username);
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public void publish(Invalidation invalidation) {
+        listeners.forEach(listener -> listener.accept(invalidation));
+    }
+
+    @Override
+    public void subscribe(Consumer<Invalidation> listener) {
+        listeners.add(listener);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Sobrescreve o valor bruto (para simular dados corrompidos ou de outra versão).
+     */
+    public void corrupt(String username, byte[] value) {
+        entries.put(username, new Entry(value, Long.MAX_VALUE));
+    }
+
+    private static final class Entry {
+        private final byte[] value;
+        private final long expiresAtMillis;
+
+        Entry(byte[] value, long expiresAtMillis) {
+            this.value = value;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.revvo.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revvo.config.SapSsoProperties;
+import com.revvo.sap.SapContextExtractor;
+import com.revvo.security.AuthenticationAuditLog;
+import com.revvo.security.JwtClaimsExtractor;
+import com.revvo.security.SapSsoCache;
+import com.revvo.security.SapSsoFilter;
+import com.revvo.security.SapSsoMetrics;
+import com.revvo.service.PermissionService;
+import com.revvo.service.RoleMappingEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+
+/**
+ * Monta a cadeia de autenticação SSO (extractors, serviço, cache e filtro) sem contexto
+ * Spring, para testes e benchmarks.
+ */
+public final class SsoTestFixture {
+
+    public final SapSsoProperties properties;
+    public final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    public final ObjectMapper objectMapper = new ObjectMapper();
+    public final SapSsoMetrics metrics;
+    public final JwtClaimsExtractor jwtClaimsExtractor;
+    public final SapContextExtractor sapContextExtractor;
+    public final RoleMappingEngine roleMappingEngine;
+    public final PermissionService permissionService;
+    public final SapSsoCache sapSsoCache;
+    public final AuthenticationAuditLog auditLog;
+    public final SapSsoFilter sapSsoFilter;
+
+    public SsoTestFixture() {
+        this(new SapSsoProperties());
+    }
+
+    public SsoTestFixture(SapSsoProperties properties) {
+        this.properties = properties;
+        this.metrics = new SapSsoMetrics(properties, meterRegistry);
+        this.jwtClaimsExtractor = new JwtClaimsExtractor(objectMapper, properties, meterRegistry);
+        this.sapContextExtractor = new SapContextExtractor(jwtClaimsExtractor, metrics);
+        this.roleMappingEngine = new RoleMappingEngine(properties);
+        this.permissionService = new PermissionService(roleMappingEngine, properties, meterRegistry, metrics);
+        this.sapSsoCache = new SapSsoCache(properties, meterRegistry);
+        this.auditLog = new AuthenticationAuditLog(properties, meterRegistry);
+        this.sapSsoFilter = new SapSsoFilter(sapContextExtractor, permissionService, sapSsoCache, auditLog, metrics);
+    }
+
+    /**
+     * Requisição como o approuter envia: usuário, nome, email e roles em headers.
+     */
+    public static MockHttpServletRequest headerRequest(String username, List<String> roles) {
+        MockHttpServletRequest request = baseRequest();
+        request.addHeader("x-authenticated-user", username);
+        request.addHeader("x-user-name", "Usuário " + username);
+        request.addHeader("x-user-email", username);
+        request.addHeader("x-sap-roles", String.join(",", roles));
+        return request;
+    }
+
+    /**
+     * Requisição só com o JWT do XSUAA (Authorization: Bearer).
+     */
+    public static MockHttpServletRequest jwtRequest(String token) {
+        MockHttpServletRequest request = baseRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+
+    private static MockHttpServletRequest baseRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/sap/profile");
+        request.setServletPath("/sap/profile");
+        request.addHeader("Host", "revvo.cfapps.br10.hana.ondemand.com");
+        request.addHeader("Accept", "application/json");
+        request.addHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36");
+        request.addHeader("X-Forwarded-For", "10.0.0.1");
+        request.addHeader("X-Forwarded-Proto", "https");
+        return request;
+    }
+}
@@ -0,0 +1,148 @@
+package com.revvo.support;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Tokens no formato do XSUAA (BTP) para testes e benchmarks.
+ *
+ * Os 47 role collections são os do teste real documentado em IMPLEMENTACAO_SSO_SAP.md.
+ * {@link #token} tem assinatura fictícia (o backend só decodifica o payload quando a validação
+ * está desligada); {@link #signedToken} assina com RS256 para os testes de validação com JWKS.
+ */
+public final class XsuaaTestTokens {
+
+    public static final List<String> PRODUCTION_ROLES = List.of(
+            "OpenConnectors_User", "SAP HANA Cloud Administrator", "SAP HANA Cloud Data Publisher Viewer",
+            "AuthGroup.Site.Admin", "AuthGroup.SelfService.Admin", "APIPortal.Guest", "AuthGroup.ContentAuthor",
+            "APIPortal.Developer", "Business_Application_Studio_Developer",
+            "SAP HANA Cloud Data Publisher Administrator", "Cloud Connector Administrator",
+            "APIPortal.Configurator", "Launchpad_Admin_Read_Only", "PIMAS_IntegrationAnalyst",
+            "AuthGroup.APIPortalRegistration", "Launchpad_External_User", "PI_Integration_Developer",
+            "PI_Read_Only", "AdminFinanceApps", "PI_Administrator", "AuthGroup.API.ApplicationDeveloper",
+            "AuthGroup.API.Admin", "APIPortal.Administrator", "Business_Application_Studio_Extension_Deployer",
+            "AuthGroup.Content.Admin", "Business_Application_Studio_Administrator", "Subaccount Administrator",
+            "SAP HANA Cloud Security Administrator", "APIPortal.Tester", "SAP HANA Cloud Viewer",
+            "Subaccount Service Administrator", "APIPortal.Service.CatalogIntegration", "Subaccount Viewer",
+            "Subscription Management Dashboard Viewer", "RC_MessagingSend_BAPI", "Launchpad_Admin",
+            "Launchpad_Advanced_Theming", "sap_subaccount_everyone", "PI_Business_Expert",
+            "Subscription Management Dashboard Administrator", "AdminIdeenFinance",
+            "APIManagement.SelfService.Administrator", "PIMAS_Administrator", "Integration_Provisioner",
+            "Destination Administrator", "Connectivity and Destination Administrator", "RevvoUser"
+    );
+
+    public static final String DEFAULT_KID = "default-jwt-key-1234567890";
+
+    private XsuaaTestTokens() {
+    }
+
+    /**
+     * Role collections sintéticos para testar escalas diferentes (5, 50, 500...).
+     */
+    public static List<String> roles(int count) {
+        List<String> roles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            roles.add(i < PRODUCTION_ROLES.size() ? PRODUCTION_ROLES.get(i) : "RoleCollection_" + i);
+        }
+        return roles;
+    }
+
+    public static String token(String username, List<String> roleCollections) {
+        return token(username, roleCollections, System.currentTimeMillis() / 1000 + 3600);
+    }
+
+    public static String token(String username, List<String> roleCollections, long exp) {
+        return base64Url(header(DEFAULT_KID)) + "." + base64Url(payload(username, roleCollections, exp))
+                + "." + base64Url("assinatura-ficticia-" + username);
+    }
+
+    /**
+     * Token assinado de verdade (RS256), para a validação com JWKS.
+     */
+    public static String signedToken(String username, List<String> roleCollections, long exp,
+                                     String kid, PrivateKey key) {
+        String signingInput = base64Url(header(kid)) + "." + base64Url(payload(username, roleCollections, exp));
+        try {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(key);
+            signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return signingInput + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signature.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static KeyPair rsaKeyPair() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * JWKS no formato do endpoint token_keys do XSUAA.
+     */
+    public static String jwks(String kid, RSAPublicKey key) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return "{\"keys\":[{\"kty\":\"RSA\",\"alg\":\"RS256\",\"use\":\"sig\",\"kid\":\"" + kid + "\","
+                + "\"n\":\"" + encoder.encodeToString(unsigned(key.getModulus())) + "\","
+                + "\"e\":\"" + encoder.encodeToString(unsigned(key.getPublicExponent())) + "\"}]}";
+    }
+
+    private static byte[] unsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        return bytes[0] == 0 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes;
+    }
+
+    private static String header(String kid) {
+        return "{\"alg\":\"RS256\",\"jku\":\"https://ideen.authentication.br10.hana.ondemand.com/token_keys\","
+                + "\"kid\":\"" + kid + "\",\"typ\":\"JWT\"}";
+    }
+
+    private static String payload(String username, List<String> roleCollections, long exp) {
+        StringBuilder payload = new StringBuilder(4096);
+        payload.append("{\"jti\":\"7a1c9e2b4d6f48a0b1c3d5e7f9a2b4c6\",")
+                .append("\"ext_attr\":{\"enhancer\":\"XSUAA\",\"subaccountid\":\"6b2f1c3e-8d4a-4f7b-9e0c-1a2b3c4d5e6f\",")
+                .append("\"zdn\":\"ideen\"},")
+                .append("\"xs.system.attributes\":{\"xs.rolecollections\":").append(jsonArray(roleCollections)).append("},")
+                .append("\"given_name\":\"Adriana\",\"xs.user.attributes\":{},\"family_name\":\"Amaral\",")
+                .append("\"sub\":\"3f1e5c7a-9b2d-4e6f-8a0c-2b4d6f8a0c1e\",")
+                .append("\"scope\":[\"openid\",\"revvo-finance-app!t8564.User\",\"revvo-finance-app!t8564.Admin\"],")
+                .append("\"client_id\":\"sb-revvo!t8564\",\"cid\":\"sb-revvo!t8564\",\"azp\":\"sb-revvo!t8564\",")
+                .append("\"grant_type\":\"authorization_code\",\"user_id\":\"3f1e5c7a-9b2d-4e6f-8a0c-2b4d6f8a0c1e\",")
+                .append("\"origin\":\"sap.default\",\"user_name\":\"").append(username).append("\",")
+                .append("\"email\":\"").append(username).append("\",\"auth_time\":1765890000,")
+                .append("\"rev_sig\":\"a1b2c3d4\",\"iat\":1765890000,\"exp\":").append(exp).append(",")
+                .append("\"iss\":\"https://ideen.authentication.br10.hana.ondemand.com/oauth/token\",")
+                .append("\"zid\":\"6b2f1c3e-8d4a-4f7b-9e0c-1a2b3c4d5e6f\",")
+                .append("\"aud\":[\"openid\",\"sb-revvo!t8564\",\"revvo-finance-app!t8564\"]}");
+
+        return payload.toString();
+    }
+
+    private static String jsonArray(List<String> values) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append('"').append(values.get(i)).append('"');
+        }
+        return sb.append(']').toString();
+    }
+
+    private static String base64Url(String s) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(s.getBytes(StandardCharsets.UTF_8));
+    }
+}